@@ -0,0 +1,63 @@
+package com.example.api.benchmarks;
+
+import com.example.api.config.MapperConfig;
+import com.example.api.dto.ComentarioDTO;
+import com.example.api.dto.PostDTO;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Post;
+import com.example.api.mappers.GenericMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión de entidades a DTOs con {@link GenericMapper} y las políticas de la aplicación
+ * ({@link MapperConfig}): un post con sus comentarios, una página de posts y una página de
+ * comentarios.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+   /**
+    * Número de comentarios de cada post.
+    */
+   @Param({"5", "50"})
+   public int comentarios;
+
+   private GenericMapper<Post, PostDTO> postMapper;
+   private GenericMapper<Comentario, ComentarioDTO> comentarioMapper;
+   private Post post;
+   private List<Post> page;
+   private List<Comentario> comentariosPage;
+
+   @Setup
+   public void setup() {
+      MapperConfig config = new MapperConfig();
+      postMapper = config.postMapper();
+      comentarioMapper = config.comentarioMapper();
+      page = SampleGraphs.posts(20, comentarios);
+      post = page.get(0);
+      comentariosPage = post.getPostComentarios().stream().limit(20).toList();
+   }
+
+   @Benchmark
+   public PostDTO postToDTO() {
+      return postMapper.toDTO(post);
+   }
+
+   @Benchmark
+   public List<PostDTO> postPageToDTOList() {
+      return postMapper.toDTOList(page);
+   }
+
+   @Benchmark
+   public List<ComentarioDTO> comentarioPageToDTOList() {
+      return comentarioMapper.toDTOList(comentariosPage);
+   }
+}
@@ -0,0 +1,79 @@
+package com.example.api.benchmarks;
+
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Grafos de entidades de ejemplo para los benchmarks: posts con su autor, su foto de perfil,
+ * imágenes y comentarios de varios usuarios, con identificadores como si vinieran de la
+ * base de datos.
+ */
+final class SampleGraphs {
+
+   private SampleGraphs() {
+   }
+
+   /**
+    * Crea una página de posts.
+    *
+    * @param size        el número de posts
+    * @param comentarios el número de comentarios de cada post
+    * @return los posts, con identificadores distintos
+    */
+   static List<Post> posts(int size, int comentarios) {
+      List<Usuario> usuarios = usuarios(10);
+      List<Post> posts = new ArrayList<>(size);
+      long nextId = 1_000;
+      for (int i = 0; i < size; i++) {
+         Usuario autor = usuarios.get(i % usuarios.size());
+         Imagen imagen = imagen(nextId++, "post" + i);
+         Post post = new Post("Viaje " + i, "Un viaje de " + (i + 3) + " días por la costa", "turismo",
+               i + 3, 1500.0 + i, autor, new HashSet<>(), Set.of(imagen));
+         post.setId(nextId++);
+         post.setEstado(true);
+         post.setVersion(0L);
+         for (int c = 0; c < comentarios; c++) {
+            Comentario comentario = new Comentario("Comentario " + c + " sobre el viaje " + i, post,
+                  usuarios.get((i + c) % usuarios.size()));
+            comentario.setId(nextId++);
+            comentario.setEstado(true);
+            comentario.setVersion(0L);
+            post.getPostComentarios().add(comentario);
+         }
+         posts.add(post);
+      }
+      return posts;
+   }
+
+   private static List<Usuario> usuarios(int size) {
+      List<Usuario> usuarios = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+         Usuario usuario = new Usuario("Usuario " + i, "usuario" + i + "@mail.com", "@usuario" + i,
+               imagen(i + 1, "perfil" + i));
+         usuario.setId(100L + i);
+         usuario.setEstado(true);
+         usuario.setVersion(0L);
+         usuarios.add(usuario);
+      }
+      return usuarios;
+   }
+
+   private static Imagen imagen(long id, String nombre) {
+      Imagen imagen = new Imagen();
+      imagen.setName(nombre + ".jpg");
+      imagen.setImageUrl("http://img/" + nombre + ".jpg");
+      imagen.setImageId(nombre);
+      imagen.setDescripcion(nombre);
+      imagen.setId(id);
+      imagen.setEstado(true);
+      imagen.setVersion(0L);
+      return imagen;
+   }
+}
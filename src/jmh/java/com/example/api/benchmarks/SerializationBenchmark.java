@@ -0,0 +1,63 @@
+package com.example.api.benchmarks;
+
+import com.example.api.config.MapperConfig;
+import com.example.api.dto.ComentarioDTO;
+import com.example.api.dto.PostDTO;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Post;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de páginas de {@link PostDTO} y {@link ComentarioDTO} como las que
+ * devuelve {@code /paged}, con un ObjectMapper configurado como el de Spring Boot. La salida
+ * se descarta, igual que el conversor de mensajes escribe directamente en la respuesta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+   /**
+    * Número de comentarios de cada post.
+    */
+   @Param({"5", "50"})
+   public int comentarios;
+
+   private ObjectWriter writer;
+   private Page<PostDTO> posts;
+   private Page<ComentarioDTO> comentariosPage;
+
+   @Setup
+   public void setup() {
+      MapperConfig config = new MapperConfig();
+      List<Post> page = SampleGraphs.posts(20, comentarios);
+      List<Comentario> pageComentarios = page.get(0).getPostComentarios().stream().limit(20).toList();
+      posts = new PageImpl<>(config.postMapper().toDTOList(page), PageRequest.of(0, 20), 1_000);
+      comentariosPage = new PageImpl<>(config.comentarioMapper().toDTOList(pageComentarios),
+            PageRequest.of(0, 20), 1_000);
+      writer = Jackson2ObjectMapperBuilder.json().build().writer();
+   }
+
+   @Benchmark
+   public void postPage() throws IOException {
+      writer.writeValue(OutputStream.nullOutputStream(), posts);
+   }
+
+   @Benchmark
+   public void comentarioPage() throws IOException {
+      writer.writeValue(OutputStream.nullOutputStream(), comentariosPage);
+   }
+}
@@ -0,0 +1,152 @@
+package com.example.api.benchmarks;
+
+import com.example.api.ApiApplication;
+import com.example.api.dto.PostDTO;
+import com.example.api.dto.UsuarioDTO;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import com.example.api.services.PostService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones CRUD de {@code BaseServiceImpl} sobre posts, con la aplicación completa y la
+ * base de datos H2 en memoria de las pruebas. La caché de DTOs se desactiva para medir
+ * siempre la consulta, la conversión y la transacción.
+ * <p>
+ * Cada post tiene su propio usuario ({@code Post.usuario} es una relación uno a uno), por lo
+ * que las altas y las bajas preparan antes de cada invocación, fuera de la medida, el usuario
+ * o el post que necesitan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ServiceBenchmark {
+
+   private static final int POSTS = 500;
+   private static final int COMENTARIOS = 10;
+   private static final int PAGE_SIZE = 20;
+
+   private ConfigurableApplicationContext context;
+   private PostService postService;
+   private UsuarioRepository usuarioRepository;
+   private PostRepository postRepository;
+   private List<Long> ids;
+
+   @Setup(Level.Trial)
+   public void start() {
+      context = new SpringApplicationBuilder(ApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.datasource.url=jdbc:h2:mem:jmhDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                        + "DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+                  "spring.jpa.show-sql=false",
+                  "app.dto-cache.enabled=false",
+                  "logging.level.root=WARN",
+                  "logging.level.com.example.api=WARN")
+            .run();
+      postService = context.getBean(PostService.class);
+      usuarioRepository = context.getBean(UsuarioRepository.class);
+      postRepository = context.getBean(PostRepository.class);
+
+      ComentarioRepository comentarioRepository = context.getBean(ComentarioRepository.class);
+      ids = new ArrayList<>(POSTS);
+      for (int i = 0; i < POSTS; i++) {
+         Post post = newPost();
+         for (int c = 0; c < COMENTARIOS; c++) {
+            comentarioRepository.save(new Comentario("Comentario " + c, post, post.getUsuario()));
+         }
+         ids.add(post.getId());
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void stop() {
+      context.close();
+   }
+
+   @Benchmark
+   public PostDTO findById() throws Exception {
+      return postService.findById(randomId());
+   }
+
+   @Benchmark
+   public Page<PostDTO> findPage() throws Exception {
+      int page = ThreadLocalRandom.current().nextInt(POSTS / PAGE_SIZE);
+      return postService.findAll(PageRequest.of(page, PAGE_SIZE));
+   }
+
+   @Benchmark
+   public PostDTO update() throws Exception {
+      Long id = randomId();
+      PostDTO dto = postService.findById(id);
+      dto.setPresupuesto(dto.getPresupuesto() + 1);
+      return postService.update(id, dto);
+   }
+
+   @Benchmark
+   public PostDTO save(Fresh fresh) throws Exception {
+      return postService.save(PostDTO.builder()
+            .titulo("Nuevo viaje")
+            .descripcion("Un viaje nuevo")
+            .categoria("turismo")
+            .duracion(3)
+            .presupuesto(900.0)
+            .usuario(UsuarioDTO.builder().id(fresh.usuario.getId()).build())
+            .postComentarios(new HashSet<>())
+            .postImagenes(new HashSet<>())
+            .build());
+   }
+
+   @Benchmark
+   public boolean delete(Fresh fresh) throws Exception {
+      return postService.delete(fresh.post.getId());
+   }
+
+   /**
+    * Usuario sin post y post nuevo, creados antes de cada invocación.
+    */
+   @State(Scope.Thread)
+   public static class Fresh {
+
+      Usuario usuario;
+      Post post;
+
+      @Setup(Level.Invocation)
+      public void create(ServiceBenchmark benchmark) {
+         usuario = benchmark.newUsuario();
+         post = benchmark.newPost();
+      }
+   }
+
+   private Usuario newUsuario() {
+      long n = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+      return usuarioRepository.save(new Usuario("Usuario " + n, "usuario" + n + "@mail.com", "@u" + n, null));
+   }
+
+   private Post newPost() {
+      return postRepository.save(new Post("Viaje", "Un viaje por la costa", "turismo", 5, 1500.0, newUsuario(),
+            new HashSet<Comentario>(), new HashSet<Imagen>()));
+   }
+
+   private Long randomId() {
+      return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+   }
+}
@@ -1,9 +1,14 @@
 package com.example.api;
 
+import com.example.api.repositories.BaseRepositoryImpl;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "com.example.api")
+@EnableJpaRepositories(repositoryBaseClass = BaseRepositoryImpl.class)
+@EnableScheduling
 public class ApiApplication {
 
 	public static void main(String[] args) {
@@ -3,6 +3,7 @@ package com.example.api.config;
 import com.example.api.dto.*;
 import com.example.api.entities.*;
 import com.example.api.mappers.GenericMapper;
+import com.example.api.mappers.MappingPolicy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -23,9 +24,16 @@ public class MapperConfig {
     }
     */
 
+    /**
+     * Un comentario incluye solo un resumen de su post, sin el resto de comentarios.
+     */
     @Bean
     public GenericMapper<Comentario,ComentarioDTO> comentarioMapper(){
-        return new GenericMapper<>(Comentario.class, ComentarioDTO.class);
+        MappingPolicy policy = MappingPolicy.builder()
+                .maxDepth(2)
+                .summary("post", "titulo")
+                .build();
+        return new GenericMapper<>(Comentario.class, ComentarioDTO.class, policy);
     }
 
     @Bean
@@ -33,9 +41,18 @@ public class MapperConfig {
         return new GenericMapper<>(Imagen.class, ImagenDTO.class);
     }
 
+    /**
+     * Los comentarios de un post llevan solo el id del post y un resumen del autor,
+     * de modo que el tamaño de la respuesta crece de forma lineal con los comentarios.
+     */
     @Bean
     public GenericMapper<Post,PostDTO> postMapper(){
-        return new GenericMapper<>(Post.class, PostDTO.class);
+        MappingPolicy policy = MappingPolicy.builder()
+                .maxDepth(2)
+                .reference("postComentarios.post")
+                .summary("postComentarios.usuario", "nombre")
+                .build();
+        return new GenericMapper<>(Post.class, PostDTO.class, policy);
     }
 
     @Bean
@@ -0,0 +1,61 @@
+package com.example.api.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filtro de Logback que solo deja pasar los mensajes de las categorías muestreadas (por
+ * ejemplo, {@code org.hibernate.SQL}) cuando el MDC del hilo contiene la clave de muestreo,
+ * que {@link SqlLogSamplingFilter} añade a una fracción de las peticiones. El resto de
+ * categorías no se ven afectadas.
+ * <p>
+ * Al actuar como filtro global, también responde a {@code isDebugEnabled()}: en las peticiones
+ * no muestreadas Hibernate ni siquiera formatea las sentencias.
+ * <pre>{@code
+ * <turboFilter class="com.example.api.config.SampledLoggerTurboFilter">
+ *    <logger>org.hibernate.SQL</logger>
+ *    <logger>org.hibernate.orm.jdbc.bind</logger>
+ * </turboFilter>
+ * }</pre>
+ */
+public class SampledLoggerTurboFilter extends TurboFilter {
+
+   /**
+    * Clave del MDC que marca una petición muestreada.
+    */
+   public static final String MDC_KEY = "sampled";
+
+   private final List<String> loggers = new ArrayList<>();
+
+   /**
+    * Añade una categoría muestreada; incluye también sus categorías hijas.
+    *
+    * @param logger el nombre de la categoría
+    */
+   public void addLogger(String logger) {
+      loggers.add(logger);
+   }
+
+   @Override
+   public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                             Throwable t) {
+      if (!isStarted() || MDC.get(MDC_KEY) != null) {
+         return FilterReply.NEUTRAL;
+      }
+      String name = logger.getName();
+      for (String sampled : loggers) {
+         if (name.startsWith(sampled)
+               && (name.length() == sampled.length() || name.charAt(sampled.length()) == '.')) {
+            return FilterReply.DENY;
+         }
+      }
+      return FilterReply.NEUTRAL;
+   }
+}
@@ -0,0 +1,90 @@
+package com.example.api.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Endpoint de Actuator para administrar la caché de segundo nivel de Hibernate.
+ * <ul>
+ *    <li>{@code GET /actuator/l2cache}: estadísticas de cada región y de la caché de consultas.</li>
+ *    <li>{@code DELETE /actuator/l2cache}: vacía todas las regiones.</li>
+ *    <li>{@code DELETE /actuator/l2cache/{region}}: vacía una región.</li>
+ * </ul>
+ * Es un endpoint de administración sin autenticación, y vaciar la caché obliga a volver
+ * a leer de la base de datos todas las entidades: por eso está excluido de la exposición
+ * web por defecto ({@code management.endpoints.web.exposure.exclude}). Para usarlo por
+ * HTTP, debe exponerse solo en un puerto de gestión accesible desde la red interna
+ * ({@code management.server.port}).
+ */
+@Component
+@Endpoint(id = "l2cache")
+public class SecondLevelCacheEndpoint {
+
+   private final SessionFactory sessionFactory;
+
+   /**
+    * Constructor del endpoint.
+    *
+    * @param entityManagerFactory la factoría de la que se obtiene la SessionFactory de Hibernate
+    */
+   public SecondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+      this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+   }
+
+   /**
+    * Estadísticas de la caché de segundo nivel por región.
+    *
+    * @return las estadísticas de cada región y las de la caché de consultas
+    */
+   @ReadOperation
+   public Map<String, Object> regions() {
+      Statistics statistics = sessionFactory.getStatistics();
+      Map<String, Object> regions = new TreeMap<>();
+      for (String name : statistics.getSecondLevelCacheRegionNames()) {
+         CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+         if (region == null) {
+            continue;
+         }
+         regions.put(name, Map.of(
+               "hits", region.getHitCount(),
+               "misses", region.getMissCount(),
+               "puts", region.getPutCount(),
+               "elements", region.getElementCountInMemory()));
+      }
+      return Map.of(
+            "statisticsEnabled", statistics.isStatisticsEnabled(),
+            "regions", regions,
+            "queryCache", Map.of(
+                  "hits", statistics.getQueryCacheHitCount(),
+                  "misses", statistics.getQueryCacheMissCount(),
+                  "puts", statistics.getQueryCachePutCount()));
+   }
+
+   /**
+    * Vacía todas las regiones de la caché de segundo nivel, incluida la de consultas.
+    */
+   @DeleteOperation
+   public void evictAll() {
+      sessionFactory.getCache().evictAllRegions();
+   }
+
+   /**
+    * Vacía una región de la caché de segundo nivel.
+    *
+    * @param region el nombre de la región
+    */
+   @DeleteOperation
+   public void evict(@Selector String region) {
+      sessionFactory.getCache().evictRegion(region);
+   }
+}
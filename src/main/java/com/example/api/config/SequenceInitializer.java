@@ -0,0 +1,105 @@
+package com.example.api.config;
+
+import com.example.api.entities.Base;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adelanta al arrancar la secuencia de identificadores de cada entidad ({@code <Entidad>_SEQ})
+ * por encima del mayor id que ya existe en su tabla.
+ * <p>
+ * Las tablas creadas cuando los ids eran de identidad conservan sus filas, mientras que
+ * {@code ddl-auto=update} crea las secuencias nuevas (en MySQL, tablas con una columna
+ * {@code next_val}) empezando en 1: sin este ajuste, los primeros INSERT chocarían con las claves
+ * existentes. Se ejecuta durante el arranque del contexto, antes de que el servidor acepte
+ * peticiones, y no toca las secuencias que ya van por delante, así que es idempotente y
+ * seguro con varias instancias.
+ */
+@Component
+public class SequenceInitializer {
+
+   private static final Logger logger = LoggerFactory.getLogger(SequenceInitializer.class);
+
+   /**
+    * Columna de las tablas con las que Hibernate emula las secuencias.
+    */
+   private static final String VALUE_COLUMN = "next_val";
+
+   private final SessionFactoryImplementor sessionFactory;
+   private final PlatformTransactionManager transactionManager;
+   private final EntityManager entityManager;
+
+   /**
+    * Constructor del inicializador.
+    *
+    * @param entityManagerFactory la factoría de Hibernate con los generadores de cada entidad
+    * @param transactionManager   el gestor de transacciones
+    * @param entityManager        el EntityManager con el que se consultan y ajustan las secuencias
+    */
+   public SequenceInitializer(EntityManagerFactory entityManagerFactory,
+                              PlatformTransactionManager transactionManager,
+                              EntityManager entityManager) {
+      this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+      this.transactionManager = transactionManager;
+      this.entityManager = entityManager;
+   }
+
+   /**
+    * Recorre las entidades raíz que heredan de {@link Base} y adelanta la secuencia de las que
+    * van por detrás de su tabla.
+    */
+   @PostConstruct
+   public void seed() {
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+         if (persister.getMappedClass() != null && Base.class.isAssignableFrom(persister.getMappedClass())
+               && persister.getEntityName().equals(persister.getRootEntityName())
+               && persister.getIdentifierGenerator() instanceof SequenceStyleGenerator generator) {
+            transaction.executeWithoutResult(status -> seed(persister, generator.getDatabaseStructure()));
+         }
+      });
+   }
+
+   private void seed(EntityPersister persister, DatabaseStructure structure) {
+      Long max = entityManager.createQuery("select max(e.id) from " + persister.getEntityName() + " e", Long.class)
+            .getSingleResult();
+      if (max == null) {
+         return;
+      }
+      // El optimizador pooled reparte los ids (valor - incremento, valor], así que el siguiente
+      // valor debe dejar todo el primer bloque por encima del mayor id existente.
+      long target = max + structure.getIncrementSize();
+      JdbcEnvironment jdbc = sessionFactory.getJdbcServices().getJdbcEnvironment();
+      Dialect dialect = jdbc.getDialect();
+      String name = jdbc.getQualifiedObjectNameFormatter().format(structure.getPhysicalName(), dialect);
+      if (structure.isPhysicalSequence()) {
+         long next = ((Number) entityManager
+               .createNativeQuery(dialect.getSequenceSupport().getSequenceNextValString(name))
+               .getSingleResult()).longValue();
+         if (next < target) {
+            entityManager.createNativeQuery("alter sequence " + name + " restart with " + target).executeUpdate();
+            logger.info("Secuencia {} adelantada de {} a {}", name, next, target);
+         }
+      } else {
+         int updated = entityManager
+               .createNativeQuery("update " + name + " set " + VALUE_COLUMN + " = ?1 where " + VALUE_COLUMN + " < ?1")
+               .setParameter(1, target)
+               .executeUpdate();
+         if (updated > 0) {
+            logger.info("Secuencia {} adelantada a {}", name, target);
+         }
+      }
+   }
+}
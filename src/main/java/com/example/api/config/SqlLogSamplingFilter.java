@@ -0,0 +1,51 @@
+package com.example.api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Marca en el MDC una fracción de las peticiones, elegidas al azar, para que
+ * {@link SampledLoggerTurboFilter} registre sus sentencias SQL. Solo se activa si se define
+ * {@code app.logging.sql-sample-rate} (perfil {@code prod}); las sentencias lentas se
+ * registran siempre, con la categoría {@code org.hibernate.SQL_SLOW}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.logging.sql-sample-rate")
+public class SqlLogSamplingFilter extends OncePerRequestFilter {
+
+   private final double rate;
+
+   /**
+    * Constructor del filtro.
+    *
+    * @param rate la fracción de peticiones muestreadas, entre 0 y 1
+    */
+   public SqlLogSamplingFilter(@Value("${app.logging.sql-sample-rate}") double rate) {
+      this.rate = rate;
+   }
+
+   @Override
+   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+         throws ServletException, IOException {
+      if (ThreadLocalRandom.current().nextDouble() >= rate) {
+         chain.doFilter(request, response);
+         return;
+      }
+      MDC.put(SampledLoggerTurboFilter.MDC_KEY, "true");
+      try {
+         chain.doFilter(request, response);
+      } finally {
+         MDC.remove(SampledLoggerTurboFilter.MDC_KEY);
+      }
+   }
+}
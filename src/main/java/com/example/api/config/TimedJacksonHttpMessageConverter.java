@@ -0,0 +1,123 @@
+package com.example.api.config;
+
+import com.example.api.services.ServiceMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Conversor JSON de Spring MVC que mide la serialización de las respuestas con DTOs de los
+ * servicios: registra en {@link ServiceMetrics} su duración y su tamaño en bytes, etiquetados
+ * con la entidad del DTO. Sustituye al conversor que Spring Boot configura por defecto y usa
+ * el mismo {@link ObjectMapper}; el resto de respuestas se serializan sin medir.
+ */
+@Component
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+   /**
+    * Profundidad máxima con la que se buscan DTOs en los tipos genéricos, por ejemplo en
+    * {@code ResponseEntity<Page<PostDTO>>}.
+    */
+   private static final int MAX_GENERIC_DEPTH = 3;
+
+   private final ServiceMetrics metrics;
+
+   /**
+    * Constructor del conversor.
+    *
+    * @param objectMapper el ObjectMapper configurado por Spring Boot
+    * @param metrics      las métricas de los servicios
+    */
+   public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, ServiceMetrics metrics) {
+      super(objectMapper);
+      this.metrics = metrics;
+   }
+
+   @Override
+   protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+         throws IOException {
+      Optional<String> entity = entityOf(type != null ? ResolvableType.forType(type) : ResolvableType.NONE, 0)
+            .or(() -> entityOf(object));
+      if (entity.isEmpty()) {
+         super.writeInternal(object, type, outputMessage);
+         return;
+      }
+      CountingOutputMessage counting = new CountingOutputMessage(outputMessage);
+      long start = System.nanoTime();
+      super.writeInternal(object, type, counting);
+      metrics.recordSerialization(entity.get(), System.nanoTime() - start, counting.bytes);
+   }
+
+   private Optional<String> entityOf(ResolvableType type, int depth) {
+      Class<?> resolved = type.resolve();
+      if (resolved == null) {
+         return Optional.empty();
+      }
+      Optional<String> entity = metrics.entityOf(resolved);
+      if (entity.isPresent() || depth == MAX_GENERIC_DEPTH) {
+         return entity;
+      }
+      for (ResolvableType generic : type.getGenerics()) {
+         entity = entityOf(generic, depth + 1);
+         if (entity.isPresent()) {
+            return entity;
+         }
+      }
+      return Optional.empty();
+   }
+
+   private Optional<String> entityOf(Object object) {
+      if (object instanceof Iterable<?> iterable) {
+         Iterator<?> elements = iterable.iterator();
+         Object first = elements.hasNext() ? elements.next() : null;
+         return first != null ? metrics.entityOf(first.getClass()) : Optional.empty();
+      }
+      return metrics.entityOf(object.getClass());
+   }
+
+   /**
+    * Mensaje de salida que cuenta los bytes escritos en el cuerpo.
+    */
+   private static final class CountingOutputMessage implements HttpOutputMessage {
+
+      private final HttpOutputMessage delegate;
+      private long bytes;
+
+      CountingOutputMessage(HttpOutputMessage delegate) {
+         this.delegate = delegate;
+      }
+
+      @Override
+      public OutputStream getBody() throws IOException {
+         return new FilterOutputStream(delegate.getBody()) {
+            @Override
+            public void write(int b) throws IOException {
+               out.write(b);
+               bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+               out.write(b, off, len);
+               bytes += len;
+            }
+         };
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+         return delegate.getHeaders();
+      }
+   }
+}
@@ -0,0 +1,124 @@
+package com.example.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Detecta los hilos virtuales que bloquean su hilo portador (pinning), por ejemplo al esperar
+ * E/S dentro de un bloque {@code synchronized} del driver JDBC o del cliente HTTP de Cloudinary.
+ * <p>
+ * Solo se activa con {@code spring.threads.virtual.enabled=true} (perfil {@code virtual}). Escucha
+ * los eventos JFR {@code jdk.VirtualThreadPinned} que superan el umbral configurado y:
+ * <ul>
+ *    <li>publica {@code jvm.threads.virtual.pinned} (contador) y
+ *    {@code jvm.threads.virtual.pinned.duration} (temporizador), etiquetados con el primer
+ *    marco de la pila que no pertenece al JDK;</li>
+ *    <li>registra un aviso con la pila la primera vez que aparece cada origen.</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "app.virtual-threads.pinning.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+   private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+   static final String EVENT = "jdk.VirtualThreadPinned";
+   static final String METRIC = "jvm.threads.virtual.pinned";
+   private static final int LOGGED_FRAMES = 12;
+
+   private final MeterRegistry meterRegistry;
+   private final Duration threshold;
+   private final Map<String, Boolean> reported = new ConcurrentHashMap<>();
+   private RecordingStream stream;
+
+   /**
+    * Constructor del monitor.
+    *
+    * @param meterRegistry el registro donde se publican las métricas
+    * @param threshold     la duración mínima de un bloqueo para que se notifique
+    */
+   public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                      @Value("${app.virtual-threads.pinning.threshold:20ms}") Duration threshold) {
+      this.meterRegistry = meterRegistry;
+      this.threshold = threshold;
+   }
+
+   /**
+    * Arranca la grabación JFR en un hilo propio.
+    */
+   @PostConstruct
+   public void start() {
+      stream = new RecordingStream();
+      stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+      stream.onEvent(EVENT, this::onPinned);
+      stream.startAsync();
+      log.info("Monitor de pinning de hilos virtuales activo (umbral {} ms)", threshold.toMillis());
+   }
+
+   /**
+    * Detiene la grabación JFR.
+    */
+   @PreDestroy
+   public void stop() {
+      if (stream != null) {
+         stream.close();
+      }
+   }
+
+   private void onPinned(RecordedEvent event) {
+      List<RecordedFrame> frames = event.getStackTrace() == null
+            ? List.of() : event.getStackTrace().getFrames();
+      String source = frames.stream()
+            .filter(RecordedFrame::isJavaFrame)
+            .map(frame -> frame.getMethod().getType().getName())
+            .filter(type -> !type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun."))
+            .findFirst()
+            .orElse("unknown");
+      Counter.builder(METRIC)
+            .description("Bloqueos de hilos virtuales sobre su hilo portador")
+            .tag("source", source)
+            .register(meterRegistry)
+            .increment();
+      Timer.builder(METRIC + ".duration")
+            .description("Duración de los bloqueos de hilos virtuales sobre su hilo portador")
+            .tag("source", source)
+            .register(meterRegistry)
+            .record(event.getDuration());
+      if (reported.putIfAbsent(source, Boolean.TRUE) == null) {
+         log.warn("Hilo virtual bloqueado sobre su portador durante {} ms en {}:\n{}",
+               event.getDuration().toMillis(), source, format(event.getStackTrace()));
+      }
+   }
+
+   private static String format(RecordedStackTrace stackTrace) {
+      if (stackTrace == null) {
+         return "\t(sin pila)";
+      }
+      return stackTrace.getFrames().stream()
+            .limit(LOGGED_FRAMES)
+            .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                  + "(línea " + frame.getLineNumber() + ")")
+            .collect(Collectors.joining("\n"));
+   }
+}
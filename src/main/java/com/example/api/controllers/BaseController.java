@@ -1,10 +1,13 @@
 package com.example.api.controllers;
 
 import com.example.api.entities.Base;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.Serializable;
 import java.util.List;
@@ -27,21 +30,43 @@ public interface BaseController<E extends Base, D, ID extends Serializable> {
     */
    public ResponseEntity<?> getAll();
 
+   /**
+    * Obtiene todas las entidades como un flujo NDJSON, un objeto JSON por línea,
+    * sin cargar la tabla completa en memoria.
+    *
+    * @return una respuesta cuyo cuerpo se escribe a medida que se leen las entidades.
+    */
+   public ResponseEntity<?> streamAll();
+
    /**
     * Obtiene todas las entidades con paginación.
     *
     * @param pageable objeto que contiene información de paginación
+    * @param request  la petición, para resolver la cabecera {@code If-None-Match}
     * @return una respuesta que contiene una lista paginada de entidades.
     */
-   public ResponseEntity<?> getAll(Pageable pageable);
+   public ResponseEntity<?> getAll(Pageable pageable, WebRequest request);
+
+   /**
+    * Obtiene una página de entidades mediante paginación por clave (cursor).
+    *
+    * @param cursor    el cursor devuelto por la página anterior, o {@code null} para la primera
+    * @param size      el número máximo de entidades de la página
+    * @param sort      el atributo por el que se ordena
+    * @param direction la dirección del orden
+    * @param total     si debe incluirse el número total de entidades
+    * @return una respuesta que contiene la página y el cursor de la siguiente.
+    */
+   public ResponseEntity<?> getAfter(String cursor, int size, String sort, Sort.Direction direction, boolean total);
 
    /**
     * Obtiene una entidad específica por su ID.
     *
-    * @param id el identificador de la entidad a recuperar
+    * @param id      el identificador de la entidad a recuperar
+    * @param request la petición, para resolver la cabecera {@code If-None-Match}
     * @return una respuesta que contiene la entidad correspondiente al ID.
     */
-   public ResponseEntity<?> getOne(@PathVariable ID id);
+   public ResponseEntity<?> getOne(@PathVariable ID id, WebRequest request);
 
    /**
     * Guarda una nueva entidad.
@@ -51,20 +76,40 @@ public interface BaseController<E extends Base, D, ID extends Serializable> {
     */
    public ResponseEntity<?> save(@RequestBody D dto);
 
+   /**
+    * Guarda una lista de nuevas entidades en lotes.
+    *
+    * @param dtos los DTOs que representan las entidades a guardar
+    * @return una respuesta con el resultado de cada elemento.
+    */
+   public ResponseEntity<?> saveAll(@RequestBody List<D> dtos);
+
    /**
     * Actualiza una entidad existente.
     *
-    * @param id  el identificador de la entidad a actualizar
-    * @param dto el DTO que contiene los datos actualizados de la entidad
+    * @param id      el identificador de la entidad a actualizar
+    * @param dto     el DTO que contiene los datos actualizados de la entidad
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
+    * @return una respuesta que indica el resultado de la operación.
+    */
+   public ResponseEntity<?> update(@PathVariable ID id, @RequestBody D dto, String ifMatch);
+
+   /**
+    * Modifica parcialmente una entidad existente.
+    *
+    * @param id      el identificador de la entidad a modificar
+    * @param patch   el documento JSON Merge Patch con los atributos que cambian
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
     * @return una respuesta que indica el resultado de la operación.
     */
-   public ResponseEntity<?> update(@PathVariable ID id, @RequestBody D dto);
+   public ResponseEntity<?> patch(@PathVariable ID id, @RequestBody JsonNode patch, String ifMatch);
 
    /**
     * Elimina una entidad por su ID.
     *
-    * @param id el identificador de la entidad a eliminar
+    * @param id      el identificador de la entidad a eliminar
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
     * @return una respuesta que indica el resultado de la operación.
     */
-   public ResponseEntity<?> delete(@PathVariable ID id);
+   public ResponseEntity<?> delete(@PathVariable ID id, String ifMatch);
 }
@@ -1,22 +1,42 @@
 package com.example.api.controllers;
 
 import com.example.api.dto.BaseDTO;
+import com.example.api.dto.BatchItemResult;
+import com.example.api.dto.CursorPage;
 import com.example.api.entities.Base;
+import com.example.api.repositories.FetchPlan;
 import com.example.api.services.BaseServiceImpl;
+import com.example.api.utils.EntityTags;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
 /**
  * BaseControllerImpl es una clase abstracta que implementa la interfaz {@link BaseController}
  * y proporciona la implementación básica de las operaciones CRUD para entidades.
+ * <p>
+ * Las respuestas con una entidad o una página incluyen un ETag calculado con
+ * {@link EntityTags}; una petición con {@code If-None-Match} igual al ETag actual
+ * recibe 304 (NOT MODIFIED) sin cuerpo. PUT, PATCH y DELETE admiten {@code If-Match}
+ * y responden 412 (PRECONDITION FAILED) si la entidad ha cambiado.
  *
  * @param <E> el tipo de la entidad que extiende de {@link Base}
  * @param <D> el tipo del DTO (Data Transfer Object) asociado que extiende de {@link BaseDTO}
@@ -25,9 +45,41 @@ import java.util.Map;
 public abstract class BaseControllerImpl<E extends Base, D extends BaseDTO, S extends BaseServiceImpl<E, D, Long>>
       implements BaseController<E, D, Long> {
 
+   /**
+    * Tamaño máximo de una página de {@code /cursor}.
+    */
+   protected static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+   /**
+    * Tipo de contenido de los documentos JSON Merge Patch (RFC 7396).
+    */
+   public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
    @Autowired
    protected S servicio;
 
+   @Autowired
+   private ObjectMapper objectMapper;
+
+   /**
+    * Plan de carga utilizado por los listados. Las subclases pueden redefinirlo
+    * para usar, por ejemplo, {@link FetchPlan#SUMMARY}.
+    *
+    * @return el plan de carga de los listados
+    */
+   protected FetchPlan listFetchPlan() {
+      return FetchPlan.LIST;
+   }
+
+   /**
+    * Plan de carga utilizado al obtener una entidad por su ID.
+    *
+    * @return el plan de carga del detalle
+    */
+   protected FetchPlan detailFetchPlan() {
+      return FetchPlan.DETAIL;
+   }
+
    /**
     * Obtiene todas las entidades.
     *
@@ -36,34 +88,112 @@ public abstract class BaseControllerImpl<E extends Base, D extends BaseDTO, S ex
    @Override
    @GetMapping("")
    public ResponseEntity<List<D>> getAll() {
-      List<D> dtos = servicio.findAll();
+      List<D> dtos = servicio.findAll(listFetchPlan());
       return new ResponseEntity<>(dtos, HttpStatus.OK);
    }
 
+   /**
+    * Obtiene todas las entidades como NDJSON cuando el cliente envía
+    * {@code Accept: application/x-ndjson}. Cada DTO se serializa y se escribe en la
+    * respuesta en cuanto se lee de la base de datos, por lo que la memoria utilizada
+    * no crece con el tamaño de la tabla.
+    *
+    * @return una respuesta cuyo cuerpo es un flujo de DTOs, uno por línea.
+    */
+   @Override
+   @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+   public ResponseEntity<StreamingResponseBody> streamAll() {
+      StreamingResponseBody body = out -> {
+         JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+               .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+         try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(generator)) {
+            servicio.streamAll(listFetchPlan(), dto -> {
+               try {
+                  writer.write(dto);
+               } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+               }
+            });
+         }
+         out.write('\n');
+      };
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+   }
+
    /**
     * Obtiene todas las entidades con paginación.
     *
+    * Con {@code If-None-Match}, el ETag de la página se calcula antes de cargarla, con
+    * consultas que solo leen identificadores y versiones, de modo que un 304 no carga ni
+    * convierte entidades. Sin esa cabecera, el ETag se deriva de la página ya cargada.
+    *
     * @param pageable objeto que contiene información de paginación
-    * @return una respuesta que contiene una lista paginada de DTOs.
+    * @param request  la petición, para resolver la cabecera {@code If-None-Match}
+    * @return una respuesta que contiene una lista paginada de DTOs, o 304 (NOT MODIFIED)
+    *         si la página no ha cambiado.
     */
    @Override
    @GetMapping("/paged")
-   public ResponseEntity<Page<D>> getAll(Pageable pageable) {
-      Page<D> dtosPage = servicio.findAll(pageable);
-      return new ResponseEntity<>(dtosPage, HttpStatus.OK);
+   public ResponseEntity<Page<D>> getAll(Pageable pageable, WebRequest request) {
+      String etag = null;
+      if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+         etag = servicio.findPageTag(pageable);
+         if (request.checkNotModified(etag)) {
+            return null; // Spring completa la respuesta 304
+         }
+      }
+      Page<D> dtosPage = servicio.findAll(pageable, listFetchPlan());
+      if (etag == null) {
+         etag = servicio.findPageTag(pageable, dtosPage);
+      }
+      return ResponseEntity.ok().eTag(etag).body(dtosPage);
+   }
+
+   /**
+    * Obtiene una página de entidades mediante paginación por clave. A diferencia de
+    * {@code /paged}, no usa OFFSET ni calcula el total salvo que se pida, por lo que
+    * cualquier página cuesta lo mismo que la primera.
+    *
+    * @param cursor    el cursor devuelto por la página anterior, o {@code null} para la primera
+    * @param size      el número máximo de DTOs de la página, como mucho {@value #MAX_CURSOR_PAGE_SIZE}
+    * @param sort      el atributo por el que se ordena
+    * @param direction la dirección del orden
+    * @param total     si debe incluirse el número total de entidades
+    * @return una respuesta que contiene la página de DTOs y el cursor de la siguiente.
+    */
+   @Override
+   @GetMapping("/cursor")
+   public ResponseEntity<CursorPage<D>> getAfter(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 @RequestParam(defaultValue = "id") String sort,
+                                                 @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                                 @RequestParam(defaultValue = "false") boolean total) {
+      int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+      CursorPage<D> page = servicio.findAfter(cursor, sort, direction, pageSize, total);
+      return new ResponseEntity<>(page, HttpStatus.OK);
    }
 
    /**
     * Obtiene una entidad específica por su ID.
     *
-    * @param id el identificador de la entidad a recuperar
-    * @return una respuesta que contiene el DTO correspondiente al ID.
+    * Como en {@code /paged}, el ETag se calcula antes de cargar la entidad, con consultas
+    * que solo leen identificadores y versiones, de modo que un 304 no carga el grafo de
+    * detalle ni convierte la entidad.
+    *
+    * @param id      el identificador de la entidad a recuperar
+    * @param request la petición, para resolver la cabecera {@code If-None-Match}
+    * @return una respuesta que contiene el DTO correspondiente al ID, o 304 (NOT MODIFIED)
+    *         si la entidad no ha cambiado.
     */
    @Override
    @GetMapping("/{id}")
-   public ResponseEntity<D> getOne(@PathVariable Long id) {
-      D dto = servicio.findById(id);
-      return new ResponseEntity<>(dto, HttpStatus.OK);
+   public ResponseEntity<D> getOne(@PathVariable Long id, WebRequest request) {
+      String etag = servicio.findTag(id);
+      if (request.checkNotModified(etag)) {
+         return null; // Spring completa la respuesta 304
+      }
+      D dto = servicio.findById(id, detailFetchPlan());
+      return ResponseEntity.ok().eTag(etag).body(dto);
    }
 
    /**
@@ -79,30 +209,76 @@ public abstract class BaseControllerImpl<E extends Base, D extends BaseDTO, S ex
       return new ResponseEntity<>(savedDto, HttpStatus.CREATED);
    }
 
+   /**
+    * Guarda una lista de nuevas entidades con inserciones por lotes. Cada elemento se
+    * valida por separado y recibe su propio resultado.
+    *
+    * @param dtos los DTOs que representan las entidades a guardar
+    * @return 201 (CREATED) si se guardaron todos los elementos, o 207 (MULTI STATUS)
+    *         con el resultado de cada uno si alguno no pudo guardarse.
+    */
+   @Override
+   @PostMapping("/batch")
+   public ResponseEntity<List<BatchItemResult<D>>> saveAll(@RequestBody List<D> dtos) {
+      List<BatchItemResult<D>> results = servicio.saveAll(dtos);
+      boolean allCreated = results.stream().allMatch(r -> r.getStatus() == BatchItemResult.Status.CREATED);
+      return new ResponseEntity<>(results, allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+   }
+
    /**
     * Actualiza una entidad existente.
     *
-    * @param id  el identificador de la entidad a actualizar
-    * @param dto el DTO que contiene los datos actualizados de la entidad
-    * @return una respuesta que contiene el DTO actualizado.
+    * @param id      el identificador de la entidad a actualizar
+    * @param dto     el DTO que contiene los datos actualizados de la entidad
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
+    * @return una respuesta que contiene el DTO actualizado y su nuevo ETag.
     */
    @Override
    @PutMapping("/{id}")
-   public ResponseEntity<D> update(@PathVariable Long id, @Valid @RequestBody D dto) {
-      D updatedDto = servicio.update(id, dto);
-      return new ResponseEntity<>(updatedDto, HttpStatus.OK);
+   public ResponseEntity<D> update(@PathVariable Long id, @Valid @RequestBody D dto,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      D updatedDto = servicio.update(id, dto, EntityTags.expectedVersion(ifMatch));
+      return withETag(id, updatedDto);
+   }
+
+   /**
+    * Modifica parcialmente una entidad existente con un documento JSON Merge Patch
+    * (RFC 7396): los atributos presentes se sustituyen, los nulos se eliminan y los
+    * ausentes no cambian.
+    *
+    * @param id      el identificador de la entidad a modificar
+    * @param patch   el documento JSON Merge Patch con los atributos que cambian
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
+    * @return una respuesta que contiene el DTO modificado y su nuevo ETag.
+    */
+   @Override
+   @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+   public ResponseEntity<D> patch(@PathVariable Long id, @RequestBody JsonNode patch,
+                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      D patchedDto = servicio.patch(id, patch, EntityTags.expectedVersion(ifMatch));
+      return withETag(id, patchedDto);
    }
 
    /**
     * Elimina una entidad por su ID.
     *
-    * @param id el identificador de la entidad a eliminar
+    * @param id      el identificador de la entidad a eliminar
+    * @param ifMatch el ETag que debe tener la entidad, o {@code null} para no comprobarlo
     * @return una respuesta que indica el resultado de la operación.
     */
    @Override
    @DeleteMapping("/{id}")
-   public ResponseEntity<Void> delete(@PathVariable Long id) {
-      boolean deleted = servicio.delete(id);
+   public ResponseEntity<Void> delete(@PathVariable Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+      boolean deleted = servicio.delete(id, EntityTags.expectedVersion(ifMatch));
       return deleted ? new ResponseEntity<>(HttpStatus.NO_CONTENT) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
    }
+
+   /**
+    * Responde con el DTO escrito y el mismo ETag que devolvería {@code GET /{id}}, calculado
+    * después de confirmar la escritura.
+    */
+   private ResponseEntity<D> withETag(Long id, D dto) {
+      return ResponseEntity.ok().eTag(servicio.findTag(id)).body(dto);
+   }
 }
@@ -0,0 +1,140 @@
+package com.example.api.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Envía un archivo local como respuesta sin copiarlo en el heap.
+ * <p>
+ * Si el contenedor lo admite (Tomcat con el conector NIO), el archivo se delega al
+ * contenedor con los atributos de sendfile, que lo envía desde la caché de páginas del
+ * sistema operativo directamente al socket. Si no, se copia con
+ * {@link FileChannel#transferTo}. Admite peticiones condicionales y un único rango
+ * ({@code Range: bytes=...}); las peticiones con varios rangos reciben el archivo completo.
+ * <p>
+ * Solo los archivos con tipo {@code image/*} se muestran en el navegador; el resto se
+ * sirve como descarga ({@code application/octet-stream}, {@code Content-Disposition: attachment}).
+ * Todas las respuestas llevan además {@code Content-Security-Policy: sandbox}, de modo que un
+ * archivo abierto directamente nunca ejecuta scripts con el origen de la API.
+ */
+final class FileDownload {
+
+   static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+   static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+   static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+   static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+   /**
+    * Los archivos servidos tienen identificadores que no se reutilizan: su contenido no cambia.
+    */
+   private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+   private FileDownload() {
+   }
+
+   /**
+    * Escribe el archivo, o la parte pedida, en la respuesta.
+    *
+    * @param file     el archivo
+    * @param request  la petición
+    * @param response la respuesta
+    * @throws IOException si falla la lectura del archivo o la escritura de la respuesta
+    */
+   static void send(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+      long length = Files.size(file);
+      String etag = "\"" + file.getFileName() + "\"";
+      response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+      if (new ServletWebRequest(request, response)
+            .checkNotModified(etag, Files.getLastModifiedTime(file).toMillis())) {
+         return;
+      }
+
+      long start = 0;
+      long end = length - 1;
+      HttpRange range = singleRange(request, etag);
+      if (range != null) {
+         try {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+         } catch (IllegalArgumentException e) {
+            start = length;
+         }
+         if (start >= length || start > end) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+         }
+         response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+         response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+      }
+      long count = end - start + 1;
+      MediaType type = MediaTypeFactory.getMediaType(file.getFileName().toString())
+            .filter(mediaType -> "image".equals(mediaType.getType()))
+            .orElse(null);
+      if (type != null) {
+         response.setContentType(type.toString());
+      } else {
+         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+               .filename(file.getFileName().toString()).build().toString());
+      }
+      response.setHeader("X-Content-Type-Options", "nosniff");
+      response.setHeader("Content-Security-Policy", "sandbox");
+      response.setContentLengthLong(count);
+      if ("HEAD".equals(request.getMethod()) || count == 0) {
+         return;
+      }
+
+      if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+         request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+         request.setAttribute(SENDFILE_START, start);
+         request.setAttribute(SENDFILE_END, end + 1); // Exclusivo
+         return;
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+         for (long position = start, remaining = count; remaining > 0; ) {
+            long written = channel.transferTo(position, remaining, out);
+            position += written;
+            remaining -= written;
+         }
+      }
+   }
+
+   /**
+    * Obtiene el rango pedido, o null si no hay uno solo válido o si {@code If-Range}
+    * no coincide con el ETag actual.
+    */
+   private static HttpRange singleRange(HttpServletRequest request, String etag) {
+      String header = request.getHeader(HttpHeaders.RANGE);
+      if (header == null) {
+         return null;
+      }
+      String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+      if (ifRange != null && !ifRange.equals(etag)) {
+         return null;
+      }
+      try {
+         List<HttpRange> ranges = HttpRange.parseRanges(header);
+         return ranges.size() == 1 ? ranges.get(0) : null;
+      } catch (IllegalArgumentException e) {
+         return null; // Un Range mal formado se ignora
+      }
+   }
+}
@@ -1,15 +1,64 @@
 package com.example.api.controllers;
 
+import com.example.api.dto.BatchItemResult;
 import com.example.api.dto.ImagenDTO;
+import com.example.api.dto.UploadJob;
 import com.example.api.entities.Imagen;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface ImagenController extends BaseController<Imagen, ImagenDTO,Long>{
 
     ResponseEntity<Imagen> subirImagen(MultipartFile file) throws IOException;
 
-    ResponseEntity<Void> borrarImagen(String imagenId) throws IOException;
+    /**
+     * Sube varias imágenes en una sola petición.
+     *
+     * @param files los archivos a subir
+     * @return 201 (CREATED) si se guardaron todas, o 207 (MULTI STATUS) con el resultado
+     *         de cada archivo si alguna falló
+     * @throws IOException si no se pueden guardar los archivos recibidos
+     */
+    ResponseEntity<List<BatchItemResult<ImagenDTO>>> subirImagenes(List<MultipartFile> files) throws IOException;
+
+    /**
+     * Acepta la subida de una imagen y la ejecuta en segundo plano.
+     *
+     * @param file     el archivo a subir
+     * @param imagenId el identificador de la imagen a actualizar, o null para crear una nueva
+     * @return 202 (ACCEPTED) con el estado del trabajo y su URL en la cabecera Location
+     * @throws IOException si no se puede guardar el archivo recibido
+     */
+    ResponseEntity<UploadJob> subirImagenAsync(MultipartFile file, Long imagenId) throws IOException;
+
+    /**
+     * Obtiene el estado de un trabajo de subida.
+     *
+     * @param jobId el identificador del trabajo
+     * @return el estado del trabajo
+     */
+    ResponseEntity<UploadJob> getTrabajo(String jobId);
+
+    /**
+     * Descarga el archivo de una imagen guardada en el almacenamiento local.
+     *
+     * @param imageId  el identificador de la imagen en el almacenamiento
+     * @param request  la petición
+     * @param response la respuesta
+     * @throws IOException si falla la lectura del archivo o la escritura de la respuesta
+     */
+    void descargarArchivo(String imageId, HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    /**
+     * Borra una imagen.
+     *
+     * @param imagenId el identificador de la imagen
+     * @return 204 (NO CONTENT) si se ha borrado
+     */
+    ResponseEntity<Void> borrarImagen(Long imagenId);
 }
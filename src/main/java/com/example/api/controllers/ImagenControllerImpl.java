@@ -1,13 +1,23 @@
 package com.example.api.controllers;
 
+import com.example.api.dto.BatchItemResult;
 import com.example.api.dto.ImagenDTO;
+import com.example.api.dto.UploadJob;
 import com.example.api.entities.Imagen;
 import com.example.api.services.ImagenServiceImpl;
+import com.example.api.utils.ResourceNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
 
 @RestController
 @RequestMapping(path = "api/v1/imagen")
@@ -22,10 +32,85 @@ public class ImagenControllerImpl
         return ResponseEntity.ok(imagen);
     }
 
+    /**
+     * Sube varias imágenes en una sola petición multipart, con un archivo por cada parte
+     * {@code files}. Los archivos se suben a la vez y sus filas se insertan en una sola
+     * transacción; cada archivo recibe su propio resultado.
+     *
+     * @param files los archivos a subir
+     * @return 201 (CREATED) si se guardaron todas, o 207 (MULTI STATUS) con el resultado
+     *         de cada archivo si alguna falló
+     * @throws IOException si no se pueden guardar los archivos recibidos
+     */
+    @Override
+    @PostMapping("/subir/lote")
+    public ResponseEntity<List<BatchItemResult<ImagenDTO>>> subirImagenes(
+            @RequestParam("files") List<MultipartFile> files) throws IOException {
+        List<BatchItemResult<ImagenDTO>> results = servicio.subirImagenes(files);
+        boolean allStored = results.stream().allMatch(r -> r.getStatus() != BatchItemResult.Status.FAILED);
+        return new ResponseEntity<>(results, allStored ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    }
+
+    /**
+     * Variante asíncrona de {@code /subir}, con {@code ?async=true}: guarda el archivo,
+     * responde de inmediato y sube la imagen en segundo plano, sin ocupar el hilo de la
+     * petición durante la subida al almacenamiento. El estado se consulta en la URL indicada
+     * en la cabecera Location.
+     *
+     * @param file     el archivo a subir
+     * @param imagenId el identificador de la imagen a actualizar, o null para crear una nueva
+     * @return 202 (ACCEPTED) con el estado inicial del trabajo
+     * @throws IOException si no se puede guardar el archivo recibido
+     */
+    @Override
+    @PostMapping(value = "/subir", params = "async=true")
+    public ResponseEntity<UploadJob> subirImagenAsync(@RequestParam("file") MultipartFile file,
+                                                      @RequestParam(required = false) Long imagenId) throws IOException {
+        UploadJob job = servicio.subirImagenAsync(file, imagenId);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/imagen/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Obtiene el estado de un trabajo de subida asíncrona.
+     *
+     * @param jobId el identificador del trabajo
+     * @return el estado del trabajo
+     */
+    @Override
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<UploadJob> getTrabajo(@PathVariable String jobId) {
+        UploadJob job = servicio.buscarTrabajo(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Trabajo de subida no encontrado"));
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Descarga el archivo de una imagen guardada en el almacenamiento local, con soporte
+     * de rangos y cabeceras de caché de larga duración. Con Cloudinary las imágenes se
+     * sirven desde su propia URL y este endpoint responde 404.
+     *
+     * @param imageId  el identificador de la imagen en el almacenamiento
+     * @param request  la petición
+     * @param response la respuesta
+     * @throws IOException si falla la lectura del archivo o la escritura de la respuesta
+     */
+    @Override
+    @GetMapping("/archivo/{imageId}")
+    public void descargarArchivo(@PathVariable String imageId,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = servicio.buscarArchivo(imageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Archivo de imagen no encontrado"));
+        FileDownload.send(file, request, response);
+    }
+
     @Override
     @DeleteMapping("/borrar/{imagenId}")
-    public ResponseEntity<Void> borrarImagen(@PathVariable String imagenId) throws IOException {
-        servicio.borrarImagen(new Imagen(imagenId, null, null, null)); // Assuming imageId is the public_id
+    public ResponseEntity<Void> borrarImagen(@PathVariable Long imagenId) {
+        servicio.borrarImagen(imagenId);
         return ResponseEntity.noContent().build();
     }
 }
@@ -2,6 +2,18 @@ package com.example.api.controllers;
 
 import com.example.api.dto.PostDTO;
 import com.example.api.entities.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 
 public interface PostController extends BaseController<Post, PostDTO,Long>{
+
+    /**
+     * Busca posts por texto en su título, descripción y categoría.
+     *
+     * @param q        el texto de búsqueda
+     * @param pageable objeto que contiene información de paginación
+     * @return una respuesta que contiene la página de posts, ordenados por relevancia.
+     */
+    ResponseEntity<Page<PostDTO>> search(String q, Pageable pageable);
 }
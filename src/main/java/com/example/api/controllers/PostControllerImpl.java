@@ -3,7 +3,12 @@ package com.example.api.controllers;
 import com.example.api.dto.PostDTO;
 import com.example.api.entities.Post;
 import com.example.api.services.PostServiceImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -11,4 +16,19 @@ import org.springframework.web.bind.annotation.RestController;
 public class PostControllerImpl
         extends BaseControllerImpl<Post, PostDTO, PostServiceImpl>
         implements PostController {
+
+    /**
+     * Busca posts por texto en el índice de búsqueda, sin recorrer la tabla. El texto admite
+     * frases entre comillas, prefijos ({@code play*}) y exclusiones ({@code -montaña}).
+     *
+     * @param q        el texto de búsqueda
+     * @param pageable objeto que contiene información de paginación; el orden se ignora
+     * @return una respuesta que contiene la página de posts, ordenados por relevancia, o
+     *         400 (BAD REQUEST) si el texto está vacío.
+     */
+    @Override
+    @GetMapping("/search")
+    public ResponseEntity<Page<PostDTO>> search(@RequestParam String q, Pageable pageable) {
+        return ResponseEntity.ok(servicio.search(q, pageable));
+    }
 }
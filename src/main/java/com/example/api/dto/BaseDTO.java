@@ -1,13 +1,16 @@
 package com.example.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 /**
  * BaseDTO es una clase base que representa un Data Transfer Object (DTO)
  * para las entidades en la aplicación. Proporciona los atributos comunes
- * para las entidades, como el identificador y el estado.
+ * para las entidades, como el identificador y el estado. Los atributos nulos,
+ * como los de las asociaciones copiadas solo como referencia, no se serializan.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,4 +27,9 @@ public class BaseDTO {
     * El estado de la entidad, que puede indicar si está activa o inactiva.
     */
    private Boolean estado;
+
+   /**
+    * La versión de la entidad, que cambia con cada actualización.
+    */
+   private Long version;
 }
@@ -0,0 +1,62 @@
+package com.example.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Resultado de uno de los elementos de una creación por lotes.
+ *
+ * @param <D> el tipo del DTO
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult<D> {
+
+   /**
+    * Estado final de un elemento del lote.
+    */
+   public enum Status {
+      /** El elemento se guardó correctamente. */
+      CREATED,
+      /** El elemento no superó la validación y no se guardó. */
+      INVALID,
+      /** El elemento era válido pero su bloque no pudo guardarse. */
+      FAILED
+   }
+
+   /**
+    * La posición del elemento en la lista recibida.
+    */
+   private int index;
+
+   /**
+    * El estado final del elemento.
+    */
+   private Status status;
+
+   /**
+    * El DTO guardado, solo si el estado es {@link Status#CREATED}.
+    */
+   private D dto;
+
+   /**
+    * Los errores de validación o de persistencia del elemento.
+    */
+   private List<String> errors;
+
+   public static <D> BatchItemResult<D> created(int index, D dto) {
+      return new BatchItemResult<>(index, Status.CREATED, dto, null);
+   }
+
+   public static <D> BatchItemResult<D> invalid(int index, List<String> errors) {
+      return new BatchItemResult<>(index, Status.INVALID, null, errors);
+   }
+
+   public static <D> BatchItemResult<D> failed(int index, String error) {
+      return new BatchItemResult<>(index, Status.FAILED, null, List.of(error));
+   }
+}
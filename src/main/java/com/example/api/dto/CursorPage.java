@@ -0,0 +1,38 @@
+package com.example.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Página de resultados de la paginación por clave (keyset).
+ *
+ * @param <D> el tipo de los DTOs de la página
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<D> {
+
+   /**
+    * Los DTOs de la página, en el orden solicitado.
+    */
+   private List<D> content;
+
+   /**
+    * El cursor para pedir la página siguiente, o {@code null} si no hay más resultados.
+    */
+   private String nextCursor;
+
+   /**
+    * Indica si existen más resultados después de esta página.
+    */
+   private boolean hasNext;
+
+   /**
+    * El número total de entidades, solo si se solicitó de forma explícita.
+    */
+   private Long totalElements;
+}
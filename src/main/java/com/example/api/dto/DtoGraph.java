@@ -0,0 +1,64 @@
+package com.example.api.dto;
+
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+
+/**
+ * Recorrido del grafo de un DTO. Lo usan la caché de DTOs, para saber qué entidades
+ * incluye cada DTO almacenado, y los ETag, que dependen de la versión de cada una.
+ */
+public final class DtoGraph {
+
+   private DtoGraph() {
+   }
+
+   /**
+    * Recorre el grafo del DTO, siguiendo las asociaciones y colecciones, y devuelve
+    * los DTOs anidados que tienen identificador. Cada instancia se visita una sola
+    * vez, por lo que los ciclos no son un problema.
+    *
+    * @param dto el DTO raíz, que no se incluye en el resultado
+    * @return los DTOs anidados con identificador, en el orden en que se encuentran
+    */
+   public static List<BaseDTO> nested(Object dto) {
+      List<BaseDTO> found = new ArrayList<>();
+      Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      Deque<Object> pending = new ArrayDeque<>();
+      pending.push(dto);
+      while (!pending.isEmpty()) {
+         Object current = pending.pop();
+         if (!visited.add(current)) {
+            continue;
+         }
+         if (current instanceof Collection<?> items) {
+            items.stream().filter(Objects::nonNull).forEach(pending::push);
+            continue;
+         }
+         if (current != dto && current instanceof BaseDTO nested && nested.getId() != null) {
+            found.add(nested);
+         }
+         for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(current.getClass())) {
+            Class<?> type = property.getPropertyType();
+            if (property.getReadMethod() != null
+                  && (BaseDTO.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type))) {
+               Object value = read(property, current);
+               if (value != null) {
+                  pending.push(value);
+               }
+            }
+         }
+      }
+      return found;
+   }
+
+   private static Object read(PropertyDescriptor property, Object target) {
+      try {
+         return property.getReadMethod().invoke(target);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+         throw new IllegalStateException("No se puede leer " + property.getName(), e);
+      }
+   }
+}
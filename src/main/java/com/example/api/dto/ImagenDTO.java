@@ -1,11 +1,21 @@
 package com.example.api.dto;
 
+import com.example.api.entities.ImagenVariante;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
 
-import java.util.Set;
+import java.util.List;
 
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@Getter
+@Setter
 public class ImagenDTO extends BaseDTO{
     @NotBlank
     @Size(max = 255)
@@ -23,4 +33,10 @@ public class ImagenDTO extends BaseDTO{
     @Size(max = 255)
     private String descripcion;
 
+    /**
+     * Versiones reducidas de la imagen, de menor a mayor ancho. Las genera el servidor
+     * al subir la imagen.
+     */
+    private List<ImagenVariante> variantes;
+
 }
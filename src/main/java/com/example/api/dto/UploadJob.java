@@ -0,0 +1,91 @@
+package com.example.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Estado de un trabajo de subida de imagen asíncrono. Cada cambio de estado produce
+ * una nueva instancia, de modo que las consultas siempre ven un estado coherente.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadJob {
+
+   /**
+    * Estado de un trabajo de subida.
+    */
+   public enum Status {
+      /** El trabajo está en cola, esperando a que haya capacidad. */
+      PENDING,
+      /** La imagen se está subiendo. */
+      RUNNING,
+      /** La imagen se subió y su fila está guardada. */
+      DONE,
+      /** La subida o el guardado fallaron. */
+      FAILED
+   }
+
+   /**
+    * El identificador del trabajo.
+    */
+   private String id;
+
+   /**
+    * El estado del trabajo.
+    */
+   private Status status;
+
+   /**
+    * El identificador de la imagen: la que se actualiza, o la creada al terminar.
+    */
+   private Long imagenId;
+
+   /**
+    * La URL de la imagen subida, solo si el estado es {@link Status#DONE}.
+    */
+   private String imageUrl;
+
+   /**
+    * El motivo del fallo, solo si el estado es {@link Status#FAILED}.
+    */
+   private String error;
+
+   /**
+    * El momento en que se aceptó el trabajo.
+    */
+   private Instant createdAt;
+
+   /**
+    * El momento en que terminó el trabajo, con éxito o con error.
+    */
+   private Instant finishedAt;
+
+   public static UploadJob pending(String id, Long imagenId) {
+      return new UploadJob(id, Status.PENDING, imagenId, null, null, Instant.now(), null);
+   }
+
+   public UploadJob running() {
+      return new UploadJob(id, Status.RUNNING, imagenId, null, null, createdAt, null);
+   }
+
+   public UploadJob done(Long imagenId, String imageUrl) {
+      return new UploadJob(id, Status.DONE, imagenId, imageUrl, null, createdAt, Instant.now());
+   }
+
+   public UploadJob failed(String error) {
+      return new UploadJob(id, Status.FAILED, imagenId, null, error, createdAt, Instant.now());
+   }
+
+   /**
+    * Indica si el trabajo ha terminado, con éxito o con error.
+    *
+    * @return true si el estado es {@link Status#DONE} o {@link Status#FAILED}
+    */
+   public boolean isFinished() {
+      return status == Status.DONE || status == Status.FAILED;
+   }
+}
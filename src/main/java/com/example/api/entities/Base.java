@@ -3,6 +3,7 @@ package com.example.api.entities;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.FilterDef;
 
 import java.io.Serializable;
 
@@ -10,7 +11,16 @@ import java.io.Serializable;
  * La clase Base es una superclase que proporciona atributos comunes para
  * las entidades en la aplicación. Incluye un identificador único y un
  * estado que indica si la entidad está activa o inactiva.
+ * <p>
+ * Las entidades que declaran el filtro {@link #ACTIVE_FILTER} con
+ * {@code @Filter(name = Base.ACTIVE_FILTER)} usan borrado lógico: al eliminarlas
+ * solo se marca su estado como inactivo, las lecturas de {@code BaseRepository}
+ * excluyen las filas inactivas y un proceso periódico las borra después.
+ * <p>
+ * Todas las entidades tienen además una versión para el control optimista de
+ * concurrencia, que los controladores exponen como ETag.
  */
+@FilterDef(name = Base.ACTIVE_FILTER, defaultCondition = "estado = true")
 @MappedSuperclass
 @Getter
 @Setter
@@ -22,17 +32,38 @@ public class Base implements Serializable {
    private static final long serialVersionUID = 1L;
 
    /**
-    * El identificador único de la entidad. Se genera automáticamente
-    * utilizando la estrategia de identidad.
+    * Nombre del filtro de Hibernate que excluye las filas inactivas.
+    */
+   public static final String ACTIVE_FILTER = "activo";
+
+   /**
+    * El identificador único de la entidad. Se genera automáticamente con una
+    * secuencia por entidad ({@code <Entidad>_SEQ}) y el optimizador pooled, que
+    * reserva bloques de identificadores; a diferencia de la estrategia de
+    * identidad, permite agrupar los INSERT en lotes JDBC. En MySQL la secuencia
+    * se emula con una tabla; {@link com.example.api.config.SequenceInitializer} la
+    * adelanta al arrancar por encima del mayor id existente.
     */
    @Id
-   @GeneratedValue(strategy = GenerationType.IDENTITY)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE)
    private Long id;
 
    /**
     * El estado de la entidad, que indica si está activa (true) o
-    * inactiva (false). Este campo es obligatorio.
+    * inactiva (false). Este campo es obligatorio y las entidades nuevas
+    * están activas.
+    */
+   @Column(nullable = false)
+   @Builder.Default
+   private boolean estado = true;
+
+   /**
+    * La versión de la entidad, que Hibernate incrementa en cada actualización y
+    * comprueba al escribirla: una actualización basada en una versión anterior
+    * falla en lugar de sobrescribir los cambios de otra transacción. Es nula
+    * hasta que la entidad se persiste.
     */
+   @Version
    @Column(nullable = false)
-   private boolean estado;
+   private Long version;
 }
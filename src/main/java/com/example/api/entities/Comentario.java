@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
 import org.hibernate.envers.Audited;
 
 @Getter
@@ -14,8 +16,15 @@ import org.hibernate.envers.Audited;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
-@Table(name = "comentarios")
+@Table(name = "comentarios", indexes = @Index(name = "idx_comentarios_estado_id", columnList = "estado, id"))
+@Filter(name = Base.ACTIVE_FILTER)
+@NamedEntityGraph(name = "Comentario.list",
+        attributeNodes = {@NamedAttributeNode("post"), @NamedAttributeNode("usuario")})
+@NamedEntityGraph(name = "Comentario.detail",
+        attributeNodes = {@NamedAttributeNode("post"), @NamedAttributeNode("usuario")})
+@NamedEntityGraph(name = "Comentario.summary")
 @Audited
+@DynamicUpdate
 public class Comentario extends Base{
     @Column(columnDefinition = "text")
     private String texto;
@@ -1,7 +1,9 @@
 package com.example.api.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -9,9 +11,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
+import org.hibernate.type.SqlTypes;
 
-import java.util.Set;
+import java.util.List;
 
 @Getter
 @Setter
@@ -19,8 +27,15 @@ import java.util.Set;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
-@Table(name = "imagenes")
+@Table(name = "imagenes", indexes = {
+        @Index(name = "idx_imagenes_estado_id", columnList = "estado, id"),
+        @Index(name = "idx_imagenes_content_hash", columnList = "content_hash")
+})
+@Filter(name = Base.ACTIVE_FILTER)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "imagen")
 @Audited
+@DynamicUpdate
 public class Imagen extends Base{
     @Column
     private String name;
@@ -34,4 +49,22 @@ public class Imagen extends Base{
     @Column(columnDefinition = "text")
     private String descripcion;
 
+    /**
+     * Hash SHA-256 del contenido subido, en hexadecimal. Una subida con el mismo
+     * contenido que una imagen activa crea su propia fila, pero comparte el archivo
+     * guardado ({@link #imageId}) en lugar de volver a subirlo. Es nulo en las imágenes
+     * creadas sin subir un archivo.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Versiones reducidas de la imagen, de menor a mayor, para que los clientes descarguen
+     * la más pequeña que les sirva. Se guardan como JSON en la propia fila, de modo que
+     * leerlas no añade consultas. Es nulo en las imágenes creadas sin subir un archivo.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column
+    private List<ImagenVariante> variantes;
+
 }
@@ -0,0 +1,13 @@
+package com.example.api.entities;
+
+/**
+ * Versión reducida de una imagen, generada al subirla y guardada junto al original.
+ *
+ * @param nombre  el nombre de la variante, por ejemplo {@code miniatura}
+ * @param ancho   el ancho en píxeles
+ * @param alto    el alto en píxeles
+ * @param url     la URL pública de la variante
+ * @param imageId el identificador de la variante en el almacenamiento
+ */
+public record ImagenVariante(String nombre, int ancho, int alto, String url, String imageId) {
+}
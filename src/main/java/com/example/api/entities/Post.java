@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
 import org.hibernate.envers.Audited;
 
 import java.util.Set;
@@ -16,8 +18,24 @@ import java.util.Set;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = @Index(name = "idx_posts_estado_id", columnList = "estado, id"))
+@Filter(name = Base.ACTIVE_FILTER)
+@NamedEntityGraph(name = "Post.list",
+        attributeNodes = @NamedAttributeNode(value = "usuario", subgraph = "usuario"),
+        subgraphs = @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("fotoPerfil")))
+@NamedEntityGraph(name = "Post.detail",
+        attributeNodes = {
+                @NamedAttributeNode(value = "usuario", subgraph = "usuario"),
+                @NamedAttributeNode(value = "postComentarios", subgraph = "comentario"),
+                @NamedAttributeNode("postImagenes")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("fotoPerfil")),
+                @NamedSubgraph(name = "comentario", attributeNodes = @NamedAttributeNode("usuario"))
+        })
+@NamedEntityGraph(name = "Post.summary")
 @Audited
+@DynamicUpdate
 public class Post extends Base {
     @Column
     private String titulo;
@@ -29,13 +47,15 @@ public class Post extends Base {
     private Integer duracion;
     @Column
     private Double presupuesto;
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_usuario",
             referencedColumnName = "id")
     private Usuario usuario;
     @OneToMany(mappedBy = "post")
+    @Filter(name = Base.ACTIVE_FILTER)
     private Set<Comentario> postComentarios;
     @ManyToMany
+    @Filter(name = Base.ACTIVE_FILTER)
     @JoinTable(
             name = "post_imagen",
             joinColumns = @JoinColumn(name = "post_id"),
@@ -6,6 +6,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
 import org.hibernate.envers.Audited;
 
 @Getter
@@ -14,8 +18,14 @@ import org.hibernate.envers.Audited;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
-@Table(name = "usuarios")
+@Table(name = "usuarios", indexes = @Index(name = "idx_usuarios_estado_id", columnList = "estado, id"))
+@Filter(name = Base.ACTIVE_FILTER)
+@NamedEntityGraph(name = "Usuario.list", attributeNodes = @NamedAttributeNode("fotoPerfil"))
+@NamedEntityGraph(name = "Usuario.detail", attributeNodes = @NamedAttributeNode("fotoPerfil"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuario")
 @Audited
+@DynamicUpdate
 public class Usuario extends Base{
     @Column
     private String nombre;
@@ -26,7 +36,7 @@ public class Usuario extends Base{
     @Column
     private String redSocial;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "id_foto_perfil",
             referencedColumnName = "id")
     private Imagen fotoPerfil;
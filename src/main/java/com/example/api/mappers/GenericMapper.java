@@ -1,13 +1,14 @@
 package com.example.api.mappers;
 
-import org.modelmapper.ModelMapper;
-
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * La clase GenericMapper es un mapeador genérico que facilita la conversión
- * entre entidades y Data Transfer Objects (DTOs) utilizando ModelMapper.
+ * entre entidades y Data Transfer Objects (DTOs). Los planes de copia de cada
+ * par de tipos se compilan una única vez al construir el mapeador, por lo que
+ * las conversiones no realizan reflexión en tiempo de ejecución. Opcionalmente
+ * se puede indicar una {@link MappingPolicy} que acota el grafo copiado hacia el DTO.
  *
  * @param <E> el tipo de la entidad
  * @param <D> el tipo del DTO
@@ -16,7 +17,9 @@ public class GenericMapper<E, D> {
 
    private final Class<E> entityClass;
    private final Class<D> dtoClass;
-   private final ModelMapper modelMapper;
+   private final MappingPlan toDtoPlan;
+   private final MappingPlan toEntityPlan;
+   private final MappingPlan copyPlan;
 
    /**
     * Constructor para inicializar el GenericMapper.
@@ -25,9 +28,42 @@ public class GenericMapper<E, D> {
     * @param dtoClass    la clase del DTO
     */
    public GenericMapper(Class<E> entityClass, Class<D> dtoClass) {
+      this(entityClass, dtoClass, MappingPolicy.UNBOUNDED);
+   }
+
+   /**
+    * Constructor para inicializar el GenericMapper con una política de asociaciones.
+    * La política se aplica a la conversión hacia el DTO; la conversión hacia la
+    * entidad copia siempre el grafo recibido completo.
+    *
+    * @param entityClass la clase de la entidad
+    * @param dtoClass    la clase del DTO
+    * @param policy      la política que acota las asociaciones copiadas al DTO
+    */
+   public GenericMapper(Class<E> entityClass, Class<D> dtoClass, MappingPolicy policy) {
       this.entityClass = entityClass;
       this.dtoClass = dtoClass;
-      this.modelMapper = new ModelMapper();
+      this.toDtoPlan = MappingPlan.of(entityClass, dtoClass, policy);
+      this.toEntityPlan = MappingPlan.of(dtoClass, entityClass);
+      this.copyPlan = MappingPlan.copyOf(dtoClass);
+   }
+
+   /**
+    * Devuelve la clase de la entidad.
+    *
+    * @return la clase de la entidad
+    */
+   public Class<E> getEntityClass() {
+      return entityClass;
+   }
+
+   /**
+    * Devuelve la clase del DTO.
+    *
+    * @return la clase del DTO
+    */
+   public Class<D> getDtoClass() {
+      return dtoClass;
    }
 
    /**
@@ -37,7 +73,7 @@ public class GenericMapper<E, D> {
     * @return el DTO correspondiente
     */
    public D toDTO(E entity) {
-      return modelMapper.map(entity, dtoClass);
+      return dtoClass.cast(toDtoPlan.map(entity, new MappingPlan.Context()));
    }
 
    /**
@@ -47,7 +83,18 @@ public class GenericMapper<E, D> {
     * @return la entidad correspondiente
     */
    public E toEntity(D dto) {
-      return modelMapper.map(dto, entityClass);
+      return entityClass.cast(toEntityPlan.map(dto, new MappingPlan.Context()));
+   }
+
+   /**
+    * Copia un DTO en profundidad, incluidos sus DTOs anidados y sus colecciones, de modo
+    * que modificar la copia no afecta al original.
+    *
+    * @param dto el DTO a copiar
+    * @return la copia del DTO
+    */
+   public D copyDTO(D dto) {
+      return dtoClass.cast(copyPlan.map(dto, new MappingPlan.Context()));
    }
 
    /**
@@ -0,0 +1,406 @@
+package com.example.api.mappers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * La clase MappingPlan representa un plan de copia precompilado entre un tipo
+ * origen y un tipo destino. Los accesores se resuelven una sola vez como
+ * {@link MethodHandle}, de modo que cada conversión posterior se limita a
+ * invocar getters y setters sin reflexión ni búsqueda de propiedades por nombre.
+ * <p>
+ * Las reglas de correspondencia replican las que aplicaba ModelMapper para
+ * las entidades y DTOs de la aplicación: se copian las propiedades con el mismo
+ * nombre que tengan getter en el origen y setter en el destino, los objetos
+ * anidados y las colecciones se convierten con su propio plan, y las referencias
+ * cíclicas se resuelven a la misma instancia destino.
+ * <p>
+ * Cuando se compila con una {@link MappingPolicy} acotada, cada asociación
+ * obtiene su propio plan según su ruta, limitando las propiedades copiadas.
+ */
+final class MappingPlan {
+
+   private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+   private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+   private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+   private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+   /**
+    * Planes ya compilados, indexados por par de tipos (origen, destino).
+    */
+   private static final Map<List<Class<?>>, MappingPlan> PLANS = new ConcurrentHashMap<>();
+
+   /**
+    * Planes de copia en profundidad ya compilados, indexados por tipo.
+    */
+   private static final Map<Class<?>, MappingPlan> COPY_PLANS = new ConcurrentHashMap<>();
+
+   private final Class<?> sourceType;
+   private final Class<?> targetType;
+   private final MethodHandle constructor;
+   private PropertyMapping[] properties;
+
+   private MappingPlan(Class<?> sourceType, Class<?> targetType, MethodHandle constructor) {
+      this.sourceType = sourceType;
+      this.targetType = targetType;
+      this.constructor = constructor;
+   }
+
+   /**
+    * Obtiene el plan para el par de tipos indicado, compilándolo junto con los
+    * planes de todos los tipos anidados alcanzables si aún no existe.
+    *
+    * @param sourceType la clase de origen
+    * @param targetType la clase de destino
+    * @return el plan de copia precompilado
+    */
+   static MappingPlan of(Class<?> sourceType, Class<?> targetType) {
+      MappingPlan plan = PLANS.get(List.of(sourceType, targetType));
+      return plan != null ? plan : compile(sourceType, targetType);
+   }
+
+   /**
+    * Compila un plan que respeta la política de asociaciones indicada. Los
+    * planes acotados dependen de la ruta de cada asociación, por lo que no se
+    * comparten entre pares de tipos.
+    *
+    * @param sourceType la clase de origen
+    * @param targetType la clase de destino
+    * @param policy     la política de profundidad y referencias
+    * @return el plan de copia precompilado
+    */
+   static MappingPlan of(Class<?> sourceType, Class<?> targetType, MappingPolicy policy) {
+      if (policy.isUnbounded()) {
+         return of(sourceType, targetType);
+      }
+      return compileBounded(sourceType, targetType, null, policy, "", 0, Set.of());
+   }
+
+   /**
+    * Obtiene el plan que copia en profundidad un objeto en otro de su mismo tipo. A
+    * diferencia de {@link #of(Class, Class)}, que comparte los valores asignables, los
+    * objetos anidados y las colecciones se copian también, de modo que la copia no comparte
+    * ninguna instancia modificable con el original. Los registros y los tipos de
+    * {@code java.*} se consideran inmutables y se comparten.
+    *
+    * @param type la clase del objeto
+    * @return el plan de copia precompilado
+    */
+   static MappingPlan copyOf(Class<?> type) {
+      MappingPlan plan = COPY_PLANS.get(type);
+      return plan != null ? plan : compileCopy(type);
+   }
+
+   private static synchronized MappingPlan compileCopy(Class<?> type) {
+      Map<Class<?>, MappingPlan> compiled = new HashMap<>();
+      MappingPlan plan = compileCopy(type, compiled);
+      COPY_PLANS.putAll(compiled);
+      return plan;
+   }
+
+   private static MappingPlan compileCopy(Class<?> type, Map<Class<?>, MappingPlan> compiled) {
+      MappingPlan plan = COPY_PLANS.get(type);
+      if (plan == null) {
+         plan = compiled.get(type);
+      }
+      if (plan != null) {
+         return plan;
+      }
+      plan = new MappingPlan(type, type, findConstructor(type));
+      compiled.put(type, plan);
+      plan.properties = compileProperties(type, type, null, true,
+            (property, source, target) -> isMutableBean(source) ? compileCopy(source, compiled) : null);
+      return plan;
+   }
+
+   private static synchronized MappingPlan compile(Class<?> sourceType, Class<?> targetType) {
+      Map<List<Class<?>>, MappingPlan> compiled = new HashMap<>();
+      MappingPlan plan = compile(sourceType, targetType, compiled);
+      // Se publican al final para que ningún hilo vea un plan a medio construir
+      PLANS.putAll(compiled);
+      return plan;
+   }
+
+   private static MappingPlan compile(Class<?> sourceType, Class<?> targetType,
+                                      Map<List<Class<?>>, MappingPlan> compiled) {
+      List<Class<?>> key = List.of(sourceType, targetType);
+      MappingPlan plan = PLANS.get(key);
+      if (plan == null) {
+         plan = compiled.get(key);
+      }
+      if (plan != null) {
+         return plan;
+      }
+      plan = new MappingPlan(sourceType, targetType, findConstructor(targetType));
+      compiled.put(key, plan);
+      plan.properties = compileProperties(sourceType, targetType, null, false,
+            (property, source, target) -> compileBean(source, target, compiled));
+      return plan;
+   }
+
+   private static MappingPlan compileBean(Class<?> sourceType, Class<?> targetType,
+                                          Map<List<Class<?>>, MappingPlan> compiled) {
+      if (!isBean(sourceType) || !isBean(targetType)) {
+         return null;
+      }
+      return compile(sourceType, targetType, compiled);
+   }
+
+   private static MappingPlan compileBounded(Class<?> sourceType, Class<?> targetType, Set<String> included,
+                                             MappingPolicy policy, String path, int depth,
+                                             Set<List<Class<?>>> ancestors) {
+      MappingPlan plan = new MappingPlan(sourceType, targetType, findConstructor(targetType));
+      Set<List<Class<?>>> route = new HashSet<>(ancestors);
+      route.add(List.of(sourceType, targetType));
+      plan.properties = compileProperties(sourceType, targetType, included, false, (property, source, target) -> {
+         if (!isBean(source) || !isBean(target)) {
+            return null;
+         }
+         String childPath = path.isEmpty() ? property : path + "." + property;
+         MappingPolicy.Rule rule = policy.ruleFor(childPath);
+         if (rule.association() == MappingPolicy.Association.FULL
+               && (depth >= policy.maxDepth() || route.contains(List.of(source, target)))) {
+            rule = MappingPolicy.Rule.REFERENCE;
+         }
+         if (rule.association() == MappingPolicy.Association.OMIT) {
+            return null;
+         }
+         return compileBounded(source, target, rule.properties(), policy, childPath, depth + 1, route);
+      });
+      return plan;
+   }
+
+   /**
+    * Resuelve el plan de una asociación a partir del nombre de la propiedad y
+    * de los tipos origen y destino del objeto asociado.
+    */
+   private interface NestedPlans {
+      MappingPlan resolve(String property, Class<?> sourceType, Class<?> targetType);
+   }
+
+   private static PropertyMapping[] compileProperties(Class<?> sourceType, Class<?> targetType,
+                                                      Set<String> included, boolean deep,
+                                                      NestedPlans nestedPlans) {
+      Map<String, Method> getters = readableProperties(sourceType);
+      List<PropertyMapping> mappings = new ArrayList<>();
+      for (Map.Entry<String, Method> entry : writableProperties(targetType).entrySet()) {
+         Method getter = getters.get(entry.getKey());
+         if (getter != null && (included == null || included.contains(entry.getKey()))) {
+            PropertyMapping mapping = compileProperty(entry.getKey(), getter, entry.getValue(), deep, nestedPlans);
+            if (mapping != null) {
+               mappings.add(mapping);
+            }
+         }
+      }
+      return mappings.toArray(new PropertyMapping[0]);
+   }
+
+   private static PropertyMapping compileProperty(String name, Method getter, Method setter, boolean deep,
+                                                  NestedPlans nestedPlans) {
+      Class<?> sourceType = getter.getReturnType();
+      Class<?> targetType = setter.getParameterTypes()[0];
+      MethodHandle get = unreflect(getter).asType(GETTER_TYPE);
+      MethodHandle set = unreflect(setter).asType(SETTER_TYPE);
+      boolean primitiveTarget = targetType.isPrimitive();
+
+      if (Collection.class.isAssignableFrom(sourceType) && Collection.class.isAssignableFrom(targetType)) {
+         Class<?> sourceElement = elementType(getter.getGenericReturnType());
+         Class<?> targetElement = elementType(setter.getGenericParameterTypes()[0]);
+         if (sourceElement == null || targetElement == null) {
+            return null;
+         }
+         if (targetElement.isAssignableFrom(sourceElement) && !(deep && isMutableBean(sourceElement))) {
+            return new PropertyMapping(get, set, false, null, collectionFactory(targetType));
+         }
+         MappingPlan elementPlan = nestedPlans.resolve(name, sourceElement, targetElement);
+         return elementPlan != null
+               ? new PropertyMapping(get, set, false, elementPlan, collectionFactory(targetType)) : null;
+      }
+      if (wrap(targetType).isAssignableFrom(wrap(sourceType)) && !(deep && isMutableBean(sourceType))) {
+         return new PropertyMapping(get, set, primitiveTarget, null, null);
+      }
+      MappingPlan nested = nestedPlans.resolve(name, sourceType, targetType);
+      return nested != null ? new PropertyMapping(get, set, false, nested, null) : null;
+   }
+
+   /**
+    * Convierte el objeto origen aplicando este plan.
+    *
+    * @param source  el objeto a convertir, puede ser {@code null}
+    * @param context las instancias ya convertidas durante la operación actual
+    * @return la nueva instancia destino, o {@code null} si el origen es {@code null}
+    */
+   Object map(Object source, Context context) {
+      if (source == null) {
+         return null;
+      }
+      Map<Object, Object> converted = context.convertedBy(this);
+      Object target = converted.get(source);
+      if (target != null) {
+         return target;
+      }
+      try {
+         target = (Object) constructor.invokeExact();
+      } catch (Throwable e) {
+         throw new IllegalStateException("No se pudo instanciar " + targetType.getName(), e);
+      }
+      converted.put(source, target);
+      for (PropertyMapping property : properties) {
+         property.copy(source, target, context);
+      }
+      return target;
+   }
+
+   /**
+    * Instancias ya convertidas durante una operación de mapeo, separadas por
+    * plan para que un mismo objeto pueda aparecer completo en una ruta y como
+    * resumen en otra.
+    */
+   static final class Context {
+
+      private final Map<MappingPlan, Map<Object, Object>> converted = new IdentityHashMap<>();
+
+      private Map<Object, Object> convertedBy(MappingPlan plan) {
+         return converted.computeIfAbsent(plan, p -> new IdentityHashMap<>());
+      }
+   }
+
+   /**
+    * Correspondencia compilada entre un getter del origen y un setter del destino.
+    */
+   private record PropertyMapping(MethodHandle getter, MethodHandle setter, boolean primitiveTarget,
+                                  MappingPlan nested, Supplier<Collection<Object>> collectionFactory) {
+
+      void copy(Object source, Object target, Context context) {
+         try {
+            Object value = (Object) getter.invokeExact(source);
+            if (value == null) {
+               if (!primitiveTarget) {
+                  setter.invokeExact(target, (Object) null);
+               }
+               return;
+            }
+            if (collectionFactory != null) {
+               Collection<Object> values = collectionFactory.get();
+               for (Object element : (Collection<?>) value) {
+                  values.add(nested != null ? nested.map(element, context) : element);
+               }
+               value = values;
+            } else if (nested != null) {
+               value = nested.map(value, context);
+            }
+            setter.invokeExact(target, value);
+         } catch (RuntimeException e) {
+            throw e;
+         } catch (Throwable e) {
+            throw new IllegalStateException("Error al copiar una propiedad", e);
+         }
+      }
+   }
+
+   private static Map<String, Method> readableProperties(Class<?> type) {
+      Map<String, Method> getters = new HashMap<>();
+      for (Method method : type.getMethods()) {
+         if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+               || method.getDeclaringClass() == Object.class) {
+            continue;
+         }
+         String name = method.getName();
+         if (name.startsWith("get") && name.length() > 3 && method.getReturnType() != void.class) {
+            getters.put(decapitalize(name.substring(3)), method);
+         } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            getters.put(decapitalize(name.substring(2)), method);
+         }
+      }
+      return getters;
+   }
+
+   private static Map<String, Method> writableProperties(Class<?> type) {
+      Map<String, Method> setters = new TreeMap<>();
+      for (Method method : type.getMethods()) {
+         String name = method.getName();
+         if (!Modifier.isStatic(method.getModifiers()) && method.getParameterCount() == 1
+               && name.startsWith("set") && name.length() > 3) {
+            setters.put(decapitalize(name.substring(3)), method);
+         }
+      }
+      return setters;
+   }
+
+   private static MethodHandle findConstructor(Class<?> type) {
+      try {
+         return LOOKUP.findConstructor(type, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+         throw new IllegalStateException(type.getName() + " necesita un constructor público sin argumentos", e);
+      }
+   }
+
+   private static MethodHandle unreflect(Method method) {
+      try {
+         return LOOKUP.unreflect(method);
+      } catch (IllegalAccessException e) {
+         throw new IllegalStateException("No se puede acceder a " + method, e);
+      }
+   }
+
+   private static Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+      if (type.isAssignableFrom(HashSet.class)) {
+         return HashSet::new;
+      }
+      if (type.isAssignableFrom(ArrayList.class)) {
+         return ArrayList::new;
+      }
+      if (type.isAssignableFrom(TreeSet.class)) {
+         return TreeSet::new;
+      }
+      MethodHandle constructor = findConstructor(type);
+      return () -> {
+         try {
+            @SuppressWarnings("unchecked")
+            Collection<Object> collection = (Collection<Object>) (Object) constructor.invokeExact();
+            return collection;
+         } catch (Throwable e) {
+            throw new IllegalStateException("No se pudo instanciar " + type.getName(), e);
+         }
+      };
+   }
+
+   private static Class<?> elementType(Type type) {
+      if (type instanceof ParameterizedType parameterized
+            && parameterized.getActualTypeArguments()[0] instanceof Class<?> element) {
+         return element;
+      }
+      return null;
+   }
+
+   private static boolean isBean(Class<?> type) {
+      return !type.isPrimitive() && !type.isArray() && !type.isEnum() && !type.isInterface()
+            && !Modifier.isAbstract(type.getModifiers())
+            && !type.getName().startsWith("java.");
+   }
+
+   private static boolean isMutableBean(Class<?> type) {
+      return isBean(type) && !type.isRecord();
+   }
+
+   private static Class<?> wrap(Class<?> type) {
+      return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+   }
+
+   private static String decapitalize(String name) {
+      return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+   }
+
+   @Override
+   public String toString() {
+      return "MappingPlan[" + sourceType.getSimpleName() + " -> " + targetType.getSimpleName() + "]";
+   }
+}
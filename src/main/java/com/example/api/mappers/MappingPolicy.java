@@ -0,0 +1,152 @@
+package com.example.api.mappers;
+
+import java.util.*;
+
+/**
+ * La clase MappingPolicy define hasta dónde se recorre el grafo de objetos al
+ * convertir una entidad en su DTO. Cada asociación se identifica por su ruta de
+ * propiedades desde la raíz (por ejemplo {@code "postComentarios.usuario"}) y
+ * puede copiarse completa, como resumen de algunas propiedades, como simple
+ * referencia con su identificador, u omitirse. Los resúmenes y las referencias
+ * incluyen siempre la versión, de la que dependen los ETag de los DTOs.
+ * <p>
+ * Las asociaciones que superan la profundidad máxima, o que vuelven a un par de
+ * tipos ya presente en la ruta actual, se reducen automáticamente a referencias,
+ * de modo que el tamaño del DTO resultante queda acotado.
+ */
+public final class MappingPolicy {
+
+   /**
+    * Forma en que se copia una asociación.
+    */
+   public enum Association {
+      /** Se copian todas las propiedades del objeto asociado. */
+      FULL,
+      /** Se copian el identificador, la versión y las propiedades indicadas. */
+      SUMMARY,
+      /** Se copian únicamente el identificador y la versión. */
+      REFERENCE,
+      /** La asociación queda a {@code null}. */
+      OMIT
+   }
+
+   /**
+    * Política sin límites: recorre el grafo completo, resolviendo los ciclos a
+    * la misma instancia. Es el comportamiento por defecto de {@link GenericMapper}.
+    */
+   public static final MappingPolicy UNBOUNDED = new MappingPolicy(Integer.MAX_VALUE, Map.of());
+
+   private static final String ID = "id";
+   private static final String VERSION = "version";
+
+   private final int maxDepth;
+   private final Map<String, Rule> rules;
+
+   private MappingPolicy(int maxDepth, Map<String, Rule> rules) {
+      this.maxDepth = maxDepth;
+      this.rules = rules;
+   }
+
+   /**
+    * Crea un constructor de políticas.
+    *
+    * @return un nuevo {@link Builder}
+    */
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   boolean isUnbounded() {
+      return this == UNBOUNDED;
+   }
+
+   int maxDepth() {
+      return maxDepth;
+   }
+
+   Rule ruleFor(String path) {
+      return rules.getOrDefault(path, Rule.FULL);
+   }
+
+   /**
+    * Regla asociada a una ruta: la forma de copia y, para los resúmenes,
+    * las propiedades incluidas.
+    */
+   record Rule(Association association, Set<String> properties) {
+
+      static final Rule FULL = new Rule(Association.FULL, null);
+      static final Rule REFERENCE = new Rule(Association.REFERENCE, Set.of(ID, VERSION));
+   }
+
+   /**
+    * Constructor de {@link MappingPolicy}.
+    */
+   public static final class Builder {
+
+      private int maxDepth = Integer.MAX_VALUE;
+      private final Map<String, Rule> rules = new HashMap<>();
+
+      private Builder() {
+      }
+
+      /**
+       * Establece el número máximo de niveles de asociaciones que se copian completos.
+       *
+       * @param maxDepth la profundidad máxima, a partir de 1
+       * @return este constructor
+       */
+      public Builder maxDepth(int maxDepth) {
+         if (maxDepth < 1) {
+            throw new IllegalArgumentException("La profundidad máxima debe ser al menos 1");
+         }
+         this.maxDepth = maxDepth;
+         return this;
+      }
+
+      /**
+       * Copia la asociación indicada solo con su identificador y su versión.
+       *
+       * @param path la ruta de la asociación desde la raíz
+       * @return este constructor
+       */
+      public Builder reference(String path) {
+         rules.put(path, Rule.REFERENCE);
+         return this;
+      }
+
+      /**
+       * Copia la asociación indicada con su identificador, su versión y las propiedades dadas.
+       *
+       * @param path       la ruta de la asociación desde la raíz
+       * @param properties las propiedades que forman el resumen
+       * @return este constructor
+       */
+      public Builder summary(String path, String... properties) {
+         Set<String> included = new HashSet<>(Arrays.asList(properties));
+         included.add(ID);
+         included.add(VERSION);
+         rules.put(path, new Rule(Association.SUMMARY, Set.copyOf(included)));
+         return this;
+      }
+
+      /**
+       * Deja la asociación indicada sin copiar.
+       *
+       * @param path la ruta de la asociación desde la raíz
+       * @return este constructor
+       */
+      public Builder omit(String path) {
+         rules.put(path, new Rule(Association.OMIT, Set.of()));
+         return this;
+      }
+
+      /**
+       * Construye la política.
+       *
+       * @return la política configurada
+       */
+      public MappingPolicy build() {
+         return new MappingPolicy(maxDepth, Map.copyOf(rules));
+      }
+   }
+}
@@ -3,19 +3,165 @@ package com.example.api.repositories;
 import com.example.api.entities.Base;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * La interfaz BaseRepository proporciona métodos de acceso a datos para las
  * entidades que extienden de la clase Base. Extiende de JpaRepository para
- * aprovechar las operaciones CRUD y la paginación.
+ * aprovechar las operaciones CRUD y la paginación, y añade variantes que
+ * aplican un {@link FetchPlan} para cargar las asociaciones en un número
+ * acotado de consultas.
  *
  * @param <E> el tipo de la entidad que extiende de Base
  * @param <ID> el tipo del identificador de la entidad
  */
 @NoRepositoryBean
 public interface BaseRepository<E extends Base, ID extends Serializable> extends JpaRepository<E, ID> {
+
+   /**
+    * Obtiene todas las entidades aplicando el plan de carga indicado.
+    *
+    * @param plan el plan de carga
+    * @return la lista de entidades
+    */
+   List<E> findAll(FetchPlan plan);
+
+   /**
+    * Obtiene una página de entidades aplicando el plan de carga indicado. El
+    * identificador se añade como último criterio de orden, para que el orden sea estable.
+    *
+    * @param plan     el plan de carga
+    * @param pageable la información de paginación y ordenamiento
+    * @return la página de entidades
+    */
+   Page<E> findAll(FetchPlan plan, Pageable pageable);
+
+   /**
+    * Busca una entidad por su identificador aplicando el plan de carga indicado.
+    *
+    * @param id   el identificador de la entidad
+    * @param plan el plan de carga
+    * @return la entidad, si existe
+    */
+   Optional<E> findById(ID id, FetchPlan plan);
+
+   /**
+    * Obtiene las entidades con los identificadores indicados aplicando el plan de carga
+    * indicado, en una sola consulta. Los identificadores que no existen se ignoran y el
+    * orden del resultado no está definido.
+    *
+    * @param ids  los identificadores de las entidades
+    * @param plan el plan de carga
+    * @return la lista de entidades
+    */
+   List<E> findAllById(Collection<ID> ids, FetchPlan plan);
+
+   /**
+    * Obtiene las entidades que siguen a una posición dada según el orden
+    * {@code (sortKey, id)}, sin OFFSET ni recuento: la consulta salta directamente
+    * a la posición usando la comparación de la clave, por lo que su coste no
+    * depende de la profundidad de la página. Las filas con la clave nula se excluyen.
+    *
+    * @param sortKey   el atributo por el que se ordena
+    * @param direction la dirección del orden
+    * @param lastKey   el valor de la clave de la última fila vista, o {@code null} para la primera página
+    * @param lastId    el identificador de la última fila vista, o {@code null} para la primera página
+    * @param limit     el número máximo de entidades a devolver
+    * @param plan      el plan de carga
+    * @return las entidades siguientes, en orden
+    */
+   List<E> findAfter(String sortKey, Sort.Direction direction, Object lastKey, ID lastId, int limit, FetchPlan plan);
+
+   /**
+    * Obtiene el tipo Java de un atributo que puede usarse como clave de orden
+    * en {@link #findAfter}.
+    *
+    * @param sortKey el nombre del atributo
+    * @return el tipo del atributo
+    * @throws IllegalArgumentException si el atributo no existe o no es un valor simple comparable
+    */
+   Class<?> sortKeyType(String sortKey);
+
+   /**
+    * Recorre todas las entidades, ordenadas por identificador, sin cargarlas
+    * todas en memoria: las filas se leen del cursor de la base de datos en
+    * bloques del tamaño indicado. El stream debe consumirse y cerrarse dentro
+    * de una transacción.
+    *
+    * @param plan      el plan de carga
+    * @param fetchSize el número de filas que se leen en cada viaje a la base de datos
+    * @return un stream perezoso de entidades
+    */
+   Stream<E> streamAll(FetchPlan plan, int fetchSize);
+
+   /**
+    * Indica si la entidad usa borrado lógico, es decir, si declara el filtro
+    * {@link com.example.api.entities.Base#ACTIVE_FILTER}.
+    *
+    * @return true si la entidad usa borrado lógico
+    */
+   boolean isSoftDelete();
+
+   /**
+    * Marca como inactiva una entidad activa con una única sentencia UPDATE,
+    * sin cargarla previamente, e incrementa su versión. Marca también como inactivas
+    * las entidades de sus colecciones {@code @OneToMany(mappedBy = ...)} con borrado
+    * lógico, como los comentarios de un post.
+    *
+    * @param id      el identificador de la entidad
+    * @param version la versión que debe tener la entidad, o null para no comprobarla
+    * @return true si la entidad existía, estaba activa y tenía la versión indicada
+    */
+   boolean deactivateById(ID id, Long version);
+
+   /**
+    * Obtiene el identificador y la versión de las entidades de una página, sin
+    * cargar las entidades: es la consulta con la que se calcula el ETag de la página.
+    * Como en {@link #findAll(FetchPlan, Pageable)}, el identificador es siempre el último
+    * criterio de orden.
+    * Cada fila incluye también el identificador y la versión de las entidades a las que
+    * apunta la entidad, y de las que apuntan estas, ya que los DTOs de listado las incluyen.
+    *
+    * @param pageable la información de paginación y ordenamiento
+    * @return una fila {@code [id, version, ...]} por cada entidad de la página, en orden
+    */
+   List<Object[]> findVersions(Pageable pageable);
+
+   /**
+    * Obtiene, como {@link #findVersions(Pageable)}, el identificador y la versión de las
+    * entidades activas indicadas y de las entidades a las que apuntan, sin cargarlas.
+    *
+    * @param ids los identificadores de las entidades
+    * @return una fila {@code [id, version, ...]} por cada entidad activa, sin un orden definido
+    */
+   List<Object[]> findVersions(Collection<ID> ids);
+
+   /**
+    * Obtiene el identificador y la versión de los elementos activos de las colecciones de
+    * las entidades indicadas, y de las entidades a las que apuntan estos, sin cargar nada:
+    * junto con {@link #findVersions}, cubre todas las entidades que incluyen los DTOs de la página.
+    *
+    * @param ids los identificadores de las entidades de la página
+    * @return una fila {@code [id, idElemento, versionElemento, ...]} por cada elemento,
+    *         colección a colección y en orden
+    */
+   List<Object[]> findCollectionVersions(Collection<ID> ids);
+
+   /**
+    * Obtiene los identificadores de las entidades inactivas que siguen al
+    * identificador indicado, en orden ascendente.
+    *
+    * @param afterId el último identificador procesado, o null para empezar desde el principio
+    * @param limit   el número máximo de identificadores
+    * @return los identificadores de las entidades inactivas
+    */
+   List<ID> findInactiveIds(ID afterId, int limit);
 }
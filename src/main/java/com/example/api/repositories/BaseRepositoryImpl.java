@@ -0,0 +1,413 @@
+package com.example.api.repositories;
+
+import com.example.api.entities.Base;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.Session;
+import org.hibernate.annotations.Filter;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Implementación base de {@link BaseRepository} utilizada por todos los
+ * repositorios de la aplicación. Resuelve los {@link FetchPlan} contra los
+ * grafos de entidad declarados en cada entidad y los aplica como
+ * {@code jakarta.persistence.loadgraph}.
+ * <p>
+ * Para las entidades con borrado lógico, todas las lecturas activan el filtro
+ * {@link Base#ACTIVE_FILTER} en la sesión actual, de modo que las filas inactivas
+ * quedan excluidas de las consultas y de las colecciones filtradas; las búsquedas
+ * por identificador, que Hibernate no filtra, comprueban el estado de la entidad.
+ * <p>
+ * Para las entidades {@link Cacheable}, que están en la caché de segundo nivel, las
+ * consultas de listado, paginación y recuento se guardan además en la caché de
+ * consultas; el recorrido en streaming nunca se cachea.
+ *
+ * @param <E>  el tipo de la entidad que extiende de Base
+ * @param <ID> el tipo del identificador de la entidad
+ */
+public class BaseRepositoryImpl<E extends Base, ID extends Serializable>
+      extends SimpleJpaRepository<E, ID> implements BaseRepository<E, ID> {
+
+   private static final String LOAD_GRAPH = EntityGraphType.LOAD.getKey();
+   private static final String ID = "id";
+   private static final String VERSION = "version";
+   private static final String ESTADO = "estado";
+   /**
+    * Profundidad de las asociaciones que incluyen los DTOs de listado, como el usuario
+    * del post de un comentario, y que por tanto deben entrar en el ETag de la página.
+    */
+   private static final int EMBEDDED_DEPTH = 2;
+
+   private final EntityManager entityManager;
+   private final Map<FetchPlan, String> graphNames = new EnumMap<>(FetchPlan.class);
+   private final boolean softDelete;
+   private final boolean cacheable;
+   private final String entityName;
+
+   /**
+    * Constructor utilizado por Spring Data para cada repositorio.
+    *
+    * @param entityInformation la metainformación de la entidad gestionada
+    * @param entityManager     el EntityManager para realizar las consultas
+    */
+   public BaseRepositoryImpl(JpaEntityInformation<E, ?> entityInformation, EntityManager entityManager) {
+      super(entityInformation, entityManager);
+      this.entityManager = entityManager;
+      this.entityName = entityInformation.getEntityName();
+      this.softDelete = isSoftDelete(entityInformation.getJavaType());
+      Cacheable cacheableAnnotation = entityInformation.getJavaType().getAnnotation(Cacheable.class);
+      this.cacheable = cacheableAnnotation != null && cacheableAnnotation.value();
+      List<String> declared = entityManager.getEntityGraphs(entityInformation.getJavaType()).stream()
+            .map(EntityGraph::getName)
+            .toList();
+      for (FetchPlan plan : FetchPlan.values()) {
+         String name = plan.graphName(entityInformation.getEntityName());
+         if (declared.contains(name)) {
+            graphNames.put(plan, name);
+         }
+      }
+   }
+
+   @Override
+   public Optional<E> findById(ID id) {
+      enableActiveFilter();
+      return active(super.findById(id));
+   }
+
+   @Override
+   public boolean existsById(ID id) {
+      enableActiveFilter();
+      return super.existsById(id);
+   }
+
+   @Override
+   public long count() {
+      enableActiveFilter();
+      return super.count();
+   }
+
+   @Override
+   protected <S extends E> TypedQuery<S> getQuery(Specification<S> spec, Class<S> domainClass, Sort sort) {
+      enableActiveFilter();
+      return cached(super.getQuery(spec, domainClass, sort));
+   }
+
+   @Override
+   protected <S extends E> TypedQuery<Long> getCountQuery(Specification<S> spec, Class<S> domainClass) {
+      enableActiveFilter();
+      return cached(super.getCountQuery(spec, domainClass));
+   }
+
+   @Override
+   public List<E> findAll(FetchPlan plan) {
+      return withPlan(getQuery(null, Sort.unsorted()), plan).getResultList();
+   }
+
+   @Override
+   public Page<E> findAll(FetchPlan plan, Pageable pageable) {
+      TypedQuery<E> query = getQuery(null, getDomainClass(), withIdTiebreaker(pageable.getSort()));
+      return readPage(withPlan(query, plan), getDomainClass(), pageable, null);
+   }
+
+   @Override
+   public Optional<E> findById(ID id, FetchPlan plan) {
+      String graph = graphNames.get(plan);
+      if (graph == null) {
+         return findById(id);
+      }
+      enableActiveFilter();
+      return active(Optional.ofNullable(entityManager.find(getDomainClass(), id,
+            Map.of(LOAD_GRAPH, entityManager.getEntityGraph(graph)))));
+   }
+
+   @Override
+   public List<E> findAllById(Collection<ID> ids, FetchPlan plan) {
+      if (ids.isEmpty()) {
+         return List.of();
+      }
+      Specification<E> byId = (root, query, cb) -> root.get(ID).in(ids);
+      return withPlan(getQuery(byId, Sort.unsorted()), plan).getResultList();
+   }
+
+   @Override
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public List<E> findAfter(String sortKey, Sort.Direction direction, Object lastKey, ID lastId,
+                            int limit, FetchPlan plan) {
+      sortKeyType(sortKey);
+      boolean ascending = direction.isAscending();
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaQuery<E> query = cb.createQuery(getDomainClass());
+      Root<E> root = query.from(getDomainClass());
+      Path<Comparable> id = root.get(ID);
+      Path<Comparable> key = root.get(sortKey);
+      boolean byId = ID.equals(sortKey);
+
+      List<Predicate> where = new ArrayList<>();
+      if (!byId) {
+         where.add(cb.isNotNull(key));
+      }
+      if (lastId != null) {
+         Predicate afterId = ascending ? cb.greaterThan(id, (Comparable) lastId) : cb.lessThan(id, (Comparable) lastId);
+         if (byId) {
+            where.add(afterId);
+         } else {
+            Comparable last = (Comparable) lastKey;
+            Predicate afterKey = ascending ? cb.greaterThan(key, last) : cb.lessThan(key, last);
+            where.add(cb.or(afterKey, cb.and(cb.equal(key, last), afterId)));
+         }
+      }
+      query.where(where.toArray(new Predicate[0]));
+      List<Order> order = new ArrayList<>();
+      if (!byId) {
+         order.add(ascending ? cb.asc(key) : cb.desc(key));
+      }
+      order.add(ascending ? cb.asc(id) : cb.desc(id));
+      query.orderBy(order);
+
+      enableActiveFilter();
+      return withPlan(cached(entityManager.createQuery(query)), plan)
+            .setMaxResults(limit)
+            .getResultList();
+   }
+
+   @Override
+   public Class<?> sortKeyType(String sortKey) {
+      SingularAttribute<? super E, ?> attribute;
+      try {
+         attribute = entityManager.getMetamodel().entity(getDomainClass()).getSingularAttribute(sortKey);
+      } catch (IllegalArgumentException e) {
+         throw new IllegalArgumentException("Atributo de orden desconocido: " + sortKey, e);
+      }
+      Class<?> type = attribute.getJavaType();
+      if (type.isPrimitive()) {
+         type = MethodType.methodType(type).wrap().returnType();
+      }
+      if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+            || !Comparable.class.isAssignableFrom(type)) {
+         throw new IllegalArgumentException("No se puede ordenar por el atributo: " + sortKey);
+      }
+      return type;
+   }
+
+   @Override
+   public Stream<E> streamAll(FetchPlan plan, int fetchSize) {
+      TypedQuery<E> query = withPlan(getQuery(null, Sort.by("id")), plan);
+      query.setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize);
+      query.setHint(AvailableHints.HINT_READ_ONLY, true);
+      query.setHint(AvailableHints.HINT_CACHEABLE, false);
+      return query.getResultStream();
+   }
+
+   @Override
+   public boolean isSoftDelete() {
+      return softDelete;
+   }
+
+   @Override
+   @Transactional
+   public boolean deactivateById(ID id, Long version) {
+      String versionCheck = version != null ? " and e.version = :version" : "";
+      Query query = entityManager.createQuery("update versioned " + entityName + " e set e.estado = false"
+            + " where e.id = :id and e.estado = true" + versionCheck);
+      if (version != null) {
+         query.setParameter(VERSION, version);
+      }
+      if (query.setParameter(ID, id).executeUpdate() == 0) {
+         return false;
+      }
+      deactivateDependents(getDomainClass(), List.of(id));
+      return true;
+   }
+
+   /**
+    * Marca como inactivas, recursivamente, las entidades activas que dependen de las indicadas:
+    * las de las colecciones {@code @OneToMany(mappedBy = ...)} con borrado lógico, que sin su
+    * entidad padre dejarían de tener sentido, igual que haría un borrado físico en cascada.
+    */
+   private void deactivateDependents(Class<?> type, Collection<?> ids) {
+      for (Attribute<?, ?> collection : associations(type, true)) {
+         Class<?> elementType = ((PluralAttribute<?, ?, ?>) collection).getElementType().getJavaType();
+         OneToMany oneToMany = collection.getJavaMember() instanceof Field field
+               ? field.getAnnotation(OneToMany.class) : null;
+         if (oneToMany == null || oneToMany.mappedBy().isEmpty() || !isSoftDelete(elementType)) {
+            continue;
+         }
+         String dependent = entityManager.getMetamodel().entity(elementType).getName();
+         List<?> dependentIds = entityManager.createQuery("select d.id from " + dependent + " d"
+                     + " where d." + oneToMany.mappedBy() + ".id in :ids and d.estado = true")
+               .setParameter("ids", ids)
+               .getResultList();
+         if (!dependentIds.isEmpty()) {
+            entityManager.createQuery("update versioned " + dependent + " d set d.estado = false where d.id in :ids")
+                  .setParameter("ids", dependentIds)
+                  .executeUpdate();
+            deactivateDependents(elementType, dependentIds);
+         }
+      }
+   }
+
+   @Override
+   public List<Object[]> findVersions(Pageable pageable) {
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+      Root<E> root = selectVersions(query);
+      query.orderBy(QueryUtils.toOrders(withIdTiebreaker(pageable.getSort()), root, cb));
+      enableActiveFilter();
+      TypedQuery<Object[]> typed = cached(entityManager.createQuery(query));
+      if (pageable.isPaged()) {
+         typed.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+      }
+      return typed.getResultList();
+   }
+
+   @Override
+   public List<Object[]> findVersions(Collection<ID> ids) {
+      if (ids.isEmpty()) {
+         return new ArrayList<>();
+      }
+      CriteriaQuery<Object[]> query = entityManager.getCriteriaBuilder().createQuery(Object[].class);
+      Root<E> root = selectVersions(query);
+      query.where(root.get(ID).in(ids));
+      enableActiveFilter();
+      return cached(entityManager.createQuery(query)).getResultList();
+   }
+
+   /**
+    * Añade el identificador como último criterio de orden, de modo que las filas con el
+    * mismo valor de orden salen siempre en el mismo orden: las páginas no se solapan y la
+    * consulta de versiones devuelve las mismas filas que la de la página.
+    */
+   private static Sort withIdTiebreaker(Sort sort) {
+      return sort.getOrderFor(ID) != null ? sort : sort.and(Sort.by(ID));
+   }
+
+   private Root<E> selectVersions(CriteriaQuery<Object[]> query) {
+      Root<E> root = query.from(getDomainClass());
+      List<Selection<?>> columns = new ArrayList<>(List.of(root.get(ID), root.get(VERSION)));
+      selectReferencedVersions(root, getDomainClass(), EMBEDDED_DEPTH, columns);
+      query.multiselect(columns);
+      return root;
+   }
+
+   @Override
+   public List<Object[]> findCollectionVersions(Collection<ID> ids) {
+      List<Object[]> rows = new ArrayList<>();
+      if (ids.isEmpty()) {
+         return rows;
+      }
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      for (Attribute<?, ?> collection : associations(getDomainClass(), true)) {
+         Class<?> elementType = ((PluralAttribute<?, ?, ?>) collection).getElementType().getJavaType();
+         CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+         Root<E> root = query.from(getDomainClass());
+         Join<E, ?> element = root.join(collection.getName());
+         List<Selection<?>> columns = new ArrayList<>(List.of(root.get(ID), element.get(ID), element.get(VERSION)));
+         selectReferencedVersions(element, elementType, EMBEDDED_DEPTH - 1, columns);
+         Predicate inPage = root.get(ID).in(ids);
+         query.multiselect(columns)
+               .where(isSoftDelete(elementType) ? cb.and(inPage, cb.isTrue(element.get(ESTADO))) : inPage)
+               .orderBy(cb.asc(root.get(ID)), cb.asc(element.get(ID)));
+         rows.addAll(entityManager.createQuery(query).getResultList());
+      }
+      return rows;
+   }
+
+   /**
+    * Añade a la consulta el identificador y la versión de las entidades a las que apunta
+    * la entidad indicada, unidas con LEFT JOIN para no descartar ni repetir filas, y
+    * recursivamente los de las entidades a las que apuntan estas hasta la profundidad indicada.
+    */
+   private void selectReferencedVersions(From<?, ?> from, Class<?> type, int depth, List<Selection<?>> columns) {
+      if (depth == 0) {
+         return;
+      }
+      for (Attribute<?, ?> reference : associations(type, false)) {
+         Join<?, ?> join = from.join(reference.getName(), JoinType.LEFT);
+         columns.add(join.get(ID));
+         columns.add(join.get(VERSION));
+         selectReferencedVersions(join, reference.getJavaType(), depth - 1, columns);
+      }
+   }
+
+   /**
+    * Obtiene las asociaciones de una entidad, simples o colecciones, ordenadas por nombre
+    * para que las columnas de las consultas de versiones sigan siempre el mismo orden.
+    */
+   private List<Attribute<?, ?>> associations(Class<?> type, boolean collections) {
+      return entityManager.getMetamodel().entity(type).getAttributes().stream()
+            .filter(attribute -> attribute.isAssociation() && attribute.isCollection() == collections)
+            .<Attribute<?, ?>>map(attribute -> attribute)
+            .sorted(Comparator.comparing(Attribute::getName))
+            .toList();
+   }
+
+   private static boolean isSoftDelete(Class<?> type) {
+      return Arrays.stream(type.getAnnotationsByType(Filter.class))
+            .anyMatch(filter -> filter.name().equals(Base.ACTIVE_FILTER));
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public List<ID> findInactiveIds(ID afterId, int limit) {
+      entityManager.unwrap(Session.class).disableFilter(Base.ACTIVE_FILTER);
+      String after = afterId != null ? " and e.id > :afterId" : "";
+      Query query = entityManager.createQuery("select e.id from " + entityName + " e"
+            + " where e.estado = false" + after + " order by e.id");
+      if (afterId != null) {
+         query.setParameter("afterId", afterId);
+      }
+      return query.setMaxResults(limit).getResultList();
+   }
+
+   private void enableActiveFilter() {
+      if (softDelete) {
+         entityManager.unwrap(Session.class).enableFilter(Base.ACTIVE_FILTER);
+      }
+   }
+
+   private <T> TypedQuery<T> cached(TypedQuery<T> query) {
+      return cacheable ? query.setHint(AvailableHints.HINT_CACHEABLE, true) : query;
+   }
+
+   private Optional<E> active(Optional<E> entity) {
+      return softDelete ? entity.filter(Base::isEstado) : entity;
+   }
+
+   private TypedQuery<E> withPlan(TypedQuery<E> query, FetchPlan plan) {
+      String graph = graphNames.get(plan);
+      if (graph != null) {
+         query.setHint(LOAD_GRAPH, entityManager.getEntityGraph(graph));
+      }
+      return query;
+   }
+}
@@ -0,0 +1,43 @@
+package com.example.api.repositories;
+
+/**
+ * Planes de carga disponibles para las consultas de {@link BaseRepository}.
+ * Cada plan corresponde a un {@link jakarta.persistence.NamedEntityGraph}
+ * declarado en la entidad con el nombre {@code <Entidad>.<sufijo>}, por ejemplo
+ * {@code Post.list}. Si la entidad no declara el grafo, la consulta se ejecuta
+ * con las estrategias de carga definidas en su mapeo.
+ */
+public enum FetchPlan {
+
+   /**
+    * Listados y páginas: solo asociaciones a uno, que pueden unirse sin
+    * afectar a la paginación. Las colecciones se cargan por lotes.
+    */
+   LIST("list"),
+
+   /**
+    * Detalle de una única entidad, incluidas sus colecciones.
+    */
+   DETAIL("detail"),
+
+   /**
+    * Resumen: solo los atributos propios de la entidad.
+    */
+   SUMMARY("summary");
+
+   private final String suffix;
+
+   FetchPlan(String suffix) {
+      this.suffix = suffix;
+   }
+
+   /**
+    * Obtiene el nombre del grafo de entidad para la entidad indicada.
+    *
+    * @param entityName el nombre de la entidad JPA
+    * @return el nombre del grafo, por ejemplo {@code Post.list}
+    */
+   public String graphName(String entityName) {
+      return entityName + "." + suffix;
+   }
+}
@@ -1,8 +1,58 @@
 package com.example.api.repositories;
 
 import com.example.api.entities.Imagen;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ImagenRepository extends BaseRepository<Imagen,Long>{
+
+    /**
+     * Busca las imágenes activas con alguno de los hashes de contenido, cuyos archivos
+     * puede compartir una subida con el mismo contenido.
+     *
+     * @param contentHashes los hashes SHA-256 del contenido, en hexadecimal
+     * @return las imágenes activas con esos contenidos, por orden de identificador
+     */
+    @Query("select i from Imagen i where i.contentHash in ?1 and i.estado = true order by i.id")
+    List<Imagen> findActiveByContentHashIn(Collection<String> contentHashes);
+
+    /**
+     * Igual que {@link #findActiveByContentHashIn}, pero bloquea las filas encontradas
+     * ({@code SELECT ... FOR UPDATE}) hasta el final de la transacción en curso. Mientras
+     * tanto no se pueden borrar ni cambiar de archivo, así que una fila que comparte sus
+     * archivos y se inserta en la misma transacción se confirma antes de que nadie cuente
+     * las que los usan para decidir si borrarlos.
+     *
+     * @param contentHashes los hashes SHA-256 del contenido, en hexadecimal
+     * @return las imágenes activas con esos contenidos, por orden de identificador
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Imagen i where i.contentHash in ?1 and i.estado = true order by i.id")
+    List<Imagen> lockActiveByContentHashIn(Collection<String> contentHashes);
+
+    /**
+     * Cuenta las filas, incluidas las inactivas, que usan un archivo guardado: el archivo
+     * solo se puede borrar cuando ya no lo usa ninguna.
+     *
+     * @param imageId el identificador del archivo en el almacenamiento
+     * @return el número de filas que lo usan
+     */
+    @Query(value = "select count(*) from imagenes where image_id = ?1", nativeQuery = true)
+    long countByImageId(String imageId);
+
+    /**
+     * Busca imágenes por identificador, incluidas las inactivas, que el filtro de borrado
+     * lógico excluye del resto de búsquedas.
+     *
+     * @param ids los identificadores de las imágenes
+     * @return las imágenes con esos identificadores
+     */
+    @Query(value = "select * from imagenes where id in (?1)", nativeQuery = true)
+    List<Imagen> findAllIncludingInactive(Collection<Long> ids);
 }
@@ -1,12 +1,18 @@
 package com.example.api.services;
 
+import com.example.api.dto.BatchItemResult;
+import com.example.api.dto.CursorPage;
 import com.example.api.entities.Base;
+import com.example.api.repositories.FetchPlan;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * La interfaz BaseService define las operaciones básicas para el manejo de
@@ -27,6 +33,25 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     */
    List<D> findAll() throws Exception;
 
+   /**
+    * Obtiene una lista de todos los DTOs cargando las entidades con el plan indicado.
+    *
+    * @param plan el plan de carga de las asociaciones
+    * @return una lista de DTOs
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   List<D> findAll(FetchPlan plan) throws Exception;
+
+   /**
+    * Recorre todas las entidades sin mantenerlas en memoria, entregando cada una
+    * convertida en DTO al consumidor a medida que se lee de la base de datos.
+    *
+    * @param plan     el plan de carga de las asociaciones
+    * @param consumer el consumidor que recibe cada DTO
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   void streamAll(FetchPlan plan, Consumer<D> consumer) throws Exception;
+
    /**
     * Obtiene una página de DTOs.
     *
@@ -36,6 +61,52 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     */
    Page<D> findAll(Pageable pageable) throws Exception;
 
+   /**
+    * Obtiene una página de DTOs cargando las entidades con el plan indicado.
+    *
+    * @param pageable objeto que contiene información de paginación
+    * @param plan     el plan de carga de las asociaciones
+    * @return una página de DTOs
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   Page<D> findAll(Pageable pageable, FetchPlan plan) throws Exception;
+
+   /**
+    * Calcula el ETag de una página de DTOs a partir del identificador y la versión de
+    * sus entidades, sin cargarlas ni convertirlas en DTOs.
+    *
+    * @param pageable objeto que contiene información de paginación
+    * @return el ETag de la página
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   String findPageTag(Pageable pageable) throws Exception;
+
+   /**
+    * Calcula el mismo ETag que {@link #findPageTag(Pageable)} para una página ya cargada,
+    * reutilizando sus identificadores y su total en lugar de volver a recorrerla.
+    *
+    * @param pageable objeto que contiene información de paginación
+    * @param page     la página de DTOs cargada con esa paginación
+    * @return el ETag de la página
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   String findPageTag(Pageable pageable, Page<D> page) throws Exception;
+
+   /**
+    * Obtiene una página de DTOs mediante paginación por clave: en lugar de un
+    * desplazamiento, cada página continúa a partir del cursor devuelto por la anterior.
+    *
+    * @param cursor    el cursor de la página anterior, o {@code null} para la primera página
+    * @param sortKey   el atributo por el que se ordena; se ignora si hay cursor
+    * @param direction la dirección del orden; se ignora si hay cursor
+    * @param size      el número máximo de DTOs de la página
+    * @param withTotal si debe calcularse además el número total de entidades
+    * @return la página de DTOs con el cursor de la página siguiente
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   CursorPage<D> findAfter(String cursor, String sortKey, Sort.Direction direction, int size, boolean withTotal)
+         throws Exception;
+
    /**
     * Obtiene un DTO por su identificador.
     *
@@ -45,6 +116,26 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     */
    D findById(ID id) throws Exception;
 
+   /**
+    * Obtiene un DTO por su identificador cargando la entidad con el plan indicado.
+    *
+    * @param id   el identificador del DTO
+    * @param plan el plan de carga de las asociaciones
+    * @return el DTO correspondiente
+    * @throws Exception si ocurre un error al obtener el dato
+    */
+   D findById(ID id, FetchPlan plan) throws Exception;
+
+   /**
+    * Calcula el ETag de un DTO a partir del identificador y la versión de su entidad y
+    * de las entidades que incluye, sin cargarlas ni convertirlas en DTO.
+    *
+    * @param id el identificador del DTO
+    * @return el ETag del DTO
+    * @throws Exception si ocurre un error al obtener los datos
+    */
+   String findTag(ID id) throws Exception;
+
    /**
     * Guarda un nuevo DTO.
     *
@@ -54,6 +145,17 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     */
    D save(D dto) throws Exception;
 
+   /**
+    * Guarda una lista de nuevos DTOs en lotes. Cada elemento se valida por separado
+    * y obtiene su propio resultado, de modo que los elementos no válidos no impiden
+    * guardar el resto.
+    *
+    * @param dtos los DTOs a guardar
+    * @return el resultado de cada elemento, en el mismo orden que la lista recibida
+    * @throws Exception si ocurre un error al guardar los datos
+    */
+   List<BatchItemResult<D>> saveAll(List<D> dtos) throws Exception;
+
    /**
     * Actualiza un DTO existente.
     *
@@ -64,6 +166,38 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     */
    D update(ID id, D dto) throws Exception;
 
+   /**
+    * Actualiza un DTO existente si su entidad tiene la versión esperada.
+    *
+    * @param id              el identificador del DTO a actualizar
+    * @param dto             el DTO con los nuevos datos
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return el DTO actualizado
+    * @throws Exception si ocurre un error al actualizar el dato
+    */
+   D update(ID id, D dto, Long expectedVersion) throws Exception;
+
+   /**
+    * Modifica parcialmente un DTO existente con un documento JSON Merge Patch.
+    *
+    * @param id    el identificador del DTO a modificar
+    * @param patch el documento JSON Merge Patch con los atributos que cambian
+    * @return el DTO modificado
+    * @throws Exception si ocurre un error al modificar el dato
+    */
+   D patch(ID id, JsonNode patch) throws Exception;
+
+   /**
+    * Modifica parcialmente un DTO existente si su entidad tiene la versión esperada.
+    *
+    * @param id              el identificador del DTO a modificar
+    * @param patch           el documento JSON Merge Patch con los atributos que cambian
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return el DTO modificado
+    * @throws Exception si ocurre un error al modificar el dato
+    */
+   D patch(ID id, JsonNode patch, Long expectedVersion) throws Exception;
+
    /**
     * Elimina un DTO por su identificador.
     *
@@ -72,4 +206,14 @@ public interface BaseService<E extends Base, D, ID extends Serializable> {
     * @throws Exception si ocurre un error al eliminar el dato
     */
    boolean delete(ID id) throws Exception;
+
+   /**
+    * Elimina un DTO por su identificador si su entidad tiene la versión esperada.
+    *
+    * @param id              el identificador del DTO a eliminar
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return true si se eliminó correctamente, false en caso contrario
+    * @throws Exception si ocurre un error al eliminar el dato
+    */
+   boolean delete(ID id, Long expectedVersion) throws Exception;
 }
@@ -1,22 +1,59 @@
 package com.example.api.services;
 
+import com.example.api.dto.BaseDTO;
+import com.example.api.dto.BatchItemResult;
+import com.example.api.dto.CursorPage;
 import com.example.api.entities.Base;
 import com.example.api.mappers.GenericMapper;
 import com.example.api.repositories.BaseRepository;
+import com.example.api.repositories.FetchPlan;
+import com.example.api.utils.DomainException;
+import com.example.api.utils.EntityTags;
+import com.example.api.utils.KeysetCursor;
 import com.example.api.utils.OperationFailedException;
+import com.example.api.utils.PreconditionFailedException;
 import com.example.api.utils.ResourceNotFoundException;
+import com.example.api.utils.ValidationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementación abstracta del servicio base que proporciona operaciones
  * CRUD genéricas para entidades que extienden de la clase Base.
+ * <p>
+ * Cada operación publica en {@link ServiceMetrics} su duración, el tiempo pasado en el
+ * repositorio y en la conversión a DTOs y, en las lecturas, el número de entidades devueltas,
+ * etiquetados con el nombre de la entidad y de la operación.
  *
  * @param <E>  el tipo de la entidad que extiende de Base
  * @param <D>  el tipo del Data Transfer Object (DTO)
@@ -24,10 +61,47 @@ import java.util.List;
  */
 public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable> implements BaseService<E, D, ID> {
 
+   private static final Logger logger = LoggerFactory.getLogger(BaseServiceImpl.class);
+
+   /**
+    * Número de filas que se leen del cursor en cada viaje a la base de datos y
+    * que se mantienen como máximo en el contexto de persistencia al recorrer una tabla.
+    */
+   protected static final int STREAM_FETCH_SIZE = 500;
+
+   /**
+    * Número de entidades que se insertan en cada bloque de {@link #saveAll(List)}.
+    * Coincide con {@code hibernate.jdbc.batch_size} para que cada bloque se envíe
+    * como un único lote JDBC por tabla.
+    */
+   protected static final int BATCH_SIZE = 50;
+
+   /**
+    * Número máximo de elementos aceptados en una creación por lotes.
+    */
+   protected static final int MAX_BATCH_ITEMS = 1000;
+
+   private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+
    protected final BaseRepository<E, ID> baseRepository;
    protected final GenericMapper<E, D> mapper;
    private final EntityManager entityManager;
 
+   @Autowired
+   private Validator validator;
+
+   @Autowired
+   private PlatformTransactionManager transactionManager;
+
+   @Autowired
+   private ObjectMapper objectMapper;
+
+   @Autowired
+   private DtoCache dtoCache;
+
+   private ServiceMetrics metrics;
+   private String entityName;
+
    /**
     * Constructor que inicializa el repositorio base, el mapeador y el EntityManager.
     *
@@ -44,7 +118,20 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    }
 
    /**
-    * Recupera todas las entidades de la base de datos y las convierte en una lista de DTOs.
+    * Asigna las métricas del servicio y registra la entidad de su DTO.
+    *
+    * @param metrics las métricas de los servicios
+    */
+   @Autowired
+   void setMetrics(ServiceMetrics metrics) {
+      this.metrics = metrics;
+      this.entityName = mapper.getEntityClass().getSimpleName();
+      metrics.register(mapper.getDtoClass(), mapper.getEntityClass());
+   }
+
+   /**
+    * Recupera todas las entidades de la base de datos con el plan {@link FetchPlan#LIST}
+    * y las convierte en una lista de DTOs.
     *
     * @return una lista de objetos DTO que representan todas las entidades en la base de datos
     * @throws OperationFailedException si ocurre un error al obtener la lista de entidades
@@ -52,17 +139,67 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    @Override
    @Transactional(readOnly = true)
    public List<D> findAll() {
-      try {
-         List<E> entities = baseRepository.findAll();
-         return mapper.toDTOList(entities);
+      return findAll(FetchPlan.LIST);
+   }
+
+
+   /**
+    * Recupera todas las entidades de la base de datos con el plan de carga indicado
+    * y las convierte en una lista de DTOs.
+    *
+    * @param plan el plan de carga de las asociaciones
+    * @return una lista de objetos DTO que representan todas las entidades en la base de datos
+    * @throws OperationFailedException si ocurre un error al obtener la lista de entidades
+    */
+   @Override
+   @Transactional(readOnly = true)
+   public List<D> findAll(FetchPlan plan) {
+      return metrics.record(entityName, "findAll", op -> {
+         try {
+            List<E> entities = op.repository(() -> baseRepository.findAll(plan));
+            return op.results(op.mapping(() -> mapper.toDTOList(entities)), entities.size());
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al obtener la lista de entidades", e);
+         }
+      });
+   }
+
+
+   /**
+    * Recorre todas las entidades de la base de datos con un cursor, convirtiendo cada
+    * una en DTO y entregándola al consumidor. El contexto de persistencia se vacía
+    * cada {@link #STREAM_FETCH_SIZE} filas, de modo que la memoria utilizada no
+    * depende del tamaño de la tabla.
+    *
+    * @param plan     el plan de carga de las asociaciones
+    * @param consumer el consumidor que recibe cada DTO
+    * @throws OperationFailedException si ocurre un error al recorrer las entidades
+    */
+   @Override
+   @Transactional(readOnly = true)
+   public void streamAll(FetchPlan plan, Consumer<D> consumer) {
+      try (Stream<E> entities = baseRepository.streamAll(plan, STREAM_FETCH_SIZE)) {
+         int pending = 0;
+         for (E entity : (Iterable<E>) entities::iterator) {
+            consumer.accept(mapper.toDTO(entity));
+            if (++pending == STREAM_FETCH_SIZE) {
+               entityManager.clear();
+               pending = 0;
+            }
+         }
+      } catch (DomainException e) {
+         throw e;
       } catch (Exception e) {
-         throw new OperationFailedException("Error al obtener la lista de entidades");
+         throw new OperationFailedException("Error al recorrer la lista de entidades", e);
       }
    }
 
 
    /**
-    * Recupera una página de entidades de la base de datos y las convierte en una página de DTOs.
+    * Recupera una página de entidades de la base de datos con el plan {@link FetchPlan#LIST}
+    * y las convierte en una página de DTOs.
     *
     * @param pageable la información de paginación y ordenamiento
     * @return una página de objetos DTO que representan las entidades en la base de datos
@@ -71,17 +208,204 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    @Override
    @Transactional(readOnly = true)
    public Page<D> findAll(Pageable pageable) {
+      return findAll(pageable, FetchPlan.LIST);
+   }
+
+
+   /**
+    * Recupera una página de entidades de la base de datos con el plan de carga indicado
+    * y las convierte en una página de DTOs.
+    *
+    * @param pageable la información de paginación y ordenamiento
+    * @param plan     el plan de carga de las asociaciones
+    * @return una página de objetos DTO que representan las entidades en la base de datos
+    * @throws ValidationException      si el orden indicado no es válido
+    * @throws OperationFailedException si ocurre un error al obtener la lista de entidades
+    */
+   @Override
+   @Transactional(readOnly = true)
+   public Page<D> findAll(Pageable pageable, FetchPlan plan) {
+      return metrics.record(entityName, "findPage", op -> {
+         try {
+            Page<E> entitiesPage = op.repository(() -> baseRepository.findAll(plan, pageable));
+            return op.results(op.mapping(() -> entitiesPage.map(mapper::toDTO)), entitiesPage.getNumberOfElements());
+         } catch (PropertyReferenceException | InvalidDataAccessApiUsageException e) {
+            throw new ValidationException(e.getMessage());
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al obtener la lista de entidades", e);
+         }
+      });
+   }
+
+
+   /**
+    * Calcula el ETag de una página a partir del total de entidades y del identificador
+    * y la versión de las entidades de la página y de las que incluyen sus DTOs, como el
+    * autor o los comentarios de un post, obtenidos con proyecciones que no cargan las
+    * entidades. El recuento se omite en una primera página incompleta, cuyo total es su
+    * propio tamaño.
+    *
+    * @param pageable la información de paginación y ordenamiento
+    * @return el ETag de la página
+    * @throws ValidationException      si el orden indicado no es válido
+    * @throws OperationFailedException si ocurre un error al consultar las versiones
+    */
+   @Override
+   @Transactional(readOnly = true)
+   @SuppressWarnings("unchecked")
+   public String findPageTag(Pageable pageable) {
+      try {
+         List<Object[]> versions = baseRepository.findVersions(pageable);
+         // Como en Spring Data, el recuento solo es necesario si la página está llena
+         long total = pageable.isUnpaged() || (pageable.getOffset() == 0 && versions.size() < pageable.getPageSize())
+               ? versions.size() : baseRepository.count();
+         List<ID> ids = versions.stream().map(row -> (ID) row[0]).toList();
+         return EntityTags.ofPage(pageable.toString(), total, versions, baseRepository.findCollectionVersions(ids));
+      } catch (IllegalArgumentException | InvalidDataAccessApiUsageException | PropertyReferenceException e) {
+         throw new ValidationException(e.getMessage());
+      } catch (DomainException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new OperationFailedException("Error al obtener la lista de entidades", e);
+      }
+   }
+
+   /**
+    * Calcula el ETag de una página ya cargada. Los identificadores y el total salen de la
+    * propia página, así que solo se consultan las versiones de sus entidades, por clave
+    * primaria, y las de sus colecciones; el resultado coincide con el de
+    * {@link #findPageTag(Pageable)} mientras la página no cambie.
+    *
+    * @param pageable la información de paginación y ordenamiento
+    * @param page     la página de DTOs cargada con esa paginación
+    * @return el ETag de la página
+    * @throws OperationFailedException si ocurre un error al consultar las versiones
+    */
+   @Override
+   @Transactional(readOnly = true)
+   @SuppressWarnings("unchecked")
+   public String findPageTag(Pageable pageable, Page<D> page) {
       try {
-         Page<E> entitiesPage = baseRepository.findAll(pageable);
-         return entitiesPage.map(mapper::toDTO);
+         List<ID> ids = page.getContent().stream().map(dto -> (ID) ((BaseDTO) dto).getId()).toList();
+         Map<Object, Object[]> byId = baseRepository.findVersions(ids).stream()
+               .collect(Collectors.toMap(row -> row[0], row -> row));
+         List<Object[]> versions = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+         return EntityTags.ofPage(pageable.toString(), page.getTotalElements(), versions,
+               baseRepository.findCollectionVersions(ids));
+      } catch (DomainException e) {
+         throw e;
       } catch (Exception e) {
-         throw new OperationFailedException("Error al obtener la lista de entidades");
+         throw new OperationFailedException("Error al obtener la lista de entidades", e);
       }
    }
 
 
    /**
-    * Recupera una entidad de la base de datos por su identificador y la convierte en un DTO.
+    * Calcula el ETag del DTO de detalle de una entidad. Si la entidad es cacheable, el
+    * ETag se obtiene del DTO almacenado en la {@link DtoCache}, que no cuesta ninguna
+    * consulta; si no, con las mismas proyecciones que el de una página: la versión de la
+    * entidad, la de las entidades a las que apunta y la de los elementos de sus
+    * colecciones. Así, una petición condicional se resuelve sin cargar el grafo de detalle.
+    *
+    * @param id el identificador de la entidad
+    * @return el ETag del DTO
+    * @throws ResourceNotFoundException si la entidad con el ID proporcionado no existe
+    * @throws OperationFailedException  si ocurre un error al consultar las versiones
+    */
+   @Override
+   public String findTag(ID id) {
+      if (isCacheable()) {
+         return EntityTags.of((BaseDTO) findById(id, FetchPlan.DETAIL));
+      }
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      transaction.setReadOnly(true);
+      return metrics.record(entityName, "findTag", op -> {
+         try {
+            return transaction.execute(status -> {
+               List<Object[]> versions = op.repository(() -> baseRepository.findVersions(List.of(id)));
+               if (versions.isEmpty()) {
+                  throw new ResourceNotFoundException("Entidad no encontrada");
+               }
+               return EntityTags.ofEntity(versions.get(0),
+                     op.repository(() -> baseRepository.findCollectionVersions(List.of(id))));
+            });
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al obtener la entidad", e);
+         }
+      });
+   }
+
+
+   /**
+    * Recupera una página de entidades mediante paginación por clave y la convierte en
+    * una página de DTOs. Se lee una fila más de las pedidas para saber si hay página
+    * siguiente sin necesidad de un COUNT, que solo se ejecuta si se pide el total.
+    *
+    * @param cursor    el cursor de la página anterior, o {@code null} para la primera página
+    * @param sortKey   el atributo por el que se ordena; se ignora si hay cursor
+    * @param direction la dirección del orden; se ignora si hay cursor
+    * @param size      el número máximo de DTOs de la página
+    * @param withTotal si debe calcularse además el número total de entidades
+    * @return la página de DTOs con el cursor de la página siguiente
+    * @throws ValidationException      si el cursor o el atributo de orden no son válidos
+    * @throws OperationFailedException si ocurre un error al obtener la lista de entidades
+    */
+   @Override
+   @Transactional(readOnly = true)
+   @SuppressWarnings("unchecked")
+   public CursorPage<D> findAfter(String cursor, String sortKey, Sort.Direction direction, int size,
+                                  boolean withTotal) {
+      KeysetCursor position = cursor != null ? KeysetCursor.decode(cursor) : null;
+      String key = position != null ? position.sortKey() : sortKey;
+      Sort.Direction order = position != null ? position.direction() : direction;
+      Object lastKey = null;
+      ID lastId = null;
+      try {
+         Class<?> keyType = baseRepository.sortKeyType(key);
+         if (position != null) {
+            lastKey = CONVERSION.convert(position.lastKey(), keyType);
+            lastId = (ID) CONVERSION.convert(position.lastId(), baseRepository.sortKeyType("id"));
+         }
+      } catch (IllegalArgumentException | InvalidDataAccessApiUsageException | ConversionException e) {
+         throw new ValidationException(e.getMessage());
+      }
+      Object fromKey = lastKey;
+      ID fromId = lastId;
+      return metrics.record(entityName, "findAfter", op -> {
+         try {
+            List<E> entities = op.repository(
+                  () -> baseRepository.findAfter(key, order, fromKey, fromId, size + 1, FetchPlan.LIST));
+            boolean hasNext = entities.size() > size;
+            if (hasNext) {
+               entities = entities.subList(0, size);
+            }
+            String nextCursor = null;
+            if (hasNext) {
+               E last = entities.get(entities.size() - 1);
+               Object lastValue = PropertyAccessorFactory.forBeanPropertyAccess(last).getPropertyValue(key);
+               nextCursor = new KeysetCursor(key, order, CONVERSION.convert(lastValue, String.class),
+                     String.valueOf(last.getId())).encode();
+            }
+            Long total = withTotal ? op.repository(baseRepository::count) : null;
+            List<E> pageEntities = entities;
+            List<D> dtos = op.mapping(() -> mapper.toDTOList(pageEntities));
+            return op.results(new CursorPage<>(dtos, nextCursor, hasNext, total), dtos.size());
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al obtener la lista de entidades", e);
+         }
+      });
+   }
+
+
+   /**
+    * Recupera una entidad de la base de datos por su identificador con el plan
+    * {@link FetchPlan#DETAIL} y la convierte en un DTO.
     *
     * @param id el identificador de la entidad a recuperar
     * @return el objeto DTO que representa la entidad, o lanza una excepción si no se encuentra
@@ -89,18 +413,98 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
     * @throws OperationFailedException  si ocurre un error al buscar la entidad
     */
    @Override
-   @Transactional(readOnly = true)
    public D findById(ID id) {
+      return findById(id, FetchPlan.DETAIL);
+   }
+
+   /**
+    * Indica si las búsquedas por identificador con el plan {@link FetchPlan#DETAIL}
+    * guardan los DTOs en la {@link DtoCache}. Compensa activarlo en las entidades cuyo
+    * detalle se lee mucho más de lo que se modifica, ya que cada acierto evita la
+    * transacción, las consultas y el mapeo.
+    * Las escrituras invalidan la caché en cualquier caso, ya que otros DTOs almacenados
+    * pueden incluir esta entidad.
+    *
+    * @return true si los DTOs de esta entidad se guardan en la caché
+    */
+   protected boolean isCacheable() {
+      return false;
+   }
+
+
+   /**
+    * Recupera una entidad de la base de datos por su identificador con el plan de carga
+    * indicado y la convierte en un DTO. Con el plan de detalle, si la entidad es
+    * cacheable, el DTO se sirve desde la {@link DtoCache}; la transacción de lectura
+    * solo se abre cuando hay que consultar la base de datos. Cada llamada recibe una copia
+    * del DTO almacenado, que puede modificar sin alterar la caché.
+    *
+    * @param id   el identificador de la entidad a recuperar
+    * @param plan el plan de carga de las asociaciones
+    * @return el objeto DTO que representa la entidad, o lanza una excepción si no se encuentra
+    * @throws ResourceNotFoundException si la entidad no se encuentra en la base de datos
+    * @throws OperationFailedException  si ocurre un error al buscar la entidad
+    */
+   @Override
+   public D findById(ID id, FetchPlan plan) {
+      return metrics.record(entityName, "findById", op -> {
+         if (plan == FetchPlan.DETAIL && isCacheable()) {
+            D cached = dtoCache.get(mapper.getDtoClass(), id, () -> load(op, id, plan));
+            return op.mapping(() -> mapper.copyDTO(cached));
+         }
+         return load(op, id, plan);
+      });
+   }
+
+   private D load(ServiceMetrics.Operation op, ID id, FetchPlan plan) {
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      transaction.setReadOnly(true);
       try {
-         E entity = baseRepository.findById(id)
-               .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada"));
-         return mapper.toDTO(entity);
+         return transaction.execute(status -> {
+            E entity = op.repository(() -> baseRepository.findById(id, plan))
+                  .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada"));
+            return op.mapping(() -> mapper.toDTO(entity));
+         });
+      } catch (DomainException e) {
+         throw e;
       } catch (Exception e) {
-         throw new OperationFailedException("Error al buscar la entidad");
+         throw new OperationFailedException("Error al buscar la entidad", e);
       }
    }
 
 
+   /**
+    * Recupera con una sola consulta las entidades con los identificadores indicados y las
+    * convierte en DTOs, en el mismo orden que la lista recibida. Es el punto de extensión
+    * para los servicios que obtienen los identificadores de otra fuente, como un índice de
+    * búsqueda; los identificadores que ya no existen se omiten.
+    *
+    * @param ids  los identificadores de las entidades, en el orden del resultado
+    * @param plan el plan de carga de las asociaciones
+    * @return los DTOs de las entidades que existen
+    * @throws OperationFailedException si ocurre un error al obtener las entidades
+    */
+   protected List<D> findAllById(List<ID> ids, FetchPlan plan) {
+      return metrics.record(entityName, "findAllById", op -> {
+         TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+         transaction.setReadOnly(true);
+         try {
+            return transaction.execute(status -> {
+               Map<Object, E> entities = new HashMap<>();
+               op.repository(() -> baseRepository.findAllById(ids, plan))
+                     .forEach(entity -> entities.put(entity.getId(), entity));
+               List<E> ordered = ids.stream().map(entities::get).filter(Objects::nonNull).toList();
+               return op.results(op.mapping(() -> mapper.toDTOList(ordered)), ordered.size());
+            });
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al obtener la lista de entidades", e);
+         }
+      });
+   }
+
+
    /**
     * Guarda una nueva entidad en la base de datos a partir del DTO proporcionado.
     *
@@ -111,12 +515,89 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    @Override
    @Transactional
    public D save(D dto) {
+      return metrics.record(entityName, "save", op -> {
+         try {
+            E entity = op.mapping(() -> mapper.toEntity(dto));
+            E savedEntity = op.repository(() -> {
+               new DetachedGraph(entityManager).attach(entity);
+               return baseRepository.save(entity);
+            });
+            return invalidate(savedEntity, op.mapping(() -> mapper.toDTO(savedEntity)));
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al guardar la entidad", e);
+         }
+      });
+   }
+
+
+   /**
+    * Guarda una lista de nuevos DTOs. Cada DTO se valida por separado; los válidos se
+    * persisten en bloques de {@link #BATCH_SIZE}, cada uno en su propia transacción,
+    * con un flush que envía los INSERT como lotes JDBC y un clear que libera el
+    * contexto de persistencia antes del siguiente bloque. Si un bloque falla, sus
+    * elementos se informan como fallidos y el resto de bloques se guarda igualmente.
+    * Los identificadores recibidos se ignoran: todos los elementos se crean como nuevos.
+    *
+    * @param dtos los DTOs a guardar
+    * @return el resultado de cada elemento, en el mismo orden que la lista recibida
+    * @throws ValidationException si la lista supera {@link #MAX_BATCH_ITEMS} elementos
+    */
+   @Override
+   public List<BatchItemResult<D>> saveAll(List<D> dtos) {
+      if (dtos.size() > MAX_BATCH_ITEMS) {
+         throw new ValidationException("El lote no puede superar " + MAX_BATCH_ITEMS + " elementos");
+      }
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      List<BatchItemResult<D>> results = new ArrayList<>(dtos.size());
+      Map<Integer, D> chunk = new LinkedHashMap<>();
+      for (int i = 0; i < dtos.size(); i++) {
+         D dto = dtos.get(i);
+         List<String> errors = dto == null ? List.of("Elemento vacío") : validator.validate(dto).stream()
+               .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+               .toList();
+         if (!errors.isEmpty()) {
+            results.add(BatchItemResult.invalid(i, errors));
+            continue;
+         }
+         chunk.put(i, dto);
+         if (chunk.size() == BATCH_SIZE) {
+            results.addAll(saveChunk(transaction, chunk));
+            chunk.clear();
+         }
+      }
+      if (!chunk.isEmpty()) {
+         results.addAll(saveChunk(transaction, chunk));
+      }
+      results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+      return results;
+   }
+
+   private List<BatchItemResult<D>> saveChunk(TransactionTemplate transaction, Map<Integer, D> chunk) {
       try {
-         E entity = mapper.toEntity(dto);
-         E savedEntity = baseRepository.save(entity);
-         return mapper.toDTO(savedEntity);
-      } catch (Exception e) {
-         throw new OperationFailedException("Error al guardar la entidad");
+         return transaction.execute(status -> {
+            Map<Integer, E> entities = new LinkedHashMap<>();
+            DetachedGraph graph = new DetachedGraph(entityManager);
+            chunk.forEach((index, dto) -> {
+               E entity = mapper.toEntity(dto);
+               entity.setId(null);
+               graph.attach(entity);
+               entityManager.persist(entity);
+               entities.put(index, entity);
+            });
+            entityManager.flush();
+            List<BatchItemResult<D>> saved = new ArrayList<>(entities.size());
+            entities.forEach((index, entity) ->
+                  saved.add(BatchItemResult.created(index, invalidate(entity, mapper.toDTO(entity)))));
+            entityManager.clear();
+            return saved;
+         });
+      } catch (RuntimeException e) {
+         logger.error("Error al guardar un bloque de {} entidades", chunk.size(), e);
+         return chunk.keySet().stream()
+               .map(index -> BatchItemResult.<D>failed(index, "Error al guardar el bloque de entidades"))
+               .toList();
       }
    }
 
@@ -133,19 +614,103 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    @Override
    @Transactional
    public D update(ID id, D dto) {
-      try {
-         if (!baseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Entidad no encontrada para actualizar");
+      return update(id, dto, null);
+   }
+
+   /**
+    * Actualiza una entidad existente en la base de datos con los datos del DTO proporcionado.
+    * La entidad se carga una sola vez con su plan de detalle; el merge posterior la
+    * encuentra ya en el contexto de persistencia, por lo que no vuelve a consultarla.
+    * La versión del DTO se ignora: la actualización parte de la versión leída, y si otra
+    * transacción modifica la entidad antes de escribirla, la escritura falla.
+    *
+    * @param id              el identificador de la entidad a actualizar
+    * @param dto             el objeto DTO que contiene los nuevos datos para la entidad
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return el objeto DTO que representa la entidad actualizada, con su nueva versión
+    * @throws ResourceNotFoundException   si la entidad con el ID proporcionado no existe
+    * @throws PreconditionFailedException si la entidad no tiene la versión esperada
+    * @throws OperationFailedException    si ocurre un error al actualizar la entidad
+    */
+   @Override
+   @Transactional
+   public D update(ID id, D dto, Long expectedVersion) {
+      return metrics.record(entityName, "update", op -> {
+         try {
+            E existingEntity = op.repository(() -> baseRepository.findById(id, FetchPlan.DETAIL))
+                  .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada para actualizar"));
+            checkVersion(existingEntity, expectedVersion);
+            E updatedEntity = op.mapping(() -> mapper.toEntity(dto));
+            updatedEntity.setId(existingEntity.getId()); // Mantener el ID existente
+            updatedEntity.setVersion(existingEntity.getVersion());
+            E mergedEntity = op.repository(() -> {
+               new DetachedGraph(entityManager).attach(updatedEntity);
+               E merged = entityManager.merge(updatedEntity);
+               entityManager.flush(); // Incrementa la versión antes de convertir la entidad
+               return merged;
+            });
+            return invalidate(mergedEntity, op.mapping(() -> mapper.toDTO(mergedEntity)));
+         } catch (DomainException | OptimisticLockException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al actualizar la entidad", e);
          }
-         E existingEntity = baseRepository.findById(id)
-               .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada"));
-         E updatedEntity = mapper.toEntity(dto);
-         updatedEntity.setId(existingEntity.getId()); // Mantener el ID existente
-         updatedEntity = baseRepository.save(updatedEntity);
-         return mapper.toDTO(updatedEntity);
-      } catch (Exception e) {
-         throw new OperationFailedException("Error al actualizar la entidad");
-      }
+      });
+   }
+
+   /**
+    * Modifica parcialmente una entidad aplicando un documento JSON Merge Patch.
+    *
+    * @param id    el identificador de la entidad a modificar
+    * @param patch el documento JSON Merge Patch
+    * @return el objeto DTO que representa la entidad modificada
+    * @throws ResourceNotFoundException si la entidad con el ID proporcionado no existe
+    * @throws ValidationException       si el documento no es válido para el DTO
+    * @throws OperationFailedException  si ocurre un error al modificar la entidad
+    */
+   @Override
+   @Transactional
+   public D patch(ID id, JsonNode patch) {
+      return patch(id, patch, null);
+   }
+
+   /**
+    * Modifica parcialmente una entidad aplicando un documento JSON Merge Patch sobre
+    * la entidad gestionada. La entidad se carga una sola vez y, al confirmar la
+    * transacción, solo se escriben las columnas que han cambiado.
+    *
+    * @param id              el identificador de la entidad a modificar
+    * @param patch           el documento JSON Merge Patch
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return el objeto DTO que representa la entidad modificada, con su nueva versión
+    * @throws ResourceNotFoundException   si la entidad con el ID proporcionado no existe
+    * @throws PreconditionFailedException si la entidad no tiene la versión esperada
+    * @throws ValidationException         si el documento no es válido para el DTO
+    * @throws OperationFailedException    si ocurre un error al modificar la entidad
+    */
+   @Override
+   @Transactional
+   public D patch(ID id, JsonNode patch, Long expectedVersion) {
+      return metrics.record(entityName, "patch", op -> {
+         try {
+            E entity = op.repository(() -> baseRepository.findById(id, FetchPlan.DETAIL))
+                  .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada para modificar"));
+            checkVersion(entity, expectedVersion);
+            op.mapping(() -> {
+               new JsonMergePatch(objectMapper, validator, entityManager).apply(entity, mapper.getDtoClass(), patch);
+               return entity;
+            });
+            op.repository(() -> {
+               entityManager.flush(); // Incrementa la versión antes de convertir la entidad
+               return entity;
+            });
+            return invalidate(entity, op.mapping(() -> mapper.toDTO(entity)));
+         } catch (DomainException | OptimisticLockException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al modificar la entidad", e);
+         }
+      });
    }
 
 
@@ -160,14 +725,106 @@ public abstract class BaseServiceImpl<E extends Base, D, ID extends Serializable
    @Override
    @Transactional
    public boolean delete(ID id) {
-      try {
-         if (!baseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Entidad no encontrada para eliminar");
+      return delete(id, null);
+   }
+
+   /**
+    * Elimina una entidad de la base de datos identificada por el ID proporcionado.
+    * Si la entidad usa borrado lógico, solo se marca como inactiva, junto con las
+    * entidades que dependen de ella, con una sentencia UPDATE que comprueba también la
+    * versión leída; las filas inactivas se borran después por lotes. En ambos casos se
+    * invalidan en la {@link DtoCache} la entidad y las que aparecen en su DTO.
+    *
+    * @param id              el identificador de la entidad a eliminar
+    * @param expectedVersion la versión que debe tener la entidad, o null para no comprobarla
+    * @return true si la entidad se eliminó con éxito
+    * @throws ResourceNotFoundException   si la entidad con el ID proporcionado no existe
+    * @throws PreconditionFailedException si la entidad no tiene la versión esperada
+    * @throws OperationFailedException    si ocurre un error al eliminar la entidad
+    */
+   @Override
+   @Transactional
+   public boolean delete(ID id, Long expectedVersion) {
+      return metrics.record(entityName, "delete", op -> {
+         try {
+            E entity = op.repository(() -> baseRepository.findById(id))
+                  .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada para eliminar"));
+            checkVersion(entity, expectedVersion);
+            D dto = op.mapping(() -> mapper.toDTO(entity));
+            if (baseRepository.isSoftDelete()) {
+               if (!op.repository(() -> baseRepository.deactivateById(id, entity.getVersion()))) {
+                  throw new PreconditionFailedException("La entidad se ha modificado durante el borrado");
+               }
+            } else {
+               op.repository(() -> {
+                  baseRepository.delete(entity);
+                  return null;
+               });
+            }
+            invalidate(entity, dto);
+            return true;
+         } catch (DomainException e) {
+            throw e;
+         } catch (Exception e) {
+            throw new OperationFailedException("Error al eliminar la entidad", e);
          }
-         baseRepository.deleteById(id);
-         return true;
-      } catch (Exception e) {
-         throw new OperationFailedException("Error al eliminar la entidad");
+      });
+   }
+
+   /**
+    * Modifica una entidad existente en su propia transacción e invalida la
+    * {@link DtoCache}. Es el punto de extensión para las escrituras propias de cada
+    * servicio que no parten de un DTO, como las que completan un trabajo en segundo plano.
+    *
+    * @param id     el identificador de la entidad a modificar
+    * @param change la modificación, aplicada sobre la entidad gestionada
+    * @return la entidad modificada
+    * @throws ResourceNotFoundException si la entidad con el ID proporcionado no existe
+    */
+   protected E modify(ID id, Consumer<E> change) {
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      return transaction.execute(status -> {
+         E entity = baseRepository.findById(id)
+               .orElseThrow(() -> new ResourceNotFoundException("Entidad no encontrada para modificar"));
+         change.accept(entity);
+         entityManager.flush();
+         invalidate(entity, mapper.toDTO(entity));
+         return entity;
+      });
+   }
+
+   /**
+    * Inserta entidades nuevas, ya construidas por el servicio, en una sola transacción:
+    * o se guardan todas o ninguna. El flush final envía los INSERT como lotes JDBC. Como
+    * {@link #save}, invalida en la {@link DtoCache}, tras confirmar, cada entidad y las que
+    * aparecen en su DTO.
+    *
+    * @param entities las entidades a insertar
+    * @return las entidades insertadas, con su identificador
+    */
+   protected List<E> persistAll(List<E> entities) {
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      return transaction.execute(status -> {
+         entities.forEach(entityManager::persist);
+         entityManager.flush();
+         entities.forEach(entity -> invalidate(entity, mapper.toDTO(entity)));
+         return entities;
+      });
+   }
+
+   private void checkVersion(E entity, Long expectedVersion) {
+      if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+         throw new PreconditionFailedException("La versión de la entidad no coincide con If-Match");
       }
    }
+
+   /**
+    * Invalida en la {@link DtoCache} la entidad escrita y las entidades que aparecen
+    * en su DTO, cuyas colecciones inversas pueden haber cambiado.
+    */
+   private D invalidate(E entity, D dto) {
+      dtoCache.evict(mapper.getDtoClass(), entity.getId());
+      dtoCache.evictReferences(dto);
+      return dto;
+   }
 }
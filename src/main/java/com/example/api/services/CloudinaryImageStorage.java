@@ -0,0 +1,33 @@
+package com.example.api.services;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Almacenamiento de imágenes en Cloudinary, sobre {@link CloudinaryService}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStorage implements ImageStorage {
+
+    private final CloudinaryService cloudinaryService;
+
+    public CloudinaryImageStorage(CloudinaryService cloudinaryService) {
+        this.cloudinaryService = cloudinaryService;
+    }
+
+    @Override
+    public StoredImage store(Path file, String filename) throws IOException {
+        Map<String, Object> uploadResult = cloudinaryService.upload(file, filename);
+        return new StoredImage((String) uploadResult.get("public_id"), (String) uploadResult.get("url"));
+    }
+
+    @Override
+    public void delete(String id) throws IOException {
+        cloudinaryService.delete(id);
+    }
+}
@@ -3,10 +3,21 @@ package com.example.api.services;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 public interface CloudinaryService {
     Map<String,Object> upload(MultipartFile multipartFile) throws IOException;
 
+    /**
+     * Sube a Cloudinary un archivo local, que se envía en streaming desde el disco.
+     *
+     * @param file     el archivo a subir
+     * @param filename el nombre con el que se envía, normalmente el original del cliente
+     * @return la respuesta de Cloudinary, con {@code url} y {@code public_id}
+     * @throws IOException si falla la lectura del archivo o la subida
+     */
+    Map<String,Object> upload(Path file, String filename) throws IOException;
+
     Map<String,Object> delete(String id)throws IOException;
 }
@@ -2,53 +2,244 @@ package com.example.api.services;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.api.utils.ServiceUnavailableException;
 import io.github.cdimascio.dotenv.Dotenv;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Subida y borrado de imágenes en Cloudinary.
+ * <p>
+ * Las subidas no cargan la imagen en memoria: el archivo recibido se transfiere con
+ * {@link UploadSpool} a un archivo temporal y el cliente HTTP lo envía en streaming
+ * desde allí con un buffer pequeño. El archivo temporal se borra siempre al terminar,
+ * tanto si la subida tiene éxito como si falla.
+ * <p>
+ * Cada llamada remota pasa por tres protecciones de Resilience4j con el nombre
+ * {@value #RESILIENCE}, configuradas en {@code application.properties}:
+ * <ul>
+ *    <li>un bulkhead con su propio pool de hilos, que acota las llamadas simultáneas y
+ *        rechaza las que no caben, para que un Cloudinary lento no acapare los hilos de
+ *        las peticiones;</li>
+ *    <li>un límite de tiempo por llamada, ya que el cliente HTTP de Cloudinary no permite
+ *        configurar uno: al agotarse, el llamante recibe el error aunque la llamada siga
+ *        ocupando su hilo del bulkhead hasta que termine. Si una subida abandonada así
+ *        termina bien, la imagen ya no la usa nadie y se borra de Cloudinary; cada caso se
+ *        cuenta en {@value #LATE_UPLOADS}, con {@code outcome=destroyed} o {@code outcome=failed}
+ *        si no se ha podido borrar;</li>
+ *    <li>un circuit breaker que, con una tasa alta de errores o de llamadas lentas,
+ *        rechaza las llamadas sin intentarlas durante un tiempo.</li>
+ * </ul>
+ * En los tres casos se lanza {@link ServiceUnavailableException} (503). Sus métricas se
+ * publican en Micrometer con la etiqueta {@code name=cloudinary}.
+ * <p>
+ * Solo se crea con {@code app.storage.type=cloudinary}, el valor por defecto, ya que
+ * necesita las credenciales de {@code .env}.
+ */
 @Service
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "cloudinary", matchIfMissing = true)
 public class CloudinaryServiceImpl implements CloudinaryService {
 
+    /**
+     * Nombre de las instancias de bulkhead, límite de tiempo y circuit breaker.
+     */
+    static final String RESILIENCE = "cloudinary";
+
+    /**
+     * Métrica de las subidas que terminan después de agotarse su tiempo.
+     */
+    static final String LATE_UPLOADS = "cloudinary.uploads.late";
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryServiceImpl.class);
+
+    /**
+     * Ejecuta el borrado de las subidas tardías fuera del hilo del bulkhead que las
+     * completa, ya que el borrado también necesita un hilo del bulkhead.
+     */
+    private static final Executor LATE_CLEANUP = task -> Thread.ofVirtual().name("cloudinary-cleanup").start(task);
+
     private final Cloudinary cloudinary;
+    private final UploadSpool uploadSpool;
+    private final ThreadPoolBulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cloudinary-timeouts").daemon().factory());
+    private final Counter lateUploadsDestroyed;
+    private final Counter lateUploadsFailed;
 
-    public CloudinaryServiceImpl() {
+    /**
+     * Constructor del servicio.
+     *
+     * @param uploadSpool      el componente que transfiere los archivos recibidos a archivos temporales
+     * @param uploadPrefix     la URL base de la API de subida, o vacío para la de Cloudinary
+     * @param bulkheads        el registro del que se obtiene el bulkhead
+     * @param timeLimiters     el registro del que se obtiene el límite de tiempo
+     * @param circuitBreakers  el registro del que se obtiene el circuit breaker
+     * @param meterRegistry    el registro donde se publica {@value #LATE_UPLOADS}
+     */
+    public CloudinaryServiceImpl(UploadSpool uploadSpool,
+                                 @Value("${app.cloudinary.upload-prefix:}") String uploadPrefix,
+                                 ThreadPoolBulkheadRegistry bulkheads,
+                                 TimeLimiterRegistry timeLimiters,
+                                 CircuitBreakerRegistry circuitBreakers,
+                                 MeterRegistry meterRegistry) {
         Dotenv dotenv = Dotenv.load(); // Carga las variables de entorno desde .env
-        cloudinary = new Cloudinary(
-                ObjectUtils.asMap(
-                        "cloud_name", dotenv.get("CLOUDINARY_CLOUD_NAME"),
-                        "api_key", dotenv.get("CLOUDINARY_API_KEY"),
-                        "api_secret", dotenv.get("CLOUDINARY_API_SECRET")
-                )
+        Map<String, Object> config = ObjectUtils.asMap(
+                "cloud_name", dotenv.get("CLOUDINARY_CLOUD_NAME"),
+                "api_key", dotenv.get("CLOUDINARY_API_KEY"),
+                "api_secret", dotenv.get("CLOUDINARY_API_SECRET")
         );
+        if (StringUtils.hasText(uploadPrefix)) {
+            config.put("upload_prefix", uploadPrefix);
+        }
+        cloudinary = new Cloudinary(config);
+        this.uploadSpool = uploadSpool;
+        this.bulkhead = bulkheads.bulkhead(RESILIENCE);
+        this.timeLimiter = timeLimiters.timeLimiter(RESILIENCE);
+        this.circuitBreaker = circuitBreakers.circuitBreaker(RESILIENCE);
+        this.lateUploadsDestroyed = Counter.builder(LATE_UPLOADS).tag("outcome", "destroyed")
+                .description("Subidas a Cloudinary terminadas tras agotarse su tiempo")
+                .register(meterRegistry);
+        this.lateUploadsFailed = Counter.builder(LATE_UPLOADS).tag("outcome", "failed")
+                .description("Subidas a Cloudinary terminadas tras agotarse su tiempo")
+                .register(meterRegistry);
     }
 
-    private File convert(MultipartFile multipartFile) throws IOException{
-        File file=new File(Objects.requireNonNull(multipartFile.getOriginalFilename()));
-        FileOutputStream fileOutputStream = new FileOutputStream(file);
-        fileOutputStream.write(multipartFile.getBytes());
-        fileOutputStream.close();
-        return file;
+    /**
+     * Sube un archivo recibido en una petición multipart desde un archivo temporal.
+     *
+     * @param multipartFile el archivo recibido
+     * @return la respuesta de Cloudinary
+     * @throws IOException si falla la transferencia o la subida
+     */
+    @Override
+    public Map<String, Object> upload(MultipartFile multipartFile) throws IOException {
+        Path file = uploadSpool.spool(multipartFile).path();
+        try {
+            return upload(file, multipartFile.getOriginalFilename());
+        } finally {
+            Files.deleteIfExists(file);
+        }
     }
 
     @Override
-    public Map upload(MultipartFile multipartFile) throws IOException {
-        File file=convert(multipartFile);
-        Map result=cloudinary.uploader().upload(file, ObjectUtils.emptyMap());
-        if (!Files.deleteIfExists(file.toPath())){
-            throw new IOException("Falla al borrar archivo temporal "+file.getAbsolutePath());
-        }
-        return result;
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> upload(Path file, String filename) throws IOException {
+        Map<String, Object> options = StringUtils.hasText(filename)
+                ? ObjectUtils.asMap("filename", StringUtils.getFilename(filename))
+                : ObjectUtils.emptyMap();
+        return call(() -> cloudinary.uploader().upload(file.toFile(), options), this::destroyLateUpload);
     }
 
     @Override
-    public Map delete(String id) throws IOException {
-        return cloudinary.uploader().destroy(id,ObjectUtils.emptyMap());
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> delete(String id) throws IOException {
+        return call(() -> cloudinary.uploader().destroy(id, ObjectUtils.emptyMap()), null);
+    }
+
+    /**
+     * Ejecuta una llamada remota en el bulkhead, con el límite de tiempo y el circuit
+     * breaker, y espera su resultado.
+     * <p>
+     * Al agotarse el tiempo, el límite completa con error el resultado del bulkhead, así
+     * que el de la llamada remota, que sigue en curso, se recoge aparte: si termina bien,
+     * se pasa a {@code onLateSuccess}, en otro hilo.
+     */
+    private Map<String, Object> call(Callable<Map<String, Object>> remoteCall,
+                                     Consumer<Map<String, Object>> onLateSuccess) throws IOException {
+        CompletableFuture<Map<String, Object>> remote = new CompletableFuture<>();
+        Callable<Map<String, Object>> tracked = () -> {
+            try {
+                Map<String, Object> result = remoteCall.call();
+                remote.complete(result);
+                return result;
+            } catch (Exception e) {
+                remote.completeExceptionally(e);
+                throw e;
+            }
+        };
+        Supplier<CompletionStage<Map<String, Object>>> guarded = circuitBreaker.decorateCompletionStage(
+                () -> timeLimiter.executeCompletionStage(timeouts, () -> bulkhead.executeCallable(tracked)));
+        try {
+            return guarded.get().toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BulkheadFullException) {
+                throw new ServiceUnavailableException("Demasiadas llamadas simultáneas a Cloudinary");
+            }
+            if (cause instanceof CallNotPermittedException) {
+                throw new ServiceUnavailableException("Cloudinary no está disponible temporalmente");
+            }
+            if (cause instanceof TimeoutException) {
+                if (onLateSuccess != null) {
+                    remote.thenAcceptAsync(onLateSuccess, LATE_CLEANUP);
+                }
+                throw new ServiceUnavailableException("Cloudinary ha tardado demasiado en responder");
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Borra de Cloudinary una imagen cuya subida ha terminado después de que el llamante
+     * dejara de esperarla, y que por tanto no usa ninguna fila.
+     */
+    private void destroyLateUpload(Map<String, Object> result) {
+        Object publicId = result.get("public_id");
+        if (publicId == null) {
+            return;
+        }
+        try {
+            delete(publicId.toString());
+            lateUploadsDestroyed.increment();
+            logger.warn("La subida {} terminó tras agotarse su tiempo y se ha borrado de Cloudinary", publicId);
+        } catch (IOException | RuntimeException e) {
+            lateUploadsFailed.increment();
+            logger.error("La subida {} terminó tras agotarse su tiempo y no se pudo borrar de Cloudinary",
+                    publicId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
     }
 }
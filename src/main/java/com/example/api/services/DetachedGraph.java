@@ -0,0 +1,125 @@
+package com.example.api.services;
+
+import com.example.api.entities.Base;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prepara una entidad recién convertida desde un DTO para persistirla o fusionarla.
+ * <p>
+ * Las entidades asociadas llegan con su identificador pero sin versión, y Hibernate
+ * considera nueva cualquier entidad versionada cuya versión es nula. Las asociaciones
+ * sin cascada de merge se sustituyen por referencias gestionadas, que no requieren
+ * consulta; a las que sí la propagan, y a la propia entidad si trae identificador, se
+ * les asigna la versión actual, de modo que el merge actualiza la fila existente.
+ * Las entidades sin identificador se crean siempre con la versión inicial.
+ */
+final class DetachedGraph {
+
+   private static final Map<Class<?>, List<Association>> ASSOCIATIONS = new ConcurrentHashMap<>();
+
+   private final EntityManager entityManager;
+
+   DetachedGraph(EntityManager entityManager) {
+      this.entityManager = entityManager;
+   }
+
+   /**
+    * Prepara la entidad y, recursivamente, las asociaciones con cascada de merge.
+    *
+    * @param entity la entidad convertida desde un DTO
+    */
+   void attach(Base entity) {
+      attach(entity, Collections.newSetFromMap(new IdentityHashMap<>()));
+   }
+
+   private void attach(Base entity, Set<Object> visited) {
+      if (!visited.add(entity)) {
+         return;
+      }
+      if (entity.getId() == null) {
+         entity.setVersion(null);
+      } else if (entity.getVersion() == null) {
+         Base current = entityManager.find(entity.getClass(), entity.getId());
+         entity.setVersion(current != null ? current.getVersion() : null);
+      }
+      BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+      for (Association association : associations(entity.getClass())) {
+         Object value = wrapper.getPropertyValue(association.name());
+         if (value instanceof Base nested) {
+            wrapper.setPropertyValue(association.name(), resolve(nested, association.cascadesMerge(), visited));
+         } else if (value instanceof Collection<?> items && !items.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            Collection<Object> elements = (Collection<Object>) items;
+            List<Object> resolved = new ArrayList<>(elements.size());
+            for (Object element : elements) {
+               resolved.add(element instanceof Base nested
+                     ? resolve(nested, association.cascadesMerge(), visited) : element);
+            }
+            elements.clear();
+            elements.addAll(resolved);
+         }
+      }
+   }
+
+   private Object resolve(Base nested, boolean cascadesMerge, Set<Object> visited) {
+      if (!cascadesMerge && nested.getId() != null) {
+         return entityManager.getReference(nested.getClass(), nested.getId());
+      }
+      attach(nested, visited);
+      return nested;
+   }
+
+   private static List<Association> associations(Class<?> type) {
+      return ASSOCIATIONS.computeIfAbsent(type, DetachedGraph::findAssociations);
+   }
+
+   private static List<Association> findAssociations(Class<?> type) {
+      List<Association> associations = new ArrayList<>();
+      ReflectionUtils.doWithFields(type, field -> {
+         CascadeType[] cascade = cascade(field);
+         if (cascade != null) {
+            boolean merge = Arrays.stream(cascade).anyMatch(c -> c == CascadeType.ALL || c == CascadeType.MERGE);
+            associations.add(new Association(field.getName(), merge));
+         }
+      });
+      return List.copyOf(associations);
+   }
+
+   private static CascadeType[] cascade(Field field) {
+      if (field.isAnnotationPresent(ManyToOne.class)) {
+         return field.getAnnotation(ManyToOne.class).cascade();
+      }
+      if (field.isAnnotationPresent(OneToOne.class)) {
+         return field.getAnnotation(OneToOne.class).cascade();
+      }
+      if (field.isAnnotationPresent(OneToMany.class)) {
+         return field.getAnnotation(OneToMany.class).cascade();
+      }
+      if (field.isAnnotationPresent(ManyToMany.class)) {
+         return field.getAnnotation(ManyToMany.class).cascade();
+      }
+      return null;
+   }
+
+   private record Association(String name, boolean cascadesMerge) {
+   }
+}
@@ -0,0 +1,183 @@
+package com.example.api.services;
+
+import com.example.api.dto.BaseDTO;
+import com.example.api.dto.DtoGraph;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de DTOs ya mapeados, indexados por tipo de DTO e identificador, que usan
+ * los servicios para {@link BaseService#findById}. Las entradas se expulsan por
+ * tamaño y por tiempo, y sus estadísticas se publican en Micrometer con el nombre
+ * de caché {@value #CACHE_NAME}.
+ * <p>
+ * Para cada DTO almacenado se registran las entidades que contiene (por ejemplo, el
+ * usuario de un post), de modo que invalidar una entidad invalida también todos los
+ * DTOs que la incluyen. Las invalidaciones se aplican de inmediato y, si hay una
+ * transacción en curso, de nuevo tras su confirmación, para descartar cualquier
+ * valor cargado mientras tanto con los datos anteriores.
+ */
+@Component
+public class DtoCache {
+
+   /**
+    * Nombre de la caché en las métricas.
+    */
+   public static final String CACHE_NAME = "dtos";
+
+   /**
+    * Clave de una entrada de la caché.
+    *
+    * @param type el tipo del DTO
+    * @param id   el identificador de la entidad
+    */
+   public record Key(Class<?> type, Object id) {
+   }
+
+   private final boolean enabled;
+   private final Cache<Key, Object> cache;
+   private final Map<Key, Set<Key>> references = new ConcurrentHashMap<>();
+   private final Map<Key, Set<Key>> dependents = new ConcurrentHashMap<>();
+
+   /**
+    * Constructor de la caché.
+    *
+    * @param meterRegistry    el registro donde se publican las métricas
+    * @param enabled          si la caché está activa
+    * @param maximumSize      el número máximo de DTOs almacenados
+    * @param expireAfterWrite el tiempo máximo que se conserva cada DTO
+    */
+   public DtoCache(MeterRegistry meterRegistry,
+                   @Value("${app.dto-cache.enabled:true}") boolean enabled,
+                   @Value("${app.dto-cache.maximum-size:10000}") long maximumSize,
+                   @Value("${app.dto-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+      this.enabled = enabled;
+      this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .evictionListener((Key key, Object dto, RemovalCause cause) -> forget(key))
+            .recordStats()
+            .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+   }
+
+   /**
+    * Obtiene un DTO de la caché o lo carga y lo almacena si no está. Los DTOs
+    * devueltos son la instancia almacenada, compartida entre llamadas: quien los entregue
+    * fuera del servicio debe copiarlos con {@link com.example.api.mappers.GenericMapper#copyDTO}.
+    *
+    * @param type   el tipo del DTO
+    * @param id     el identificador de la entidad
+    * @param loader la función que carga el DTO si no está en la caché
+    * @param <T>    el tipo del DTO
+    * @return el DTO
+    */
+   public <T> T get(Class<T> type, Object id, Supplier<T> loader) {
+      if (!enabled) {
+         return loader.get();
+      }
+      return type.cast(cache.get(new Key(type, id), key -> {
+         T dto = loader.get();
+         track(key, dto);
+         return dto;
+      }));
+   }
+
+   /**
+    * Invalida el DTO de una entidad y todos los DTOs que la incluyen.
+    *
+    * @param type el tipo del DTO
+    * @param id   el identificador de la entidad
+    */
+   public void evict(Class<?> type, Object id) {
+      if (enabled && id != null) {
+         invalidate(Set.of(new Key(type, id)));
+      }
+   }
+
+   /**
+    * Invalida los DTOs de todas las entidades que aparecen dentro del DTO indicado,
+    * como las asociaciones cuyo lado inverso ha cambiado al guardarlo.
+    *
+    * @param dto el DTO recién guardado
+    */
+   public void evictReferences(Object dto) {
+      if (enabled && dto != null) {
+         invalidate(collectReferences(dto));
+      }
+   }
+
+   private void invalidate(Set<Key> keys) {
+      evictNow(keys);
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+               evictNow(keys);
+            }
+         });
+      }
+   }
+
+   private void evictNow(Set<Key> keys) {
+      Set<Key> visited = new HashSet<>();
+      Deque<Key> pending = new ArrayDeque<>(keys);
+      while (!pending.isEmpty()) {
+         Key key = pending.pop();
+         if (visited.add(key)) {
+            cache.asMap().compute(key, (k, dto) -> {
+               forget(k);
+               return null;
+            });
+            Set<Key> including = dependents.remove(key);
+            if (including != null) {
+               pending.addAll(including);
+            }
+         }
+      }
+   }
+
+   private void track(Key key, Object dto) {
+      if (dto == null) {
+         return;
+      }
+      Set<Key> referenced = collectReferences(dto);
+      referenced.remove(key);
+      references.put(key, referenced);
+      for (Key reference : referenced) {
+         dependents.computeIfAbsent(reference, k -> ConcurrentHashMap.newKeySet()).add(key);
+      }
+   }
+
+   private void forget(Key key) {
+      Set<Key> referenced = references.remove(key);
+      if (referenced != null) {
+         for (Key reference : referenced) {
+            dependents.computeIfPresent(reference, (k, including) -> {
+               including.remove(key);
+               return including.isEmpty() ? null : including;
+            });
+         }
+      }
+   }
+
+   private static Set<Key> collectReferences(Object dto) {
+      Set<Key> keys = new HashSet<>();
+      for (BaseDTO nested : DtoGraph.nested(dto)) {
+         keys.add(new Key(nested.getClass(), nested.getId()));
+      }
+      return keys;
+   }
+}
@@ -0,0 +1,61 @@
+package com.example.api.services;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reconoce el formato de los archivos de imagen por su contenido, con los lectores de
+ * {@link ImageIO}, sin fiarse del nombre ni del tipo que declara el cliente.
+ * <p>
+ * Solo se admiten formatos de mapa de bits que los navegadores muestran como imagen y
+ * que no pueden contener scripts: un SVG o un HTML con nombre {@code .png} no se reconoce.
+ */
+final class ImageFormats {
+
+    /**
+     * Extensión, sin punto, de cada formato admitido, por el nombre de su lector en minúsculas.
+     */
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "png", "png",
+            "jpeg", "jpg",
+            "gif", "gif",
+            "bmp", "bmp");
+
+    private ImageFormats() {
+    }
+
+    /**
+     * Obtiene la extensión del formato de una imagen a partir de su cabecera.
+     *
+     * @param file el archivo
+     * @return la extensión, sin punto, o vacío si no es una imagen de un formato admitido
+     * @throws IOException si no se puede leer el archivo
+     */
+    static Optional<String> extension(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return Optional.empty();
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            while (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    String extension = EXTENSIONS.get(reader.getFormatName().toLowerCase(Locale.ROOT));
+                    if (extension != null) {
+                        return Optional.of(extension);
+                    }
+                } finally {
+                    reader.dispose();
+                }
+            }
+            return Optional.empty();
+        }
+    }
+}
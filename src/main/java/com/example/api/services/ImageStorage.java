@@ -0,0 +1,49 @@
+package com.example.api.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de los archivos de las imágenes.
+ * <p>
+ * La implementación activa se elige con {@code app.storage.type}:
+ * <ul>
+ *    <li>{@code cloudinary} (por defecto): {@link CloudinaryImageStorage}.</li>
+ *    <li>{@code local}: {@link LocalImageStorage}, que guarda los archivos en disco y los
+ *        sirve desde {@code GET /api/v1/imagen/archivo/{id}}.</li>
+ * </ul>
+ */
+public interface ImageStorage {
+
+    /**
+     * Guarda un archivo local. El archivo puede moverse: el llamante solo debe borrarlo
+     * si sigue existiendo.
+     *
+     * @param file     el archivo a guardar
+     * @param filename el nombre original del archivo, solo informativo: no decide el tipo
+     *                 con el que se sirve la imagen
+     * @return el identificador y la URL de la imagen guardada
+     * @throws IOException si no se puede guardar
+     */
+    StoredImage store(Path file, String filename) throws IOException;
+
+    /**
+     * Borra una imagen guardada.
+     *
+     * @param id el identificador de la imagen en el almacenamiento
+     * @throws IOException si no se puede borrar
+     */
+    void delete(String id) throws IOException;
+
+    /**
+     * Obtiene el archivo local de una imagen, para los almacenamientos que pueden
+     * servirlo directamente.
+     *
+     * @param id el identificador de la imagen en el almacenamiento
+     * @return el archivo, si el almacenamiento es local y la imagen existe
+     */
+    default Optional<Path> locate(String id) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.api.services;
+
+import com.example.api.entities.ImagenVariante;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Genera las versiones reducidas de las imágenes subidas y las guarda en el
+ * {@link ImageStorage} junto al original.
+ * <p>
+ * El original se decodifica una sola vez; cada variante se reduce, se codifica y se
+ * guarda en paralelo en un pool acotado por {@code app.upload.derivatives.parallelism},
+ * compartido por todas las subidas para que las reducciones, que consumen CPU, no
+ * compitan con los hilos de las peticiones. Solo se generan las variantes más estrechas
+ * que el original. Las imágenes que no se pueden decodificar, o que superan
+ * {@code app.upload.derivatives.max-pixels}, no tienen variantes.
+ */
+@Component
+public class ImagenDerivatives {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagenDerivatives.class);
+
+    /**
+     * Variantes generadas, de menor a mayor ancho máximo.
+     */
+    private static final List<Variante> VARIANTES = List.of(
+            new Variante("miniatura", 160),
+            new Variante("pequena", 480),
+            new Variante("mediana", 1024));
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private record Variante(String nombre, int ancho) {
+    }
+
+    private final ImageStorage imageStorage;
+    private final ForkJoinPool pool;
+    private final long maxPixels;
+
+    /**
+     * Constructor del componente.
+     *
+     * @param imageStorage el almacenamiento donde se guardan las variantes
+     * @param parallelism  el número de variantes que se generan a la vez
+     * @param maxPixels    el tamaño máximo, en píxeles, de las imágenes que se reducen
+     */
+    public ImagenDerivatives(ImageStorage imageStorage,
+                             @Value("${app.upload.derivatives.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism,
+                             @Value("${app.upload.derivatives.max-pixels:50000000}") long maxPixels) {
+        this.imageStorage = imageStorage;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Genera y guarda las variantes de una imagen.
+     *
+     * @param original el archivo de la imagen original, que no se modifica
+     * @param filename el nombre original del archivo
+     * @return las variantes guardadas, de menor a mayor ancho, o una lista vacía si el
+     * archivo no es una imagen que se pueda reducir
+     * @throws IOException si falla la lectura del original
+     */
+    public List<ImagenVariante> generate(Path original, String filename) throws IOException {
+        BufferedImage image = decode(original);
+        if (image == null) {
+            return List.of();
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        String baseName = StringUtils.stripFilenameExtension(StringUtils.hasText(filename) ? filename : "imagen");
+        List<Future<ImagenVariante>> pending = new ArrayList<>();
+        for (Variante variante : VARIANTES) {
+            if (variante.ancho() < image.getWidth()) {
+                pending.add(pool.submit(() -> store(image, variante, alpha, original.getParent(), baseName)));
+            }
+        }
+        List<ImagenVariante> variantes = new ArrayList<>(pending.size());
+        for (Future<ImagenVariante> future : pending) {
+            try {
+                variantes.add(future.get());
+            } catch (ExecutionException e) {
+                logger.warn("No se pudo generar una variante de {}", filename, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.forEach(f -> f.cancel(true));
+                throw new IOException("Generación de variantes interrumpida", e);
+            }
+        }
+        return variantes;
+    }
+
+    /**
+     * Borra las variantes de una imagen del almacenamiento.
+     *
+     * @param variantes las variantes, puede ser null
+     */
+    public void delete(List<ImagenVariante> variantes) {
+        if (variantes == null) {
+            return;
+        }
+        for (ImagenVariante variante : variantes) {
+            try {
+                imageStorage.delete(variante.imageId());
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar la variante {}", variante.imageId(), e);
+            }
+        }
+    }
+
+    /**
+     * Decodifica la imagen si es de un formato conocido y no supera el tamaño máximo.
+     * El tamaño se comprueba con la cabecera, antes de reservar memoria para los píxeles.
+     */
+    private BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } catch (IOException e) {
+                return null; // Archivo dañado o de un subformato no soportado
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private ImagenVariante store(BufferedImage image, Variante variante, boolean alpha,
+                                 Path directory, String baseName) throws IOException {
+        BufferedImage scaled = scale(image, variante.ancho(), alpha);
+        String extension = alpha ? ".png" : ".jpg";
+        Path file = Files.createTempFile(directory, "variante-", extension);
+        try {
+            write(scaled, alpha, file);
+            StoredImage stored = imageStorage.store(file, baseName + "-" + variante.nombre() + extension);
+            return new ImagenVariante(variante.nombre(), scaled.getWidth(), scaled.getHeight(),
+                    stored.url(), stored.id());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, boolean alpha) {
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Codifica la variante: PNG si la imagen tiene transparencia y JPEG si no.
+     */
+    private static void write(BufferedImage image, boolean alpha, Path file) throws IOException {
+        if (alpha) {
+            ImageIO.write(image, "png", file.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
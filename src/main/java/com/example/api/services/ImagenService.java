@@ -1,13 +1,61 @@
 package com.example.api.services;
 
+import com.example.api.dto.BatchItemResult;
 import com.example.api.dto.ImagenDTO;
+import com.example.api.dto.UploadJob;
 import com.example.api.entities.Imagen;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 public interface ImagenService extends BaseService<Imagen, ImagenDTO,Long>{
     Imagen subirImagen(MultipartFile file) throws IOException;
 
-    void borrarImagen(Imagen imagen) throws IOException;
+    /**
+     * Sube varias imágenes a la vez e inserta sus filas en una sola transacción.
+     *
+     * @param files los archivos recibidos
+     * @return el resultado de cada archivo, en el mismo orden que la lista recibida
+     * @throws IOException si no se pueden guardar los archivos recibidos
+     */
+    List<BatchItemResult<ImagenDTO>> subirImagenes(List<MultipartFile> files) throws IOException;
+
+    /**
+     * Acepta la subida de una imagen y la ejecuta en segundo plano. Al terminar, se crea
+     * la fila de la imagen o, si se indica su identificador, se actualiza la existente.
+     *
+     * @param file     el archivo recibido
+     * @param imagenId el identificador de la imagen a actualizar, o null para crear una nueva
+     * @return el estado inicial del trabajo
+     * @throws IOException si no se puede guardar el archivo recibido
+     */
+    UploadJob subirImagenAsync(MultipartFile file, Long imagenId) throws IOException;
+
+    /**
+     * Obtiene el estado de un trabajo de subida.
+     *
+     * @param jobId el identificador del trabajo
+     * @return el estado del trabajo, si existe
+     */
+    Optional<UploadJob> buscarTrabajo(String jobId);
+
+    /**
+     * Obtiene el archivo local de una imagen, si el almacenamiento configurado puede
+     * servirlo directamente.
+     *
+     * @param imageId el identificador de la imagen en el almacenamiento
+     * @return el archivo de la imagen, si existe
+     */
+    Optional<Path> buscarArchivo(String imageId);
+
+    /**
+     * Borra una imagen con la baja lógica del resto de entidades. Sus archivos se borran
+     * al purgarla, si ya no los usa ninguna otra fila.
+     *
+     * @param imagenId el identificador de la imagen
+     */
+    void borrarImagen(Long imagenId);
 }
@@ -1,22 +1,74 @@
 package com.example.api.services;
 
+import com.example.api.dto.BatchItemResult;
 import com.example.api.dto.ImagenDTO;
+import com.example.api.dto.UploadJob;
 import com.example.api.entities.Imagen;
+import com.example.api.entities.ImagenVariante;
 import com.example.api.mappers.GenericMapper;
 import com.example.api.repositories.BaseRepository;
+import com.example.api.repositories.ImagenRepository;
+import com.example.api.utils.ResourceNotFoundException;
+import com.example.api.utils.ServiceUnavailableException;
+import com.example.api.utils.ValidationException;
 import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 @Service
-public class ImagenServiceImpl extends BaseServiceImpl<Imagen, ImagenDTO,Long> implements ImagenService {
+public class ImagenServiceImpl extends BaseServiceImpl<Imagen, ImagenDTO,Long> implements ImagenService, PurgeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagenServiceImpl.class);
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private UploadSpool uploadSpool;
+
+    @Autowired
+    private ImagenDerivatives imagenDerivatives;
+
+    @Autowired
+    private UploadJobs uploadJobs;
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.batch.parallelism:5}")
+    private int batchParallelism;
+
+    @Value("${app.upload.batch.max-files:20}")
+    private int maxBatchFiles;
 
     /**
      * Constructor que inicializa el repositorio base, el mapeador y el EntityManager.
@@ -32,19 +84,403 @@ public class ImagenServiceImpl extends BaseServiceImpl<Imagen, ImagenDTO,Long> i
         super(baseRepository, mapper, entityManager);
     }
 
+    /**
+     * Sube una imagen y guarda su fila. Si ya existe una imagen activa con el mismo
+     * contenido, la nueva fila comparte sus archivos sin volver a subirlos.
+     *
+     * @param file el archivo recibido
+     * @return la imagen guardada
+     * @throws IOException si falla la transferencia o la subida
+     */
     @Override
     public Imagen subirImagen(MultipartFile file) throws IOException {
-        Map uploadResult=cloudinaryService.upload(file);
-        Imagen imagen=new Imagen();
-        imagen.setName(file.getOriginalFilename());
-        imagen.setImageUrl((String) uploadResult.get("url"));
-        imagen.setImageId((String) uploadResult.get("public_id"));
-        return baseRepository.save(imagen);
+        SpooledFile spooled = uploadSpool.spool(file);
+        try {
+            return crearImagen(spooled, file.getOriginalFilename());
+        } finally {
+            Files.deleteIfExists(spooled.path());
+        }
+    }
+
+    /**
+     * Sube varias imágenes en una sola petición. Los archivos se suben a la vez, hasta
+     * {@code app.upload.batch.parallelism} simultáneos, de modo que el lote tarda
+     * aproximadamente lo que la subida más lenta. Las filas se insertan después en una
+     * sola transacción, una por archivo. Los archivos con un contenido ya guardado, o
+     * repetido dentro del lote, se suben una sola vez y sus filas comparten los archivos;
+     * si la imagen guardada se borra mientras tanto, esos archivos se marcan como fallidos.
+     *
+     * @param files los archivos recibidos
+     * @return el resultado de cada archivo, en el mismo orden que la lista recibida
+     * @throws ValidationException si el lote está vacío o supera {@code app.upload.batch.max-files}
+     * @throws IOException         si no se pueden guardar los archivos recibidos
+     */
+    @Override
+    public List<BatchItemResult<ImagenDTO>> subirImagenes(List<MultipartFile> files) throws IOException {
+        if (files.isEmpty() || files.size() > maxBatchFiles) {
+            throw new ValidationException("El lote debe tener entre 1 y " + maxBatchFiles + " archivos");
+        }
+        List<SpooledFile> spooled = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                spooled.add(uploadSpool.spool(file));
+            }
+            return subirImagenes(files, spooled);
+        } finally {
+            for (SpooledFile file : spooled) {
+                Files.deleteIfExists(file.path());
+            }
+        }
+    }
+
+    private List<BatchItemResult<ImagenDTO>> subirImagenes(List<MultipartFile> files, List<SpooledFile> spooled) {
+        // Primera posición de cada contenido distinto del lote
+        Map<String, Integer> primeros = new LinkedHashMap<>();
+        for (int i = 0; i < spooled.size(); i++) {
+            primeros.putIfAbsent(spooled.get(i).contentHash(), i);
+        }
+        Map<String, Imagen> guardados = new HashMap<>();
+        for (Imagen imagen : imagenRepository().findActiveByContentHashIn(primeros.keySet())) {
+            guardados.putIfAbsent(imagen.getContentHash(), imagen);
+        }
+
+        Map<String, Future<Imagen>> subidasPendientes = new LinkedHashMap<>();
+        Semaphore permits = new Semaphore(batchParallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            primeros.forEach((hash, index) -> {
+                if (!guardados.containsKey(hash)) {
+                    subidasPendientes.put(hash, executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return nuevaImagen(spooled.get(index), files.get(index).getOriginalFilename());
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+            });
+        } // Espera a que terminen todas las subidas
+
+        Map<String, Imagen> subidas = new HashMap<>();
+        subidasPendientes.forEach((hash, subida) -> {
+            try {
+                subidas.put(hash, subida.get());
+            } catch (ExecutionException | InterruptedException e) {
+                logger.error("Error al subir una imagen del lote", e instanceof ExecutionException ? e.getCause() : e);
+            }
+        });
+
+        // Una fila por archivo: la primera de cada contenido subido es la de la subida
+        Map<Integer, Imagen> filas = new LinkedHashMap<>();
+        Set<Imagen> compartidas = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < spooled.size(); i++) {
+            String hash = spooled.get(i).contentHash();
+            Imagen subida = subidas.get(hash);
+            Imagen origen = subida != null ? subida : guardados.get(hash);
+            if (subida != null && primeros.get(hash) == i) {
+                filas.put(i, subida);
+            } else if (origen != null) {
+                Imagen fila = compartirArchivos(origen, files.get(i).getOriginalFilename());
+                filas.put(i, fila);
+                if (subida == null) {
+                    compartidas.add(fila);
+                }
+            }
+        }
+        List<Imagen> nuevas = new ArrayList<>(filas.values());
+        try {
+            transaction().executeWithoutResult(status -> {
+                comprobarArchivos(compartidas);
+                persistAll(nuevas);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo insertar el lote de {} imágenes, se guardan por separado", nuevas.size(), e);
+            guardarPorSeparado(nuevas, compartidas);
+        }
+
+        List<BatchItemResult<ImagenDTO>> results = new ArrayList<>(files.size());
+        for (int i = 0; i < spooled.size(); i++) {
+            Imagen fila = filas.get(i);
+            if (fila != null && fila.getId() != null) {
+                results.add(BatchItemResult.created(i, mapper.toDTO(fila)));
+            } else {
+                results.add(BatchItemResult.failed(i, "Error al subir la imagen"));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Guarda las filas una a una. Los archivos de las que no se pueden guardar se borran
+     * al final, y solo si no los usa ninguna de las que sí se han guardado.
+     */
+    private void guardarPorSeparado(List<Imagen> imagenes, Set<Imagen> compartidas) {
+        List<Imagen> fallidas = new ArrayList<>();
+        for (Imagen imagen : imagenes) {
+            imagen.setId(null);
+            imagen.setVersion(null);
+            try {
+                transaction().executeWithoutResult(status -> {
+                    if (compartidas.contains(imagen)) {
+                        comprobarArchivos(List.of(imagen));
+                    }
+                    baseRepository.save(imagen);
+                });
+            } catch (RuntimeException e) {
+                logger.error("Error al guardar la imagen {}", imagen.getImageId(), e);
+                imagen.setId(null);
+                fallidas.add(imagen);
+            }
+        }
+        fallidas.forEach(this::liberarArchivos);
+    }
+
+    /**
+     * Crea la imagen de un archivo ya transferido. Si ya hay una imagen activa con el
+     * mismo contenido, la nueva fila comparte sus archivos en lugar de volver a subirlo;
+     * la búsqueda y la inserción van en la misma transacción, con la imagen encontrada
+     * bloqueada (ver {@link #bloquearPorContenido}).
+     */
+    private Imagen crearImagen(SpooledFile spooled, String filename) throws IOException {
+        Imagen compartida = transaction().execute(status -> bloquearPorContenido(spooled.contentHash())
+                .map(existente -> baseRepository.save(compartirArchivos(existente, filename)))
+                .orElse(null));
+        if (compartida != null) {
+            return compartida;
+        }
+        Imagen imagen = nuevaImagen(spooled, filename);
+        try {
+            return baseRepository.save(imagen);
+        } catch (RuntimeException e) {
+            liberarArchivos(imagen);
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda el archivo y sus variantes y devuelve la imagen, sin insertarla. Las
+     * variantes se generan antes de guardar el original, que el almacenamiento puede mover.
+     */
+    private Imagen nuevaImagen(SpooledFile spooled, String filename) throws IOException {
+        List<ImagenVariante> variantes = imagenDerivatives.generate(spooled.path(), filename);
+        StoredImage stored;
+        try {
+            stored = imageStorage.store(spooled.path(), filename);
+        } catch (IOException | RuntimeException e) {
+            imagenDerivatives.delete(variantes);
+            throw e;
+        }
+        Imagen imagen = new Imagen();
+        imagen.setName(filename);
+        imagen.setImageUrl(stored.url());
+        imagen.setImageId(stored.id());
+        imagen.setContentHash(spooled.contentHash());
+        imagen.setVariantes(variantes);
+        return imagen;
+    }
+
+    /**
+     * Devuelve una imagen nueva, sin insertar, que usa los archivos ya guardados de otra
+     * con el mismo contenido. Cada fila sigue siendo independiente: solo se comparten los
+     * archivos, que se borran cuando ya no los usa ninguna fila.
+     */
+    private static Imagen compartirArchivos(Imagen origen, String filename) {
+        Imagen imagen = new Imagen();
+        imagen.setName(filename);
+        imagen.setImageUrl(origen.getImageUrl());
+        imagen.setImageId(origen.getImageId());
+        imagen.setContentHash(origen.getContentHash());
+        imagen.setVariantes(origen.getVariantes());
+        return imagen;
+    }
+
+    /**
+     * Borra el archivo guardado de una imagen y sus variantes si ya no los usa ninguna
+     * fila, activa o inactiva. Se llama después de borrar o de cambiar la fila que los usaba.
+     */
+    private void liberarArchivos(Imagen imagen) {
+        String imageId = imagen.getImageId();
+        if (imageId == null || imagenRepository().countByImageId(imageId) > 0) {
+            return;
+        }
+        try {
+            imageStorage.delete(imageId);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar la imagen {}", imageId, e);
+        }
+        imagenDerivatives.delete(imagen.getVariantes());
     }
 
+    /**
+     * Libera los archivos que usaba una fila cuando se confirme la transacción en curso,
+     * que es la que la cambia para que apunte a otros.
+     */
+    private void liberarTrasConfirmar(Imagen anterior) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                liberarArchivos(anterior);
+            }
+        });
+    }
+
+    /**
+     * Busca una imagen activa con el contenido indicado y la bloquea hasta el final de la
+     * transacción en curso, que debe insertar o cambiar en ella la fila que comparte sus
+     * archivos. Así, un borrado o un reemplazo de esa imagen espera a que se confirme la
+     * fila nueva y, al contar las filas que usan los archivos, la tiene en cuenta; si se
+     * confirma antes, la imagen ya no aparece como activa con ese contenido. Las inactivas
+     * no se tienen en cuenta: sus archivos se borran al purgarlas, salvo que otra fila los use.
+     */
+    private Optional<Imagen> bloquearPorContenido(String contentHash) {
+        return imagenRepository().lockActiveByContentHashIn(List.of(contentHash)).stream().findFirst();
+    }
+
+    /**
+     * Bloquea, como {@link #bloquearPorContenido}, las imágenes activas de las que se copiaron
+     * los archivos de unas filas aún sin insertar, y comprueba que siguen usándolos: si se han
+     * borrado o reemplazado desde la búsqueda, sus archivos pueden haberse borrado ya.
+     *
+     * @throws ResourceNotFoundException si ya no hay ninguna imagen activa con esos archivos
+     */
+    private void comprobarArchivos(Collection<Imagen> compartidas) {
+        if (compartidas.isEmpty()) {
+            return;
+        }
+        Set<String> hashes = compartidas.stream().map(Imagen::getContentHash).collect(Collectors.toSet());
+        Set<String> vigentes = imagenRepository().lockActiveByContentHashIn(hashes).stream()
+                .map(Imagen::getImageId)
+                .collect(Collectors.toSet());
+        for (Imagen imagen : compartidas) {
+            if (!vigentes.contains(imagen.getImageId())) {
+                throw new ResourceNotFoundException("Los archivos de la imagen " + imagen.getImageId() + " ya no existen");
+            }
+        }
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reemplaza la imagen de una fila existente. Si el contenido es el mismo que ya
+     * tiene, no se sube de nuevo; si coincide con el de otra imagen activa, la fila
+     * pasa a compartir sus archivos. Los archivos anteriores se borran tras confirmar
+     * el cambio, salvo que otra fila los siga usando.
+     */
+    private Imagen reemplazarImagen(Long imagenId, SpooledFile spooled, String filename) throws IOException {
+        Imagen actual = baseRepository.findById(imagenId)
+                .orElseThrow(() -> new ResourceNotFoundException("Imagen no encontrada"));
+        if (spooled.contentHash().equals(actual.getContentHash())) {
+            return actual;
+        }
+        Imagen reemplazada = transaction().execute(status -> bloquearPorContenido(spooled.contentHash())
+                .map(existente -> reemplazar(imagenId, compartirArchivos(existente, filename)))
+                .orElse(null));
+        if (reemplazada != null) {
+            return reemplazada;
+        }
+        Imagen nueva = nuevaImagen(spooled, filename);
+        try {
+            return reemplazar(imagenId, nueva);
+        } catch (RuntimeException e) {
+            liberarArchivos(nueva);
+            throw e;
+        }
+    }
+
+    /**
+     * Hace que una fila use los archivos de otra imagen, sin insertar, y libera los que
+     * usaba cuando se confirme el cambio.
+     */
+    private Imagen reemplazar(Long imagenId, Imagen nueva) {
+        return modify(imagenId, imagen -> {
+            liberarTrasConfirmar(compartirArchivos(imagen, imagen.getName()));
+            imagen.setName(nueva.getName());
+            imagen.setImageUrl(nueva.getImageUrl());
+            imagen.setImageId(nueva.getImageId());
+            imagen.setContentHash(nueva.getContentHash());
+            imagen.setVariantes(nueva.getVariantes());
+        });
+    }
+
+    private ImagenRepository imagenRepository() {
+        return (ImagenRepository) baseRepository;
+    }
+
+    /**
+     * Acepta la subida de una imagen y la ejecuta con {@link UploadJobs}. El archivo
+     * recibido se transfiere antes a un archivo temporal propio, ya que el del contenedor
+     * se borra al terminar la petición; el trabajo lo borra al terminar.
+     *
+     * @param file     el archivo recibido
+     * @param imagenId el identificador de la imagen a actualizar, o null para crear una nueva
+     * @return el estado inicial del trabajo
+     * @throws ResourceNotFoundException   si la imagen a actualizar no existe
+     * @throws ServiceUnavailableException si hay demasiadas subidas pendientes
+     * @throws IOException                 si no se puede guardar el archivo recibido
+     */
+    @Override
+    public UploadJob subirImagenAsync(MultipartFile file, Long imagenId) throws IOException {
+        if (imagenId != null && !baseRepository.existsById(imagenId)) {
+            throw new ResourceNotFoundException("Imagen no encontrada");
+        }
+        String filename = file.getOriginalFilename();
+        SpooledFile spooled = uploadSpool.spool(file);
+        return uploadJobs.submit(imagenId, () -> imagenId == null
+                ? crearImagen(spooled, filename)
+                : reemplazarImagen(imagenId, spooled, filename), () -> {
+            try {
+                Files.deleteIfExists(spooled.path());
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el archivo temporal {}", spooled.path(), e);
+            }
+        });
+    }
+
+    @Override
+    public Optional<UploadJob> buscarTrabajo(String jobId) {
+        return uploadJobs.find(jobId);
+    }
+
+    @Override
+    public Optional<Path> buscarArchivo(String imageId) {
+        return imageStorage.locate(imageId);
+    }
+
+    /**
+     * Borra una imagen por el mismo camino que {@link #delete}: la fila se marca como
+     * inactiva y se invalida en las cachés. Sus archivos no pueden borrarse todavía, ya que
+     * la fila inactiva sigue apuntando a ellos; se borran al purgarla, en {@link #beforePurge},
+     * si ya no los usa ninguna otra fila.
+     *
+     * @param imagenId el identificador de la imagen
+     * @throws ResourceNotFoundException si la imagen no existe o ya está borrada
+     */
+    @Override
+    @Transactional
+    public void borrarImagen(Long imagenId) {
+        delete(imagenId);
+    }
+
+    /**
+     * Antes de purgar un lote de imágenes inactivas, anota sus archivos para borrar
+     * después los que ya no use ninguna fila. Las filas que no se hayan podido purgar
+     * siguen usando sus archivos, que por tanto se conservan.
+     */
     @Override
-    public void borrarImagen(Imagen imagen) throws IOException {
-        cloudinaryService.delete(imagen.getImageId());
-        baseRepository.delete(imagen);
+    @SuppressWarnings("unchecked")
+    public Runnable beforePurge(BaseRepository<?, ?> repository, List<?> ids) {
+        if (!(repository instanceof ImagenRepository imagenes)) {
+            return () -> {
+            };
+        }
+        Map<String, Imagen> archivos = new LinkedHashMap<>();
+        for (Imagen imagen : imagenes.findAllIncludingInactive((List<Long>) ids)) {
+            if (imagen.getImageId() != null) {
+                archivos.putIfAbsent(imagen.getImageId(), imagen);
+            }
+        }
+        return () -> archivos.values().forEach(this::liberarArchivos);
     }
 }
@@ -0,0 +1,123 @@
+package com.example.api.services;
+
+import com.example.api.dto.BaseDTO;
+import com.example.api.entities.Base;
+import com.example.api.utils.ValidationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.beans.PropertyDescriptor;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Aplica un documento JSON Merge Patch (RFC 7396) directamente sobre una entidad
+ * gestionada, de modo que el contexto de persistencia solo detecta como modificadas
+ * las columnas incluidas en el documento.
+ * <p>
+ * Los nombres de los atributos son los del DTO, y cada valor se valida con las
+ * restricciones declaradas en él antes de copiarse a la entidad. Un objeto anidado
+ * solo puede indicar el {@code id} de la entidad a la que pasa a apuntar la asociación:
+ * la entidad asociada no se modifica, ya que es un recurso propio que se modifica en su
+ * endpoint, con su comprobación de versión y la invalidación de su caché. Las colecciones
+ * no se pueden modificar con un PATCH, y el identificador de la entidad raíz y las
+ * versiones se ignoran.
+ */
+final class JsonMergePatch {
+
+   private final ObjectMapper objectMapper;
+   private final Validator validator;
+   private final EntityManager entityManager;
+
+   JsonMergePatch(ObjectMapper objectMapper, Validator validator, EntityManager entityManager) {
+      this.objectMapper = objectMapper;
+      this.validator = validator;
+      this.entityManager = entityManager;
+   }
+
+   /**
+    * Aplica el documento sobre la entidad.
+    *
+    * @param entity  la entidad gestionada que se modifica
+    * @param dtoType el tipo del DTO que define los atributos y restricciones admitidos
+    * @param patch   el documento JSON Merge Patch
+    * @throws ValidationException si el documento no es un objeto, contiene atributos
+    *                             desconocidos, un objeto anidado con algo más que su id o
+    *                             algún valor no cumple las restricciones del DTO
+    */
+   void apply(Object entity, Class<?> dtoType, JsonNode patch) {
+      if (!patch.isObject()) {
+         throw new ValidationException("El documento JSON Merge Patch debe ser un objeto");
+      }
+      BeanWrapper target = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+      Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+      while (fields.hasNext()) {
+         Map.Entry<String, JsonNode> field = fields.next();
+         String name = field.getKey();
+         JsonNode value = field.getValue();
+         if (name.equals("id") || name.equals("version")) {
+            continue;
+         }
+         PropertyDescriptor property = BeanUtils.getPropertyDescriptor(dtoType, name);
+         if (property == null || property.getWriteMethod() == null || !target.isWritableProperty(name)) {
+            throw new ValidationException("Atributo no válido: " + name);
+         }
+         Class<?> propertyType = property.getPropertyType();
+         if (Collection.class.isAssignableFrom(propertyType)) {
+            throw new ValidationException("La colección " + name + " no se puede modificar con PATCH");
+         }
+         if (value.isObject() && BaseDTO.class.isAssignableFrom(propertyType)) {
+            setAssociation(target, name, value);
+         } else {
+            setValue(target, dtoType, name, propertyType, value);
+         }
+      }
+   }
+
+   private void setValue(BeanWrapper target, Class<?> dtoType, String name, Class<?> propertyType, JsonNode value) {
+      Object converted;
+      try {
+         converted = value.isNull() ? null : objectMapper.convertValue(value, propertyType);
+      } catch (IllegalArgumentException e) {
+         throw new ValidationException("Valor no válido para " + name);
+      }
+      Set<? extends ConstraintViolation<?>> violations = validator.validateValue(dtoType, name, converted);
+      if (!violations.isEmpty()) {
+         throw new ValidationException(violations.stream()
+               .map(violation -> name + ": " + violation.getMessage())
+               .collect(Collectors.joining(", ")));
+      }
+      if (converted == null && target.getPropertyType(name).isPrimitive()) {
+         throw new ValidationException(name + ": no puede ser nulo");
+      }
+      target.setPropertyValue(name, converted);
+   }
+
+   private void setAssociation(BeanWrapper target, String name, JsonNode value) {
+      JsonNode id = value.get("id");
+      if (id == null || id.isNull() || value.size() != 1) {
+         throw new ValidationException("La asociación " + name + " solo admite su id");
+      }
+      Class<?> entityType = target.getPropertyType(name);
+      Object newId;
+      try {
+         newId = objectMapper.convertValue(id,
+               entityManager.getMetamodel().entity(entityType).getIdType().getJavaType());
+      } catch (IllegalArgumentException e) {
+         throw new ValidationException("Identificador no válido para " + name);
+      }
+      Object current = target.getPropertyValue(name);
+      if (current == null || !newId.equals(((Base) current).getId())) {
+         target.setPropertyValue(name, entityManager.getReference(entityType, newId));
+      }
+   }
+}
@@ -0,0 +1,81 @@
+package com.example.api.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento de imágenes en el sistema de archivos local, para despliegues sin
+ * acceso a Cloudinary.
+ * <p>
+ * Cada imagen se guarda en {@code app.storage.local.dir} con un identificador aleatorio
+ * que nunca se reutiliza, de modo que su contenido es inmutable y puede cachearse sin
+ * límite. El archivo temporal de la subida se mueve al directorio, sin copiarlo cuando
+ * está en el mismo sistema de archivos. La URL pública apunta a
+ * {@code GET /api/v1/imagen/archivo/{id}}, que sirve el archivo sin copias en el heap.
+ * <p>
+ * La extensión del identificador, de la que depende el tipo con el que se sirve el
+ * archivo, se elige a partir del contenido con {@link ImageFormats}, nunca del nombre que
+ * envía el cliente; los archivos que no son imágenes reconocidas se guardan sin extensión.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f-]{36}(\\.[a-z0-9]{1,10})?");
+
+    private final Path directory;
+    private final String publicUrl;
+
+    /**
+     * Constructor del almacenamiento.
+     *
+     * @param directory el directorio donde se guardan las imágenes
+     * @param publicUrl la URL base con la que se publican las imágenes
+     */
+    public LocalImageStorage(@Value("${app.storage.local.dir}") Path directory,
+                             @Value("${app.storage.local.public-url:/api/v1/imagen/archivo}") String publicUrl) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.publicUrl = StringUtils.trimTrailingCharacter(publicUrl, '/');
+    }
+
+    @Override
+    public StoredImage store(Path file, String filename) throws IOException {
+        Files.createDirectories(directory);
+        String id = UUID.randomUUID() + ImageFormats.extension(file).map(extension -> "." + extension).orElse("");
+        Files.move(file, directory.resolve(id));
+        return new StoredImage(id, publicUrl + "/" + id);
+    }
+
+    @Override
+    public void delete(String id) throws IOException {
+        if (isValid(id)) {
+            Files.deleteIfExists(directory.resolve(id));
+        }
+    }
+
+    @Override
+    public Optional<Path> locate(String id) {
+        if (!isValid(id)) {
+            return Optional.empty();
+        }
+        Path file = directory.resolve(id);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Comprueba que el identificador tiene la forma de los generados por este
+     * almacenamiento, lo que impide salir del directorio con rutas relativas.
+     */
+    private static boolean isValid(String id) {
+        return id != null && ID.matcher(id).matches();
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.api.services;
+
+import com.example.api.entities.Post;
+import com.example.api.repositories.BaseRepository;
+import com.example.api.repositories.FetchPlan;
+import com.example.api.repositories.PostRepository;
+import com.example.api.utils.OperationFailedException;
+import com.example.api.utils.ValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Índice de texto completo de los posts sobre su título, descripción y categoría, con Lucene
+ * en disco local. Los textos se analizan con {@link SpanishAnalyzer} (minúsculas, sin palabras
+ * vacías y reducidas a su raíz), y los resultados se ordenan por relevancia, con más
+ * peso para las coincidencias en el título y en la categoría.
+ * <p>
+ * El índice se reconstruye al arrancar a partir de la base de datos y después se actualiza con
+ * cada alta, modificación y baja de un post una vez confirmada su transacción, sea cual sea el
+ * camino por el que se escribe: el índice escucha los eventos posteriores a la confirmación de
+ * Hibernate. Las sentencias masivas no generan eventos, así que las bajas lógicas, que son un
+ * UPDATE masivo, las notifica {@link PostServiceImpl}, y las filas purgadas se eliminan como
+ * {@link PurgeListener}.
+ * Las búsquedas usan un lector casi en tiempo real (NRT) abierto sobre el propio
+ * {@link IndexWriter}, que un hilo reabre en segundo plano: los cambios son visibles como mucho
+ * {@code app.search.max-stale} después, sin esperar a que se escriban en disco, y una búsqueda
+ * nunca consulta la base de datos.
+ * <p>
+ * Sin {@code app.search.index-dir}, cada arranque usa un directorio temporal propio que se borra
+ * al parar.
+ */
+@Component
+public class PostSearchIndex implements PurgeListener {
+
+   private static final Logger logger = LoggerFactory.getLogger(PostSearchIndex.class);
+
+   /**
+    * Número máximo de resultados que se pueden recorrer paginando.
+    */
+   public static final int MAX_RESULT_WINDOW = 1000;
+
+   private static final String ID = "id";
+   private static final String TITULO = "titulo";
+   private static final String DESCRIPCION = "descripcion";
+   private static final String CATEGORIA = "categoria";
+   private static final Map<String, Float> WEIGHTS = Map.of(TITULO, 3f, CATEGORIA, 2f, DESCRIPCION, 1f);
+   private static final int REBUILD_FETCH_SIZE = 500;
+
+   /**
+    * Resultado de una búsqueda.
+    *
+    * @param ids   los identificadores de los posts de la página, por relevancia
+    * @param total el número de posts que coinciden; por encima de {@value #MAX_RESULT_WINDOW}
+    *              es un mínimo, ya que el recuento exacto obligaría a puntuar todos
+    */
+   public record Hits(List<Long> ids, long total) {
+   }
+
+   private final PostRepository postRepository;
+   private final PlatformTransactionManager transactionManager;
+   private final EntityManager entityManager;
+   private final String indexDir;
+   private final Duration maxStale;
+   private final Analyzer analyzer = new SpanishAnalyzer();
+
+   private Path path;
+   private Directory directory;
+   private IndexWriter writer;
+   private SearcherManager searcherManager;
+   private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+   /**
+    * Constructor del índice.
+    *
+    * @param postRepository       el repositorio de los posts, para reconstruir el índice
+    * @param transactionManager   el gestor de transacciones
+    * @param entityManager        el EntityManager, que se vacía durante la reconstrucción
+    * @param entityManagerFactory la factoría de Hibernate cuyos eventos mantienen el índice al día
+    * @param indexDir             el directorio del índice, o vacío para usar uno temporal
+    * @param maxStale             el tiempo máximo que tarda un cambio en ser visible en las búsquedas
+    */
+   public PostSearchIndex(PostRepository postRepository,
+                          PlatformTransactionManager transactionManager,
+                          EntityManager entityManager,
+                          EntityManagerFactory entityManagerFactory,
+                          @Value("${app.search.index-dir:}") String indexDir,
+                          @Value("${app.search.max-stale:1s}") Duration maxStale) {
+      this.postRepository = postRepository;
+      this.transactionManager = transactionManager;
+      this.entityManager = entityManager;
+      this.indexDir = indexDir;
+      this.maxStale = maxStale;
+      EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+      PostChanges changes = new PostChanges();
+      listeners.appendListeners(EventType.POST_COMMIT_INSERT, changes);
+      listeners.appendListeners(EventType.POST_COMMIT_UPDATE, changes);
+      listeners.appendListeners(EventType.POST_COMMIT_DELETE, changes);
+   }
+
+   /**
+    * Abre el índice, lo reconstruye a partir de la base de datos y arranca el hilo que
+    * reabre el lector.
+    *
+    * @throws IOException si no se puede crear o escribir el índice
+    */
+   @PostConstruct
+   public void open() throws IOException {
+      path = indexDir.isBlank() ? Files.createTempDirectory("api-search") : Files.createDirectories(Path.of(indexDir));
+      directory = FSDirectory.open(path);
+      writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+      searcherManager = new SearcherManager(writer, null);
+      rebuild();
+      reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+            maxStale.toNanos() / 1e9, 0);
+      reopenThread.setName("post-search-reopen");
+      reopenThread.setDaemon(true);
+      reopenThread.start();
+   }
+
+   private void rebuild() throws IOException {
+      long start = System.nanoTime();
+      TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+      transaction.setReadOnly(true);
+      Long indexed = transaction.execute(status -> {
+         long count = 0;
+         try (Stream<Post> posts = postRepository.streamAll(FetchPlan.SUMMARY, REBUILD_FETCH_SIZE)) {
+            for (Post post : (Iterable<Post>) posts::iterator) {
+               writer.addDocument(document(post.getId(), post.getTitulo(), post.getDescripcion(), post.getCategoria()));
+               if (++count % REBUILD_FETCH_SIZE == 0) {
+                  entityManager.clear();
+               }
+            }
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         return count;
+      });
+      writer.commit();
+      searcherManager.maybeRefreshBlocking();
+      logger.info("Índice de búsqueda de posts construido en {} ms: {} posts",
+            (System.nanoTime() - start) / 1_000_000, indexed);
+   }
+
+   /**
+    * Cierra el índice; sin directorio configurado, borra además el directorio temporal.
+    *
+    * @throws IOException si no se puede cerrar el índice
+    */
+   @PreDestroy
+   public void close() throws IOException {
+      reopenThread.close();
+      searcherManager.close();
+      writer.close();
+      directory.close();
+      if (indexDir.isBlank()) {
+         FileSystemUtils.deleteRecursively(path);
+      }
+   }
+
+   /**
+    * Elimina un post del índice cuando se confirma la transacción en curso, o inmediatamente
+    * si no hay ninguna. Solo es necesario tras una sentencia masiva, como la baja lógica,
+    * que no genera eventos.
+    *
+    * @param id el identificador del post eliminado
+    */
+   public void remove(Long id) {
+      afterCommit(() -> writer.deleteDocuments(new Term(ID, id.toString())));
+   }
+
+   /**
+    * Elimina del índice los posts purgados, que el borrado masivo no notifica. Normalmente
+    * ya no están, ya que se eliminaron con su baja lógica.
+    */
+   @Override
+   public Runnable beforePurge(BaseRepository<?, ?> repository, List<?> ids) {
+      if (!(repository instanceof PostRepository)) {
+         return () -> {
+         };
+      }
+      Term[] terms = ids.stream().map(id -> new Term(ID, id.toString())).toArray(Term[]::new);
+      return () -> apply(() -> writer.deleteDocuments(terms));
+   }
+
+   /**
+    * Busca los posts que contienen todos los términos del texto, ordenados por relevancia.
+    * El texto admite la sintaxis de {@link SimpleQueryParser}: frases entre comillas,
+    * prefijos con {@code *}, exclusiones con {@code -} y alternativas con {@code |}.
+    *
+    * @param text   el texto de búsqueda
+    * @param offset la posición del primer resultado de la página
+    * @param size   el número máximo de resultados de la página
+    * @return los identificadores de la página y el número de posts que coinciden
+    * @throws ValidationException      si el texto está vacío o la página supera los primeros
+    *                                  {@value #MAX_RESULT_WINDOW} resultados
+    * @throws OperationFailedException si no se puede leer el índice
+    */
+   public Hits search(String text, long offset, int size) {
+      if (text == null || text.isBlank()) {
+         throw new ValidationException("El texto de búsqueda no puede estar vacío");
+      }
+      if (offset + size > MAX_RESULT_WINDOW) {
+         throw new ValidationException("Solo se pueden recorrer los primeros " + MAX_RESULT_WINDOW + " resultados");
+      }
+      SimpleQueryParser parser = new SimpleQueryParser(analyzer, WEIGHTS);
+      parser.setDefaultOperator(BooleanClause.Occur.MUST);
+      Query query = parser.parse(text);
+      try {
+         IndexSearcher searcher = searcherManager.acquire();
+         try {
+            TopDocs top = searcher.search(query, (int) offset + size);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>(size);
+            for (int i = (int) offset; i < top.scoreDocs.length; i++) {
+               ScoreDoc hit = top.scoreDocs[i];
+               ids.add(Long.valueOf(storedFields.document(hit.doc).get(ID)));
+            }
+            return new Hits(ids, top.totalHits.value);
+         } finally {
+            searcherManager.release(searcher);
+         }
+      } catch (IOException e) {
+         throw new OperationFailedException("Error al buscar en el índice", e);
+      }
+   }
+
+   private static Document document(Long id, String titulo, String descripcion, String categoria) {
+      Document document = new Document();
+      document.add(new StringField(ID, id.toString(), Field.Store.YES));
+      if (titulo != null) {
+         document.add(new TextField(TITULO, titulo, Field.Store.NO));
+      }
+      if (descripcion != null) {
+         document.add(new TextField(DESCRIPCION, descripcion, Field.Store.NO));
+      }
+      if (categoria != null) {
+         document.add(new TextField(CATEGORIA, categoria, Field.Store.NO));
+      }
+      return document;
+   }
+
+   private void afterCommit(IndexUpdate update) {
+      if (TransactionSynchronizationManager.isSynchronizationActive()) {
+         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+               apply(update);
+            }
+         });
+      } else {
+         apply(update);
+      }
+   }
+
+   private void apply(IndexUpdate update) {
+      try {
+         update.run();
+      } catch (IOException | RuntimeException e) {
+         // La escritura en la base de datos ya está confirmada: el índice se corrige al reconstruirlo
+         logger.error("No se pudo actualizar el índice de búsqueda de posts", e);
+      }
+   }
+
+   /**
+    * Aplica al índice las altas, modificaciones y bajas de posts una vez confirmadas. Un
+    * post que pasa a estar inactivo se elimina del índice. Hibernate entrega a los mismos
+    * listeners los eventos de todas las entidades, así que se descartan las que no son posts.
+    */
+   private final class PostChanges implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+         PostCommitDeleteEventListener {
+
+      @Override
+      public void onPostInsert(PostInsertEvent event) {
+         if (event.getEntity() instanceof Post post) {
+            update(post);
+         }
+      }
+
+      @Override
+      public void onPostUpdate(PostUpdateEvent event) {
+         if (event.getEntity() instanceof Post post) {
+            update(post);
+         }
+      }
+
+      @Override
+      public void onPostDelete(PostDeleteEvent event) {
+         if (event.getEntity() instanceof Post) {
+            apply(() -> writer.deleteDocuments(new Term(ID, event.getId().toString())));
+         }
+      }
+
+      private void update(Post post) {
+         Term term = new Term(ID, post.getId().toString());
+         apply(() -> {
+            if (post.isEstado()) {
+               writer.updateDocument(term, document(post.getId(), post.getTitulo(), post.getDescripcion(),
+                     post.getCategoria()));
+            } else {
+               writer.deleteDocuments(term);
+            }
+         });
+      }
+
+      @Override
+      public boolean requiresPostCommitHandling(EntityPersister persister) {
+         return persister.getMappedClass() == Post.class;
+      }
+
+      @Override
+      public void onPostInsertCommitFailed(PostInsertEvent event) {
+      }
+
+      @Override
+      public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+      }
+
+      @Override
+      public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+      }
+   }
+
+   @FunctionalInterface
+   private interface IndexUpdate {
+      void run() throws IOException;
+   }
+}
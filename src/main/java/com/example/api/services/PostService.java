@@ -2,6 +2,17 @@ package com.example.api.services;
 
 import com.example.api.dto.PostDTO;
 import com.example.api.entities.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 public interface PostService extends BaseService<Post, PostDTO,Long>{
+
+    /**
+     * Busca posts por texto en su título, descripción y categoría, ordenados por relevancia.
+     *
+     * @param text     el texto de búsqueda
+     * @param pageable la página de resultados; el orden indicado se ignora
+     * @return la página de posts que coinciden
+     */
+    Page<PostDTO> search(String text, Pageable pageable);
 }
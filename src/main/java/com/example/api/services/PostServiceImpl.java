@@ -4,11 +4,21 @@ import com.example.api.dto.PostDTO;
 import com.example.api.entities.Post;
 import com.example.api.mappers.GenericMapper;
 import com.example.api.repositories.BaseRepository;
+import com.example.api.repositories.FetchPlan;
 import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PostServiceImpl extends BaseServiceImpl<Post, PostDTO,Long> implements PostService {
+
+    @Autowired
+    private PostSearchIndex searchIndex;
+
     /**
      * Constructor que inicializa el repositorio base, el mapeador y el EntityManager.
      *
@@ -22,4 +32,42 @@ public class PostServiceImpl extends BaseServiceImpl<Post, PostDTO,Long> impleme
             EntityManager entityManager) {
         super(baseRepository, mapper, entityManager);
     }
+
+    /**
+     * El detalle de un post reúne su autor, sus comentarios y sus imágenes, por lo que es
+     * la lectura más costosa de mapear; se guarda en la caché de DTOs, que se invalida
+     * cuando cambia cualquiera de ellos.
+     */
+    @Override
+    protected boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Busca los posts en el {@link PostSearchIndex} y carga los de la página con una sola
+     * consulta, conservando el orden por relevancia.
+     *
+     * @param text     el texto de búsqueda
+     * @param pageable la página de resultados; el orden indicado se ignora
+     * @return la página de posts que coinciden
+     */
+    @Override
+    public Page<PostDTO> search(String text, Pageable pageable) {
+        PostSearchIndex.Hits hits = searchIndex.search(text, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(findAllById(hits.ids(), FetchPlan.LIST), pageable, hits.total());
+    }
+
+    /**
+     * Las altas y modificaciones llegan al índice de búsqueda por los eventos de Hibernate;
+     * la baja lógica es un UPDATE masivo que no los genera, así que se notifica aquí.
+     */
+    @Override
+    @Transactional
+    public boolean delete(Long id, Long expectedVersion) {
+        boolean deleted = super.delete(id, expectedVersion);
+        if (deleted) {
+            searchIndex.remove(id);
+        }
+        return deleted;
+    }
 }
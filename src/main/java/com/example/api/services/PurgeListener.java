@@ -0,0 +1,23 @@
+package com.example.api.services;
+
+import com.example.api.repositories.BaseRepository;
+
+import java.util.List;
+
+/**
+ * Recibe los lotes de filas inactivas que {@link SoftDeletePurgeJob} va a borrar
+ * definitivamente, para liberar después lo que solo usaban ellas fuera de la base de
+ * datos, como los archivos de las imágenes.
+ */
+public interface PurgeListener {
+
+   /**
+    * Se llama antes de borrar un lote de filas inactivas.
+    *
+    * @param repository el repositorio de la entidad cuyas filas se borran
+    * @param ids        los identificadores de las filas del lote
+    * @return la acción que se ejecuta después de borrar el lote, incluso si alguna de
+    *         sus filas no se ha podido borrar
+    */
+   Runnable beforePurge(BaseRepository<?, ?> repository, List<?> ids);
+}
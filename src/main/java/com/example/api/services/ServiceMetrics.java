@@ -0,0 +1,184 @@
+package com.example.api.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de las operaciones de {@link BaseServiceImpl}, etiquetadas por entidad y operación:
+ * <ul>
+ *    <li>{@value #OPERATION}: duración de la operación completa, con la excepción lanzada
+ *    ({@code none} si termina bien);</li>
+ *    <li>{@value #PHASE}: tiempo dentro de la operación que se pasa en el repositorio
+ *    ({@code phase=repository}) y en la conversión entre entidades y DTOs
+ *    ({@code phase=mapping}), que incluye la carga de las asociaciones perezosas;</li>
+ *    <li>{@value #RESULTS}: número de entidades devueltas por las lecturas;</li>
+ *    <li>{@value #SERIALIZATION} y {@value #SERIALIZATION_BYTES}: tiempo y tamaño de la
+ *    serialización JSON de las respuestas, medidos por el conversor de mensajes.</li>
+ * </ul>
+ * Los histogramas de percentiles se activan con
+ * {@code management.metrics.distribution.percentiles-histogram.api=true}.
+ */
+@Component
+public class ServiceMetrics {
+
+   static final String OPERATION = "api.service";
+   static final String PHASE = "api.service.phase";
+   static final String RESULTS = "api.service.results";
+   static final String SERIALIZATION = "api.serialization";
+   static final String SERIALIZATION_BYTES = "api.serialization.bytes";
+
+   private final Meter.MeterProvider<Timer> operations;
+   private final Meter.MeterProvider<Timer> phases;
+   private final Meter.MeterProvider<DistributionSummary> results;
+   private final Meter.MeterProvider<Timer> serializations;
+   private final Meter.MeterProvider<DistributionSummary> serializedBytes;
+   private final Map<Class<?>, String> entitiesByDto = new ConcurrentHashMap<>();
+
+   /**
+    * Constructor de las métricas.
+    *
+    * @param meterRegistry el registro donde se publican las métricas
+    */
+   public ServiceMetrics(MeterRegistry meterRegistry) {
+      this.operations = Timer.builder(OPERATION)
+            .description("Duración de las operaciones de los servicios")
+            .withRegistry(meterRegistry);
+      this.phases = Timer.builder(PHASE)
+            .description("Tiempo de las operaciones de los servicios en el repositorio y en la conversión")
+            .withRegistry(meterRegistry);
+      this.results = DistributionSummary.builder(RESULTS)
+            .description("Número de entidades devueltas por las lecturas de los servicios")
+            .withRegistry(meterRegistry);
+      this.serializations = Timer.builder(SERIALIZATION)
+            .description("Duración de la serialización JSON de las respuestas")
+            .withRegistry(meterRegistry);
+      this.serializedBytes = DistributionSummary.builder(SERIALIZATION_BYTES)
+            .description("Tamaño de las respuestas JSON")
+            .baseUnit("bytes")
+            .withRegistry(meterRegistry);
+   }
+
+   /**
+    * Registra la entidad a la que corresponde un DTO, para etiquetar su serialización.
+    *
+    * @param dtoClass    el tipo del DTO
+    * @param entityClass el tipo de la entidad
+    */
+   public void register(Class<?> dtoClass, Class<?> entityClass) {
+      entitiesByDto.put(dtoClass, entityClass.getSimpleName());
+   }
+
+   /**
+    * Obtiene el nombre de la entidad a la que corresponde un DTO.
+    *
+    * @param dtoClass el tipo del DTO
+    * @return el nombre de la entidad, o vacío si el tipo no es un DTO de ningún servicio
+    */
+   public Optional<String> entityOf(Class<?> dtoClass) {
+      return Optional.ofNullable(entitiesByDto.get(dtoClass));
+   }
+
+   /**
+    * Ejecuta una operación de un servicio y registra su duración.
+    *
+    * @param entity    el nombre de la entidad
+    * @param operation el nombre de la operación
+    * @param body      la operación, que recibe la medición para registrar sus fases
+    * @param <T>       el tipo del resultado
+    * @return el resultado de la operación
+    */
+   public <T> T record(String entity, String operation, Function<Operation, T> body) {
+      long start = System.nanoTime();
+      String exception = "none";
+      try {
+         return body.apply(new Operation(entity, operation));
+      } catch (RuntimeException e) {
+         exception = e.getClass().getSimpleName();
+         throw e;
+      } finally {
+         operations.withTags("entity", entity, "operation", operation, "exception", exception)
+               .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+   }
+
+   /**
+    * Registra la serialización de una respuesta.
+    *
+    * @param entity el nombre de la entidad
+    * @param nanos  la duración de la serialización, en nanosegundos
+    * @param bytes  el tamaño de la respuesta
+    */
+   public void recordSerialization(String entity, long nanos, long bytes) {
+      serializations.withTags("entity", entity).record(nanos, TimeUnit.NANOSECONDS);
+      serializedBytes.withTags("entity", entity).record(bytes);
+   }
+
+   /**
+    * Medición de una operación en curso.
+    */
+   public final class Operation {
+
+      private final String entity;
+      private final String operation;
+
+      private Operation(String entity, String operation) {
+         this.entity = entity;
+         this.operation = operation;
+      }
+
+      /**
+       * Ejecuta una llamada al repositorio y registra su duración.
+       *
+       * @param call la llamada
+       * @param <T>  el tipo del resultado
+       * @return el resultado de la llamada
+       */
+      public <T> T repository(Supplier<T> call) {
+         return phase("repository", call);
+      }
+
+      /**
+       * Ejecuta una conversión entre entidades y DTOs y registra su duración.
+       *
+       * @param call la conversión
+       * @param <T>  el tipo del resultado
+       * @return el resultado de la conversión
+       */
+      public <T> T mapping(Supplier<T> call) {
+         return phase("mapping", call);
+      }
+
+      /**
+       * Registra el número de entidades devueltas por una lectura.
+       *
+       * @param result el resultado de la lectura
+       * @param size   el número de entidades
+       * @param <T>    el tipo del resultado
+       * @return el mismo resultado
+       */
+      public <T> T results(T result, int size) {
+         results.withTags("entity", entity, "operation", operation).record(size);
+         return result;
+      }
+
+      private <T> T phase(String phase, Supplier<T> call) {
+         long start = System.nanoTime();
+         try {
+            return call.get();
+         } finally {
+            phases.withTags("entity", entity, "operation", operation, "phase", phase)
+                  .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+         }
+      }
+   }
+}
@@ -0,0 +1,105 @@
+package com.example.api.services;
+
+import com.example.api.repositories.BaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proceso periódico que borra definitivamente las filas inactivas de las entidades
+ * con borrado lógico. Recorre los identificadores inactivos por orden ascendente y
+ * los borra en lotes, cada uno en su propia transacción. Si un lote no se puede borrar,
+ * normalmente porque alguna de sus filas sigue referenciada desde otra tabla, sus filas
+ * se borran una a una: las que siguen sin poder borrarse se registran y se omiten hasta
+ * la siguiente ejecución, sin impedir que se purgue el resto. Los {@link PurgeListener}
+ * reciben cada lote antes de borrarlo y liberan después lo que dependía de sus filas.
+ */
+@Component
+public class SoftDeletePurgeJob {
+
+   private static final Logger logger = LoggerFactory.getLogger(SoftDeletePurgeJob.class);
+
+   private final List<BaseRepository<?, ?>> repositories;
+   private final List<PurgeListener> listeners;
+   private final int batchSize;
+
+   /**
+    * Constructor del proceso de purga.
+    *
+    * @param repositories los repositorios de la aplicación
+    * @param listeners    los componentes que liberan lo que dependía de las filas borradas
+    * @param batchSize    el número de filas borradas en cada lote
+    */
+   public SoftDeletePurgeJob(List<BaseRepository<?, ?>> repositories, List<PurgeListener> listeners,
+                             @Value("${app.soft-delete.purge.batch-size:500}") int batchSize) {
+      this.repositories = repositories;
+      this.listeners = listeners;
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * Borra las filas inactivas de todas las entidades con borrado lógico.
+    *
+    * @return el número total de filas borradas
+    */
+   @Scheduled(cron = "${app.soft-delete.purge.cron:0 0 3 * * *}")
+   public long purge() {
+      long purged = 0;
+      for (BaseRepository<?, ?> repository : repositories) {
+         if (repository.isSoftDelete()) {
+            purged += purge(repository);
+         }
+      }
+      return purged;
+   }
+
+   private <ID extends Serializable> long purge(BaseRepository<?, ID> repository) {
+      long purged = 0;
+      ID afterId = null;
+      List<ID> ids;
+      do {
+         ids = repository.findInactiveIds(afterId, batchSize);
+         if (ids.isEmpty()) {
+            break;
+         }
+         List<Runnable> afterPurge = new ArrayList<>(listeners.size());
+         for (PurgeListener listener : listeners) {
+            afterPurge.add(listener.beforePurge(repository, ids));
+         }
+         try {
+            repository.deleteAllByIdInBatch(ids);
+            purged += ids.size();
+         } catch (DataAccessException e) {
+            logger.info("No se pudo purgar un lote de {} filas inactivas, se borran una a una: {}",
+                  ids.size(), e.getMessage());
+            purged += purgeOneByOne(repository, ids);
+         }
+         afterPurge.forEach(Runnable::run);
+         afterId = ids.get(ids.size() - 1);
+      } while (ids.size() == batchSize);
+      if (purged > 0) {
+         logger.info("Purgadas {} filas inactivas", purged);
+      }
+      return purged;
+   }
+
+   private <ID extends Serializable> long purgeOneByOne(BaseRepository<?, ID> repository, List<ID> ids) {
+      long purged = 0;
+      for (ID id : ids) {
+         try {
+            repository.deleteAllByIdInBatch(List.of(id));
+            purged++;
+         } catch (DataAccessException e) {
+            logger.warn("No se pudo purgar la fila inactiva {}: {}", id, e.getMessage());
+         }
+      }
+      return purged;
+   }
+}
@@ -0,0 +1,12 @@
+package com.example.api.services;
+
+import java.nio.file.Path;
+
+/**
+ * Archivo recibido que se ha transferido a un archivo temporal propio.
+ *
+ * @param path        la ruta del archivo temporal
+ * @param contentHash el hash SHA-256 del contenido, en hexadecimal, calculado durante la transferencia
+ */
+public record SpooledFile(Path path, String contentHash) {
+}
@@ -0,0 +1,10 @@
+package com.example.api.services;
+
+/**
+ * Imagen guardada por un {@link ImageStorage}.
+ *
+ * @param id  el identificador de la imagen en el almacenamiento, que se guarda en {@code Imagen.imageId}
+ * @param url la URL pública de la imagen
+ */
+public record StoredImage(String id, String url) {
+}
@@ -0,0 +1,192 @@
+package com.example.api.services;
+
+import com.example.api.dto.UploadJob;
+import com.example.api.entities.Imagen;
+import com.example.api.utils.ServiceUnavailableException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecutor de los trabajos de subida de imágenes asíncronos.
+ * <p>
+ * Cada trabajo se ejecuta en su propio hilo virtual, de modo que la espera de la
+ * respuesta remota no ocupa un hilo de plataforma. La concurrencia está acotada por un
+ * semáforo: los trabajos que no caben esperan en cola, y si la cola está llena el
+ * trabajo se rechaza. El estado de cada trabajo se conserva durante un tiempo para que
+ * los clientes puedan consultarlo.
+ * <p>
+ * Métricas publicadas:
+ * <ul>
+ *    <li>{@code imagen.upload.jobs.queued}: trabajos en cola.</li>
+ *    <li>{@code imagen.upload.jobs.running}: trabajos en ejecución.</li>
+ *    <li>{@code imagen.upload.jobs.wait}: tiempo de espera en cola.</li>
+ *    <li>{@code imagen.upload.jobs.duration}: duración de la ejecución, con la etiqueta
+ *        {@code outcome} ({@code success} o {@code failure}).</li>
+ *    <li>{@code imagen.upload.jobs.rejected}: trabajos rechazados por tener la cola llena.</li>
+ * </ul>
+ */
+@Component
+public class UploadJobs {
+
+   private static final Logger logger = LoggerFactory.getLogger(UploadJobs.class);
+
+   private static final String METRIC_PREFIX = "imagen.upload.jobs";
+
+   /**
+    * Trabajo de subida: sube la imagen, guarda su fila y devuelve la entidad guardada.
+    */
+   @FunctionalInterface
+   public interface Task {
+      Imagen run() throws Exception;
+   }
+
+   private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+         Thread.ofVirtual().name("upload-", 0).factory());
+   private final Semaphore permits;
+   private final int maxConcurrent;
+   private final int maxQueued;
+   private final AtomicInteger queued = new AtomicInteger();
+   private final Cache<String, UploadJob> jobs;
+   private final Timer waitTimer;
+   private final Timer successTimer;
+   private final Timer failureTimer;
+   private final Counter rejected;
+
+   /**
+    * Constructor del ejecutor.
+    *
+    * @param meterRegistry el registro donde se publican las métricas
+    * @param maxConcurrent el número máximo de subidas simultáneas
+    * @param maxQueued     el número máximo de trabajos en cola
+    * @param retention     el tiempo que se conserva el estado de cada trabajo
+    */
+   public UploadJobs(MeterRegistry meterRegistry,
+                     @Value("${app.upload.jobs.max-concurrent:8}") int maxConcurrent,
+                     @Value("${app.upload.jobs.max-queued:200}") int maxQueued,
+                     @Value("${app.upload.jobs.retention:1h}") Duration retention) {
+      this.maxConcurrent = maxConcurrent;
+      this.maxQueued = maxQueued;
+      this.permits = new Semaphore(maxConcurrent, true);
+      this.jobs = Caffeine.newBuilder().expireAfterWrite(retention).build();
+      Gauge.builder(METRIC_PREFIX + ".queued", queued, AtomicInteger::get)
+            .description("Trabajos de subida en cola")
+            .register(meterRegistry);
+      Gauge.builder(METRIC_PREFIX + ".running", permits, p -> this.maxConcurrent - p.availablePermits())
+            .description("Trabajos de subida en ejecución")
+            .register(meterRegistry);
+      this.waitTimer = Timer.builder(METRIC_PREFIX + ".wait")
+            .description("Tiempo de espera en cola de los trabajos de subida")
+            .register(meterRegistry);
+      this.successTimer = Timer.builder(METRIC_PREFIX + ".duration").tag("outcome", "success")
+            .description("Duración de los trabajos de subida")
+            .register(meterRegistry);
+      this.failureTimer = Timer.builder(METRIC_PREFIX + ".duration").tag("outcome", "failure")
+            .description("Duración de los trabajos de subida")
+            .register(meterRegistry);
+      this.rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+            .description("Trabajos de subida rechazados por tener la cola llena")
+            .register(meterRegistry);
+   }
+
+   /**
+    * Acepta un trabajo y lo ejecuta en segundo plano.
+    *
+    * @param imagenId el identificador de la imagen que se actualiza, o null si se crea una nueva
+    * @param task     el trabajo
+    * @param cleanup  la limpieza de los recursos del trabajo, que se ejecuta siempre al terminar
+    *                 o si el trabajo se rechaza
+    * @return el estado inicial del trabajo
+    * @throws ServiceUnavailableException si la cola está llena o el ejecutor se está deteniendo
+    */
+   public UploadJob submit(Long imagenId, Task task, Runnable cleanup) {
+      if (queued.getAndUpdate(n -> n < maxQueued ? n + 1 : n) >= maxQueued) {
+         rejected.increment();
+         cleanup.run();
+         throw new ServiceUnavailableException("Demasiadas subidas pendientes");
+      }
+      UploadJob job = UploadJob.pending(UUID.randomUUID().toString(), imagenId);
+      jobs.put(job.getId(), job);
+      long acceptedAt = System.nanoTime();
+      try {
+         executor.execute(() -> {
+            try {
+               run(job, task, acceptedAt);
+            } finally {
+               cleanup.run();
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         queued.decrementAndGet();
+         cleanup.run();
+         jobs.invalidate(job.getId());
+         throw new ServiceUnavailableException("El servicio de subidas se está deteniendo");
+      }
+      return job;
+   }
+
+   /**
+    * Obtiene el estado actual de un trabajo.
+    *
+    * @param id el identificador del trabajo
+    * @return el estado del trabajo, si existe y no ha caducado
+    */
+   public Optional<UploadJob> find(String id) {
+      return Optional.ofNullable(jobs.getIfPresent(id));
+   }
+
+   private void run(UploadJob job, Task task, long acceptedAt) {
+      try {
+         permits.acquire();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         queued.decrementAndGet();
+         jobs.put(job.getId(), job.failed("Subida cancelada"));
+         return;
+      }
+      queued.decrementAndGet();
+      long startedAt = System.nanoTime();
+      waitTimer.record(startedAt - acceptedAt, TimeUnit.NANOSECONDS);
+      jobs.put(job.getId(), job.running());
+      try {
+         Imagen imagen = task.run();
+         jobs.put(job.getId(), job.done(imagen.getId(), imagen.getImageUrl()));
+         successTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+      } catch (Exception e) {
+         logger.error("Error en el trabajo de subida {}", job.getId(), e);
+         jobs.put(job.getId(), job.failed("Error al subir la imagen"));
+         failureTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+      } finally {
+         permits.release();
+      }
+   }
+
+   /**
+    * Deja de aceptar trabajos y espera un tiempo a que terminen los pendientes.
+    */
+   @PreDestroy
+   public void shutdown() throws InterruptedException {
+      executor.shutdown();
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+         executor.shutdownNow();
+      }
+   }
+}
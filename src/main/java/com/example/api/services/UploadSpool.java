@@ -0,0 +1,75 @@
+package com.example.api.services;
+
+import com.example.api.utils.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Transfiere los archivos recibidos a archivos temporales propios, de los que el
+ * {@link ImageStorage} configurado los sube o los mueve después.
+ * <p>
+ * La imagen no se carga en memoria: el archivo recibido, que el contenedor ya ha
+ * volcado a disco, se copia por bloques a un archivo temporal con nombre único,
+ * calculando el hash SHA-256 del contenido en la misma pasada. Solo se aceptan imágenes
+ * de los formatos que reconoce {@link ImageFormats} a partir del contenido.
+ */
+@Component
+public class UploadSpool {
+
+    private final Path uploadDir;
+
+    /**
+     * Constructor del componente.
+     *
+     * @param uploadDir el directorio de los archivos temporales de subida
+     */
+    public UploadSpool(@Value("${app.upload.tmp-dir:${java.io.tmpdir}}") Path uploadDir) {
+        this.uploadDir = uploadDir;
+    }
+
+    /**
+     * Transfiere un archivo recibido a un archivo temporal con nombre único y calcula
+     * el hash de su contenido durante la copia. El llamante es responsable de borrarlo.
+     *
+     * @param multipartFile el archivo recibido
+     * @return el archivo temporal y el hash SHA-256 de su contenido
+     * @throws ValidationException si el contenido no es una imagen de un formato admitido
+     * @throws IOException         si no se puede crear o escribir el archivo
+     */
+    public SpooledFile spool(MultipartFile multipartFile) throws IOException {
+        Files.createDirectories(uploadDir);
+        Path file = Files.createTempFile(uploadDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (ImageFormats.extension(file).isEmpty()) {
+                throw new ValidationException("El archivo no es una imagen PNG, JPEG, GIF o BMP");
+            }
+            return new SpooledFile(file, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+}
@@ -22,4 +22,13 @@ public class UsuarioServiceImpl extends BaseServiceImpl<Usuario, UsuarioDTO,Long
             EntityManager entityManager) {
         super(baseRepository, mapper, entityManager);
     }
+
+    /**
+     * El perfil de un usuario, con su foto, apenas cambia después del registro, así que
+     * se guarda en la caché de DTOs.
+     */
+    @Override
+    protected boolean isCacheable() {
+        return true;
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.api.utils;
+
+/**
+ * Clase base de las excepciones que representan un resultado esperado de una petición,
+ * como un recurso que no existe o unos datos no válidos, y que {@link GlobalExceptionHandler}
+ * convierte en una respuesta 4xx o 503.
+ * <p>
+ * No registran la traza de la pila ni las excepciones suprimidas: la traza no aporta nada al
+ * diagnóstico de estos casos y recorrer la pila es lo más costoso de crear una excepción, lo
+ * que importa cuando clientes desactualizados o escáneres piden identificadores inexistentes.
+ */
+public abstract class DomainException extends RuntimeException {
+
+   /**
+    * Crea una nueva excepción sin traza de la pila.
+    *
+    * @param message el mensaje que describe la excepción
+    */
+   protected DomainException(String message) {
+      super(message, null, false, false);
+   }
+}
@@ -3,7 +3,7 @@ package com.example.api.utils;
 /**
  * Excepción que se lanza cuando se intenta crear un recurso que ya existe.
  */
-public class DuplicateResourceException extends RuntimeException {
+public class DuplicateResourceException extends DomainException {
 
    /**
     * Crea una nueva instancia de DuplicateResourceException con un mensaje específico.
@@ -11,6 +11,6 @@ public class DuplicateResourceException extends RuntimeException {
     * @param message el mensaje que describe la excepción
     */
    public DuplicateResourceException(String message) {
-      super(message); // Llama al constructor de la clase padre (RuntimeException) con el mensaje
+      super(message); // Llama al constructor de la clase padre (DomainException) con el mensaje
    }
 }
@@ -0,0 +1,135 @@
+package com.example.api.utils;
+
+import com.example.api.dto.BaseDTO;
+import com.example.api.dto.DtoGraph;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Cálculo de los ETag de las respuestas a partir de las versiones de las entidades.
+ * <p>
+ * El ETag de un DTO es su versión entre comillas, por ejemplo {@code "3"}. Si el DTO
+ * incluye otras entidades, se le añade un resumen de sus identificadores y versiones,
+ * por ejemplo {@code "3-5f1c0a2b9e4d7c16"}, de modo que cambia también cuando se
+ * modifica cualquiera de ellas. El resumen se obtiene del propio DTO, si ya está en la
+ * caché de DTOs, o de proyecciones que solo leen identificadores y versiones. Las precondiciones {@code If-Match} solo comparan la
+ * versión, que es la parte que protege la actualización de la propia entidad.
+ * <p>
+ * El ETag de una página es un resumen del total, la posición y el identificador y la
+ * versión de cada entidad de la página.
+ */
+public final class EntityTags {
+
+   private static final int DIGEST_BYTES = 8;
+
+   private EntityTags() {
+   }
+
+   /**
+    * Calcula el ETag de un DTO.
+    *
+    * @param dto el DTO, con su versión
+    * @return el ETag entre comillas, o {@code null} si el DTO no tiene versión
+    */
+   public static String of(BaseDTO dto) {
+      if (dto == null || dto.getVersion() == null) {
+         return null;
+      }
+      TreeSet<String> nested = new TreeSet<>();
+      for (BaseDTO item : DtoGraph.nested(dto)) {
+         nested.add(item.getClass().getSimpleName() + ':' + item.getId() + ':' + item.getVersion());
+      }
+      String tag = nested.isEmpty()
+            ? String.valueOf(dto.getVersion())
+            : dto.getVersion() + "-" + digest(String.join(",", nested));
+      return '"' + tag + '"';
+   }
+
+   /**
+    * Calcula el ETag de un DTO sin cargarlo.
+    *
+    * @param versions    el identificador y la versión de la entidad y de las entidades a
+    *                    las que apunta, en orden
+    * @param collections el identificador y la versión de los elementos de las colecciones
+    *                    de la entidad, en orden
+    * @return el ETag entre comillas
+    */
+   public static String ofEntity(Object[] versions, List<Object[]> collections) {
+      if (versions.length == 2 && collections.isEmpty()) {
+         return "\"" + versions[1] + '"';
+      }
+      StringBuilder content = new StringBuilder();
+      append(content, List.<Object[]>of(versions));
+      content.append('#');
+      append(content, collections);
+      return "\"" + versions[1] + '-' + digest(content.toString()) + '"';
+   }
+
+   /**
+    * Calcula el ETag de una página de entidades.
+    *
+    * @param position la página, el tamaño y el orden solicitados
+    * @param total    el número total de entidades
+    * @param versions    el identificador y la versión de cada entidad de la página y de
+    *                    las entidades a las que apunta, en orden
+    * @param collections el identificador y la versión de los elementos de las colecciones
+    *                    de las entidades de la página, en orden
+    * @return el ETag entre comillas
+    */
+   public static String ofPage(String position, long total, List<Object[]> versions, List<Object[]> collections) {
+      StringBuilder content = new StringBuilder(position).append('|').append(total);
+      append(content, versions);
+      content.append('#');
+      append(content, collections);
+      return "\"p-" + digest(content.toString()) + '"';
+   }
+
+   private static void append(StringBuilder content, List<Object[]> rows) {
+      for (Object[] row : rows) {
+         content.append('|');
+         for (int i = 0; i < row.length; i++) {
+            content.append(i == 0 ? "" : ":").append(row[i]);
+         }
+      }
+   }
+
+   /**
+    * Obtiene la versión esperada de una cabecera {@code If-Match}.
+    *
+    * @param ifMatch el valor de la cabecera, o {@code null} si no se envió
+    * @return la versión indicada, o {@code null} si no hay cabecera o es {@code *},
+    *         en cuyo caso basta con que la entidad exista
+    * @throws PreconditionFailedException si el valor no es un ETag de una entidad,
+    *                                     por ejemplo un ETag débil o de otro recurso
+    */
+   public static Long expectedVersion(String ifMatch) {
+      if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+         return null;
+      }
+      String tag = ifMatch.trim();
+      if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+         throw new PreconditionFailedException("If-Match no coincide con la versión actual");
+      }
+      tag = tag.substring(1, tag.length() - 1);
+      int separator = tag.indexOf('-');
+      try {
+         return Long.valueOf(separator < 0 ? tag : tag.substring(0, separator));
+      } catch (NumberFormatException e) {
+         throw new PreconditionFailedException("If-Match no coincide con la versión actual");
+      }
+   }
+
+   private static String digest(String content) {
+      try {
+         byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+         return HexFormat.of().formatHex(hash, 0, DIGEST_BYTES);
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+}
@@ -0,0 +1,67 @@
+package com.example.api.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limita los mensajes de error registrados por tipo de excepción a un máximo por ventana de
+ * tiempo fija. Los mensajes omitidos se cuentan y se notifican con el siguiente mensaje
+ * registrado del mismo tipo, de modo que una ráfaga de errores iguales no satura el registro
+ * pero sigue siendo visible.
+ */
+final class ErrorLogLimiter {
+
+   private final int maxPerWindow;
+   private final long windowNanos;
+   private final Map<Class<?>, Window> windows = new ConcurrentHashMap<>();
+
+   /**
+    * Constructor del limitador.
+    *
+    * @param maxPerWindow el número máximo de mensajes de cada tipo por ventana
+    * @param window       la duración de la ventana
+    */
+   ErrorLogLimiter(int maxPerWindow, Duration window) {
+      this.maxPerWindow = maxPerWindow;
+      this.windowNanos = window.toNanos();
+   }
+
+   /**
+    * Decide si se registra un mensaje de un tipo de excepción.
+    *
+    * @param type el tipo de la excepción
+    * @return -1 si el mensaje debe omitirse; si no, el número de mensajes del mismo tipo
+    * omitidos desde el último registrado
+    */
+   long tryAcquire(Class<?> type) {
+      long now = System.nanoTime();
+      return windows.computeIfAbsent(type, key -> new Window(now)).tryAcquire(now);
+   }
+
+   private final class Window {
+
+      private long start;
+      private int logged;
+      private long suppressed;
+
+      Window(long start) {
+         this.start = start;
+      }
+
+      synchronized long tryAcquire(long now) {
+         if (now - start >= windowNanos) {
+            start = now;
+            logged = 0;
+         }
+         if (logged >= maxPerWindow) {
+            suppressed++;
+            return -1;
+         }
+         logged++;
+         long omitted = suppressed;
+         suppressed = 0;
+         return omitted;
+      }
+   }
+}
@@ -1,17 +1,31 @@
 package com.example.api.utils;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import java.time.Duration;
 
 /**
  * Clase para manejar globalmente las excepciones que ocurren en la aplicación.
  * Proporciona respuestas estandarizadas para diferentes tipos de excepciones.
+ * <p>
+ * Cada respuesta de error se cuenta en la métrica {@value #ERRORS}, por excepción y código de
+ * estado, y se registra con un máximo de {@code app.errors.log.max-per-window} mensajes por
+ * tipo de excepción cada {@code app.errors.log.window}. Solo los errores internos se registran
+ * con la traza de la pila; el resto son resultados esperados de la petición.
  */
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -19,6 +33,25 @@ public class GlobalExceptionHandler {
    // Logger para registrar los errores
    private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+   static final String ERRORS = "api.errors";
+
+   private final MeterRegistry meterRegistry;
+   private final ErrorLogLimiter logLimiter;
+
+   /**
+    * Constructor del manejador.
+    *
+    * @param meterRegistry el registro donde se publican las métricas
+    * @param maxPerWindow  el número máximo de mensajes registrados por tipo de excepción y ventana
+    * @param window        la duración de la ventana
+    */
+   public GlobalExceptionHandler(MeterRegistry meterRegistry,
+                                 @Value("${app.errors.log.max-per-window:10}") int maxPerWindow,
+                                 @Value("${app.errors.log.window:1m}") Duration window) {
+      this.meterRegistry = meterRegistry;
+      this.logLimiter = new ErrorLogLimiter(maxPerWindow, window);
+   }
+
    /**
     * Manejo de excepciones cuando no se encuentra un recurso.
     *
@@ -28,11 +61,25 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(ResourceNotFoundException.class)
    public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex, WebRequest request) {
-      logger.error("ResourceNotFoundException: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.NOT_FOUND, ex); // Cuenta y registra el error
       ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND.value(), "El recurso solicitado no existe");
       return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND); // Devuelve la respuesta con estado 404
    }
 
+   /**
+    * Manejo de las peticiones a rutas que no existen o que no están expuestas, como los
+    * endpoints de Actuator excluidos.
+    *
+    * @param ex la excepción de tipo NoResourceFoundException
+    * @return una respuesta con el error correspondiente y el código de estado 404 (NOT FOUND)
+    */
+   @ExceptionHandler(NoResourceFoundException.class)
+   public ResponseEntity<ErrorResponse> handleNoResourceFoundException(NoResourceFoundException ex) {
+      record(HttpStatus.NOT_FOUND, ex); // Cuenta y registra el error
+      ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND.value(), "La ruta solicitada no existe");
+      return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND); // Devuelve la respuesta con estado 404
+   }
+
    /**
     * Manejo de excepciones de validación.
     *
@@ -41,7 +88,7 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(ValidationException.class)
    public ResponseEntity<ErrorResponse> handleValidationException(ValidationException ex) {
-      logger.error("ValidationException: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.BAD_REQUEST, ex); // Cuenta y registra el error
       ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value(), "Error en la validación de los datos");
       return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST); // Devuelve la respuesta con estado 400
    }
@@ -54,7 +101,7 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(NoSuchFieldException.class)
    public ResponseEntity<ErrorResponse> handleNoSuchFieldException(NoSuchFieldException ex) {
-      logger.error("NoSuchFieldException: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.BAD_REQUEST, ex); // Cuenta y registra el error
       ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value(), "Atributo no válido");
       return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST); // Devuelve la respuesta con estado 400
    }
@@ -67,11 +114,53 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(DuplicateResourceException.class)
    public ResponseEntity<ErrorResponse> handleDuplicateResourceException(DuplicateResourceException ex) {
-      logger.error("DuplicateResourceException: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.CONFLICT, ex); // Cuenta y registra el error
       ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.CONFLICT.value(), "El recurso ya existe");
       return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT); // Devuelve la respuesta con estado 409
    }
 
+   /**
+    * Manejo de excepciones de precondición no cumplida.
+    *
+    * @param ex la excepción de tipo PreconditionFailedException
+    * @return una respuesta con el error correspondiente y el código de estado 412 (PRECONDITION FAILED)
+    */
+   @ExceptionHandler(PreconditionFailedException.class)
+   public ResponseEntity<ErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+      record(HttpStatus.PRECONDITION_FAILED, ex); // Cuenta y registra el error
+      ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.PRECONDITION_FAILED.value(), "La entidad ha sido modificada");
+      return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED); // Devuelve la respuesta con estado 412
+   }
+
+   /**
+    * Manejo de conflictos de concurrencia optimista: otra transacción modificó la
+    * entidad entre su lectura y su escritura.
+    *
+    * @param ex la excepción de tipo OptimisticLockingFailureException u OptimisticLockException
+    * @return una respuesta con el error correspondiente y el código de estado 409 (CONFLICT)
+    */
+   @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+   public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(RuntimeException ex) {
+      record(HttpStatus.CONFLICT, ex); // Cuenta y registra el error
+      ErrorResponse errorResponse = new ErrorResponse("La entidad ha sido modificada por otra petición", HttpStatus.CONFLICT.value(), "Vuelva a leer la entidad y repita la operación");
+      return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT); // Devuelve la respuesta con estado 409
+   }
+
+   /**
+    * Manejo de excepciones cuando el servicio no tiene capacidad para más trabajo.
+    *
+    * @param ex la excepción de tipo ServiceUnavailableException
+    * @return una respuesta con el error correspondiente y el código de estado 503 (SERVICE UNAVAILABLE)
+    */
+   @ExceptionHandler(ServiceUnavailableException.class)
+   public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+      record(HttpStatus.SERVICE_UNAVAILABLE, ex); // Cuenta y registra el error
+      ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Inténtelo de nuevo más tarde");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "5")
+            .body(errorResponse); // Devuelve la respuesta con estado 503
+   }
+
    /**
     * Manejo de excepciones de operación fallida.
     *
@@ -80,7 +169,7 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(OperationFailedException.class)
    public ResponseEntity<ErrorResponse> handleOperationFailedException(OperationFailedException ex) {
-      logger.error("OperationFailedException: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.INTERNAL_SERVER_ERROR, ex); // Cuenta y registra el error
       ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR.value(), "La operación no pudo completarse");
       return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR); // Devuelve la respuesta con estado 500
    }
@@ -93,6 +182,8 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(DataIntegrityViolationException.class)
    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+      record(HttpStatus.CONFLICT, ex); // Cuenta y registra el error
+
       // Extraer detalles del mensaje de la excepción
       String detalles = ex.getRootCause().getMessage();
 
@@ -121,16 +212,19 @@ public class GlobalExceptionHandler {
     */
    @ExceptionHandler(Exception.class)
    public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex, WebRequest request) {
-      logger.error("Exception: {}", ex.getMessage(), ex); // Registra el error
+      record(HttpStatus.INTERNAL_SERVER_ERROR, ex); // Cuenta y registra el error
 
       // Obtiene información sobre la solicitud y la ubicación del error
       String path = request.getDescription(false);
-      StackTraceElement element = ex.getStackTrace()[0];
-      String detalles = String.format("Error en %s.%s() en %s: %s",
-            element.getClassName(),
-            element.getMethodName(),
-            path,
-            ex.getMessage()); // Detalles del error
+      // La JVM puede omitir la traza de las excepciones que se repiten mucho
+      StackTraceElement[] stackTrace = ex.getStackTrace();
+      String detalles = stackTrace.length == 0
+            ? String.format("Error en %s: %s", path, ex.getMessage())
+            : String.format("Error en %s.%s() en %s: %s",
+                  stackTrace[0].getClassName(),
+                  stackTrace[0].getMethodName(),
+                  path,
+                  ex.getMessage()); // Detalles del error
 
       ErrorResponse errorResponse = new ErrorResponse(
             "Ha ocurrido un error interno",
@@ -140,4 +234,32 @@ public class GlobalExceptionHandler {
 
       return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR); // Devuelve la respuesta con estado 500
    }
+
+   /**
+    * Cuenta una respuesta de error y registra su excepción si no se ha superado el máximo de
+    * mensajes de su tipo en la ventana actual. Los errores internos se registran como ERROR
+    * con la traza de la pila, y el resto como WARN con el mensaje.
+    *
+    * @param status el código de estado de la respuesta
+    * @param ex     la excepción
+    */
+   private void record(HttpStatus status, Exception ex) {
+      String type = ex.getClass().getSimpleName();
+      Counter.builder(ERRORS)
+            .description("Respuestas de error por excepción y código de estado")
+            .tag("exception", type)
+            .tag("status", String.valueOf(status.value()))
+            .register(meterRegistry)
+            .increment();
+      long omitted = logLimiter.tryAcquire(ex.getClass());
+      if (omitted < 0) {
+         return;
+      }
+      String suffix = omitted > 0 ? " (" + omitted + " mensajes omitidos)" : "";
+      if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+         logger.error("{}: {}{}", type, ex.getMessage(), suffix, ex);
+      } else {
+         logger.warn("{}: {}{}", type, ex.getMessage(), suffix);
+      }
+   }
 }
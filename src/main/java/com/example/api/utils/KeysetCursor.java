@@ -0,0 +1,54 @@
+package com.example.api.utils;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de la paginación por clave (keyset). Guarda el atributo de orden,
+ * la dirección y la posición de la última fila devuelta, es decir, el valor de
+ * la clave de orden y el identificador que desempata entre valores iguales.
+ * <p>
+ * Se serializa como texto Base64 apto para URLs; los clientes deben tratarlo
+ * como un valor opaco y devolverlo tal cual para pedir la página siguiente.
+ *
+ * @param sortKey   el atributo por el que se ordena
+ * @param direction la dirección del orden
+ * @param lastKey   el valor de la clave de orden de la última fila, como texto
+ * @param lastId    el identificador de la última fila, como texto
+ */
+public record KeysetCursor(String sortKey, Sort.Direction direction, String lastKey, String lastId) {
+
+   private static final char SEPARATOR = '\u001F';
+
+   /**
+    * Codifica el cursor como texto opaco.
+    *
+    * @return el cursor codificado
+    */
+   public String encode() {
+      String raw = sortKey + SEPARATOR + direction.name() + SEPARATOR + lastKey + SEPARATOR + lastId;
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+   }
+
+   /**
+    * Decodifica un cursor recibido de un cliente.
+    *
+    * @param token el cursor codificado
+    * @return el cursor
+    * @throws ValidationException si el cursor no es válido
+    */
+   public static KeysetCursor decode(String token) {
+      try {
+         String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+         String[] parts = raw.split(String.valueOf(SEPARATOR), -1);
+         if (parts.length != 4) {
+            throw new ValidationException("Cursor no válido");
+         }
+         return new KeysetCursor(parts[0], Sort.Direction.valueOf(parts[1]), parts[2], parts[3]);
+      } catch (IllegalArgumentException e) {
+         throw new ValidationException("Cursor no válido");
+      }
+   }
+}
@@ -16,4 +16,15 @@ public class OperationFailedException extends RuntimeException {
    public OperationFailedException(String message) {
       super(message); // Llama al constructor de la clase base con el mensaje proporcionado.
    }
+
+   /**
+    * Constructor que crea una nueva instancia de OperationFailedException a partir del
+    * error que impidió completar la operación, que se conserva para el registro.
+    *
+    * @param message Mensaje que describe el motivo de la excepción.
+    * @param cause   el error original
+    */
+   public OperationFailedException(String message, Throwable cause) {
+      super(message, cause);
+   }
 }
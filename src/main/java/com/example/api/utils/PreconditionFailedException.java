@@ -0,0 +1,18 @@
+package com.example.api.utils;
+
+/**
+ * Excepción que se lanza cuando no se cumple la precondición de una petición
+ * condicional, por ejemplo cuando la versión indicada en {@code If-Match} no es la
+ * versión actual de la entidad.
+ */
+public class PreconditionFailedException extends DomainException {
+
+   /**
+    * Crea una nueva instancia de PreconditionFailedException con un mensaje específico.
+    *
+    * @param message el mensaje que describe la excepción
+    */
+   public PreconditionFailedException(String message) {
+      super(message);
+   }
+}
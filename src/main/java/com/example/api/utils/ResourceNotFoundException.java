@@ -2,16 +2,16 @@ package com.example.api.utils;
 
 /**
  * Excepción personalizada que se lanza cuando un recurso solicitado no se encuentra.
- * Esta clase extiende RuntimeException, lo que significa que es una excepción
- * no comprobada (unchecked) y no requiere declaración en los métodos.
+ * Esta clase extiende DomainException, lo que significa que es una excepción
+ * no comprobada (unchecked) que no registra la traza de la pila.
  */
-public class ResourceNotFoundException extends RuntimeException {
+public class ResourceNotFoundException extends DomainException {
 
    /**
     * Constructor que crea una nueva instancia de ResourceNotFoundException.
     *
     * @param message Mensaje que describe el motivo de la excepción. Este mensaje
-    *                se pasará a la clase base RuntimeException.
+    *                se pasará a la clase base DomainException.
     */
    public ResourceNotFoundException(String message) {
       super(message); // Llama al constructor de la clase base con el mensaje proporcionado.
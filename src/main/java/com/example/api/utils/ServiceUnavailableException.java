@@ -0,0 +1,17 @@
+package com.example.api.utils;
+
+/**
+ * Excepción que se lanza cuando el servicio no tiene capacidad para aceptar más
+ * trabajo en este momento; el cliente puede reintentar más tarde.
+ */
+public class ServiceUnavailableException extends DomainException {
+
+   /**
+    * Crea una nueva instancia de ServiceUnavailableException con un mensaje específico.
+    *
+    * @param message el mensaje que describe la excepción
+    */
+   public ServiceUnavailableException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,69 @@
+package com.example.api;
+
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Usuario;
+
+/**
+ * Entidades de prueba cuyos valores se derivan de un nombre, de modo que cada prueba
+ * crea las suyas sin chocar con los índices únicos de las demás.
+ */
+public final class Fixtures {
+
+   /**
+    * Firma con la que empieza todo archivo PNG.
+    */
+   private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+   private Fixtures() {
+   }
+
+   /**
+    * Crea, sin guardarla, una imagen sin archivo subido.
+    *
+    * @param name     el nombre de la imagen
+    * @param imageUrl la URL de la imagen
+    * @param imageId  el identificador de la imagen en el almacenamiento
+    * @return la imagen
+    */
+   public static Imagen imagen(String name, String imageUrl, String imageId) {
+      Imagen imagen = new Imagen();
+      imagen.setName(name);
+      imagen.setImageUrl(imageUrl);
+      imagen.setImageId(imageId);
+      imagen.setDescripcion("");
+      return imagen;
+   }
+
+   /**
+    * Crea, sin guardarla, una imagen cuyo nombre, URL e identificador se derivan del nombre.
+    *
+    * @param nombre el nombre base
+    * @return la imagen
+    */
+   public static Imagen imagen(String nombre) {
+      return imagen(nombre + ".png", "http://img/" + nombre, nombre);
+   }
+
+   /**
+    * Crea, sin guardarlo, un usuario cuyo correo, red social y foto de perfil se derivan
+    * del nombre.
+    *
+    * @param nombre el nombre del usuario
+    * @return el usuario, con su foto de perfil
+    */
+   public static Usuario usuario(String nombre) {
+      return new Usuario(nombre, nombre + "@mail.com", "@" + nombre, imagen(nombre));
+   }
+
+   /**
+    * Escribe la firma PNG en los primeros bytes de un contenido, que basta para que una
+    * subida se reconozca como imagen aunque el resto no se pueda decodificar.
+    *
+    * @param content el contenido, de al menos 8 bytes, que se modifica
+    * @return el mismo contenido
+    */
+   public static byte[] png(byte[] content) {
+      System.arraycopy(PNG_SIGNATURE, 0, content, 0, PNG_SIGNATURE.length);
+      return content;
+   }
+}
@@ -0,0 +1,102 @@
+package com.example.api.config;
+
+import com.example.api.controllers.BaseControllerImpl;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la caché de segundo nivel de Usuario e Imagen: las cargas repetidas no
+ * consultan la base de datos, las escrituras siguen auditándose con Envers y el
+ * endpoint de administración permite vaciar una región, pero no se expone por HTTP.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SecondLevelCacheTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private EntityManager entityManager;
+   @Autowired
+   private TransactionTemplate transactionTemplate;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private SecondLevelCacheEndpoint endpoint;
+
+   @Test
+   void usuarioAndFotoPerfilAreLoadedFromTheCache() {
+      Usuario usuario = usuarioRepository.save(usuario("l2"));
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      cargar(usuario.getId());
+      statistics.clear();
+
+      String nombre = cargar(usuario.getId());
+
+      assertEquals("l2l2.png", nombre);
+      assertEquals(0, statistics.getPrepareStatementCount());
+      assertEquals(2, statistics.getSecondLevelCacheHitCount());
+   }
+
+   @Test
+   void updatesKeepTheCacheAndTheAuditTrailConsistent() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("auditado"));
+      usuarioRepository.findById(usuario.getId());
+
+      mockMvc.perform(patch("/api/v1/usuario/" + usuario.getId())
+                  .contentType(BaseControllerImpl.MERGE_PATCH_JSON_VALUE)
+                  .content("{\"nombre\": \"auditado2\"}"))
+            .andExpect(status().isOk());
+
+      assertEquals("auditado2", usuarioRepository.findById(usuario.getId()).orElseThrow().getNombre());
+      int revisiones = transactionTemplate.execute(status ->
+            AuditReaderFactory.get(entityManager).getRevisions(Usuario.class, usuario.getId()).size());
+      assertEquals(2, revisiones);
+   }
+
+   @Test
+   void adminEndpointReportsAndEvictsRegionsButIsNotExposedOverHttp() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("region"));
+
+      Map<String, Object> regions = endpoint.regions();
+      assertEquals(true, regions.get("statisticsEnabled"));
+      assertTrue(((Map<?, ?>) regions.get("regions")).containsKey("usuario"));
+      endpoint.evict("usuario");
+      assertFalse(entityManagerFactory.getCache().contains(Usuario.class, usuario.getId()));
+
+      mockMvc.perform(get("/actuator/l2cache")).andExpect(status().isNotFound());
+      mockMvc.perform(delete("/actuator/l2cache")).andExpect(status().isNotFound());
+      mockMvc.perform(delete("/actuator/l2cache/usuario")).andExpect(status().isNotFound());
+   }
+
+   private String cargar(Long id) {
+      return transactionTemplate.execute(status -> {
+         Usuario cargado = entityManager.find(Usuario.class, id);
+         return cargado.getNombre() + cargado.getFotoPerfil().getName();
+      });
+   }
+}
@@ -0,0 +1,39 @@
+package com.example.api.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que las secuencias de ids se adelantan por encima de las filas que ya existían
+ * en la tabla, como las de una base de datos creada con ids de identidad.
+ */
+@SpringBootTest
+class SequenceInitializerTest {
+
+   @Autowired
+   private SequenceInitializer sequenceInitializer;
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+
+   @Test
+   void advancesSequencesPastExistingIds() {
+      long existente = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from imagenes", Long.class) + 1_000;
+      jdbcTemplate.update("insert into imagenes (id, estado, version) values (?, false, 0)", existente);
+
+      sequenceInitializer.seed();
+      long siguiente = nextValue();
+      // Una segunda pasada no retrasa una secuencia que ya va por delante.
+      sequenceInitializer.seed();
+
+      assertTrue(siguiente - 50 >= existente, "el primer bloque empieza por encima de " + existente);
+      assertTrue(nextValue() > siguiente);
+   }
+
+   private long nextValue() {
+      return jdbcTemplate.queryForObject("select next value for imagenes_seq", Long.class);
+   }
+}
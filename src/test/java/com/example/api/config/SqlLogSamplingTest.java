@@ -0,0 +1,92 @@
+package com.example.api.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el muestreo del registro de SQL del perfil {@code prod}: fuera de una petición
+ * muestreada las sentencias se descartan, sin afectar a las sentencias lentas, y las
+ * peticiones muestreadas las registran con la marca del MDC.
+ */
+@SpringBootTest(properties = {
+      "spring.datasource.url=jdbc:h2:mem:sqlSamplingDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+      "app.logging.sql-sample-rate=1.0",
+      "logging.level.org.hibernate.SQL=DEBUG"})
+@AutoConfigureMockMvc
+class SqlLogSamplingTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+   private final Logger sql = context.getLogger("org.hibernate.SQL");
+   private final SampledLoggerTurboFilter filter = new SampledLoggerTurboFilter();
+   private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+   @BeforeEach
+   void installFilter() {
+      filter.addLogger("org.hibernate.SQL");
+      filter.setContext(context);
+      filter.start();
+      context.addTurboFilter(filter);
+      appender.start();
+      sql.addAppender(appender);
+   }
+
+   @AfterEach
+   void removeFilter() {
+      sql.detachAppender(appender);
+      context.getTurboFilterList().remove(filter);
+   }
+
+   @Test
+   void dropsUnsampledStatementsOnly() {
+      Logger slow = context.getLogger("org.hibernate.SQL_SLOW");
+      ListAppender<ILoggingEvent> slowAppender = new ListAppender<>();
+      slowAppender.start();
+      slow.addAppender(slowAppender);
+      try {
+         assertFalse(sql.isDebugEnabled());
+         sql.debug("select 1");
+         slow.info("select 2");
+
+         MDC.put(SampledLoggerTurboFilter.MDC_KEY, "true");
+         try {
+            sql.debug("select 3");
+         } finally {
+            MDC.remove(SampledLoggerTurboFilter.MDC_KEY);
+         }
+      } finally {
+         slow.detachAppender(slowAppender);
+      }
+
+      assertEquals(1, appender.list.size());
+      assertEquals("select 3", appender.list.get(0).getMessage());
+      assertEquals(1, slowAppender.list.size());
+   }
+
+   @Test
+   void logsStatementsOfSampledRequests() throws Exception {
+      mockMvc.perform(get("/api/v1/imagen/paged?size=5")).andExpect(status().isOk());
+
+      assertFalse(appender.list.isEmpty());
+      assertTrue(appender.list.stream()
+            .allMatch(event -> "true".equals(event.getMDCPropertyMap().get(SampledLoggerTurboFilter.MDC_KEY))));
+      assertNull(MDC.get(SampledLoggerTurboFilter.MDC_KEY));
+   }
+}
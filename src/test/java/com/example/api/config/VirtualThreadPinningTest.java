@@ -0,0 +1,70 @@
+package com.example.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba el perfil {@code virtual}: el pool de conexiones se dimensiona para hilos virtuales
+ * y los bloqueos de un hilo virtual sobre su portador se cuentan por origen.
+ */
+@SpringBootTest(properties = {
+      "spring.datasource.url=jdbc:h2:mem:virtualDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+      "app.virtual-threads.pinning.threshold=10ms"})
+@ActiveProfiles("virtual")
+class VirtualThreadPinningTest {
+
+   private static final Object LOCK = new Object();
+
+   @Autowired
+   private MeterRegistry meterRegistry;
+   @Autowired
+   private DataSource dataSource;
+   @Autowired(required = false)
+   private VirtualThreadPinningMonitor monitor;
+
+   @Test
+   void sizesConnectionPoolForVirtualThreads() {
+      assertNotNull(monitor);
+      HikariDataSource hikari = assertInstanceOf(HikariDataSource.class, dataSource);
+      assertEquals(20, hikari.getMaximumPoolSize());
+      assertEquals(2000, hikari.getConnectionTimeout());
+   }
+
+   @Test
+   void countsPinnedVirtualThreadsBySource() throws Exception {
+      Thread.ofVirtual().start(VirtualThreadPinningTest::sleepWhileHoldingMonitor).join();
+
+      // JFR entrega los eventos del stream en bloques, aproximadamente una vez por segundo
+      String source = VirtualThreadPinningTest.class.getName();
+      long deadline = System.nanoTime() + 10_000_000_000L;
+      Counter pinned = null;
+      while (pinned == null && System.nanoTime() < deadline) {
+         pinned = meterRegistry.find("jvm.threads.virtual.pinned").tag("source", source).counter();
+         Thread.sleep(100);
+      }
+      assertNotNull(pinned, "no se ha detectado el bloqueo");
+      assertTrue(pinned.count() >= 1);
+      assertTrue(meterRegistry.get("jvm.threads.virtual.pinned.duration").tag("source", source).timer()
+            .max(TimeUnit.MILLISECONDS) >= 10);
+   }
+
+   private static void sleepWhileHoldingMonitor() {
+      synchronized (LOCK) {
+         try {
+            Thread.sleep(100);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+}
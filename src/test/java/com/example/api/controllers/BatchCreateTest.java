@@ -0,0 +1,105 @@
+package com.example.api.controllers;
+
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que la creación por lotes informa del resultado de cada elemento
+ * y que los INSERT se envían agrupados en lotes JDBC.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BatchCreateTest {
+
+   private static final int COMENTARIOS = 120;
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ObjectMapper objectMapper;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private ComentarioRepository comentarioRepository;
+
+   @Test
+   void createsValidItemsInJdbcBatchesAndReportsInvalidOnes() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("batch"));
+      Post post = postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+
+      ArrayNode body = objectMapper.createArrayNode();
+      for (int i = 0; i < COMENTARIOS; i++) {
+         ObjectNode comentario = body.addObject();
+         comentario.put("texto", i % 40 == 7 ? "" : "comentario " + i);
+         comentario.putObject("post").put("id", post.getId());
+         comentario.putObject("usuario").put("id", usuario.getId());
+      }
+      long before = comentarioRepository.count();
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      JsonNode results = objectMapper.readTree(mockMvc.perform(post("/api/v1/comentario/batch")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(objectMapper.writeValueAsString(body)))
+            .andExpect(status().isMultiStatus())
+            .andReturn().getResponse().getContentAsString());
+      long statements = statistics.getPrepareStatementCount();
+
+      assertEquals(COMENTARIOS, results.size());
+      int created = 0;
+      for (int i = 0; i < COMENTARIOS; i++) {
+         JsonNode result = results.get(i);
+         assertEquals(i, result.get("index").asInt());
+         if (i % 40 == 7) {
+            assertEquals("INVALID", result.get("status").asText());
+            assertTrue(result.get("errors").get(0).asText().startsWith("texto"));
+         } else {
+            assertEquals("CREATED", result.get("status").asText());
+            assertTrue(result.get("dto").get("id").asLong() > 0);
+            created++;
+         }
+      }
+      assertEquals(before + created, comentarioRepository.count());
+      assertTrue(statements < created / 5, "sentencias preparadas: " + statements);
+   }
+
+   @Test
+   void allValidItemsReturnCreated() throws Exception {
+      mockMvc.perform(post("/api/v1/usuario/batch")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("""
+                        [{"nombre": "uno", "email": "uno@mail.com", "redSocial": "@uno", "fotoPerfil": {}},
+                         {"nombre": "dos", "email": "dos@mail.com", "redSocial": "@dos", "fotoPerfil": {}}]
+                        """))
+            .andExpect(status().isCreated());
+   }
+}
@@ -0,0 +1,249 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.services.CloudinaryService;
+import com.example.api.utils.ServiceUnavailableException;
+import com.jayway.jsonpath.JsonPath;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+/**
+ * Comprueba que un Cloudinary lento queda aislado: el bulkhead rechaza las llamadas que
+ * no caben, el límite de tiempo libera a los llamantes y el circuit breaker deja de
+ * intentar llamadas tras los errores, y que las subidas que terminan después de agotarse su
+ * tiempo se borran. Un servidor local hace de API de subida y retiene las peticiones hasta
+ * que la prueba lo libera. Las cuentas del bulkhead suponen que su pool aún no ha creado
+ * hilos, por lo que la prueba de aislamiento se ejecuta primero.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CloudinaryResilienceTest {
+
+   private static final int THREADS = 2;
+   private static final int QUEUE = 1;
+   private static final int TIMEOUT_MILLIS = 500;
+
+   private static final HttpServer server;
+   private static final AtomicInteger requests = new AtomicInteger();
+   private static final Queue<String> destroyed = new ConcurrentLinkedQueue<>();
+   private static final AtomicInteger contents = new AtomicInteger();
+   private static volatile CountDownLatch release = new CountDownLatch(1);
+
+   static {
+      try {
+         server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      server.createContext("/", exchange -> {
+         requests.incrementAndGet();
+         String body;
+         try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+         }
+         String publicId = body.contains("tardia") ? "tardia" : "lenta";
+         if (exchange.getRequestURI().getPath().endsWith("/destroy")) {
+            destroyed.add(publicId);
+         }
+         try {
+            release.await(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         byte[] response = ("{\"url\": \"http://img/" + publicId + "\", \"public_id\": \"" + publicId + "\"}")
+               .getBytes(StandardCharsets.UTF_8);
+         exchange.getResponseHeaders().add("Content-Type", "application/json");
+         exchange.sendResponseHeaders(200, response.length);
+         try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+         }
+      });
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+   }
+
+   @DynamicPropertySource
+   static void cloudinary(DynamicPropertyRegistry registry) {
+      registry.add("app.cloudinary.upload-prefix", () -> "http://localhost:" + server.getAddress().getPort());
+      String bulkhead = "resilience4j.thread-pool-bulkhead.instances.cloudinary.";
+      registry.add(bulkhead + "core-thread-pool-size", () -> THREADS);
+      registry.add(bulkhead + "max-thread-pool-size", () -> THREADS);
+      registry.add(bulkhead + "queue-capacity", () -> QUEUE);
+      registry.add("resilience4j.timelimiter.instances.cloudinary.timeout-duration", () -> TIMEOUT_MILLIS + "ms");
+      String circuitBreaker = "resilience4j.circuitbreaker.instances.cloudinary.";
+      registry.add(circuitBreaker + "sliding-window-size", () -> THREADS + QUEUE);
+      registry.add(circuitBreaker + "minimum-number-of-calls", () -> THREADS + QUEUE);
+      registry.add(circuitBreaker + "wait-duration-in-open-state", () -> "1m");
+      // Este contexto no se comparte con el resto de pruebas: usa su propia base de datos
+      registry.add("spring.datasource.url", () -> "jdbc:h2:mem:resilienceDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac");
+   }
+
+   @AfterAll
+   static void stopServer() {
+      release.countDown();
+      server.stop(0);
+   }
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private CircuitBreakerRegistry circuitBreakers;
+   @Autowired
+   private ThreadPoolBulkheadRegistry bulkheads;
+   @Autowired
+   private MeterRegistry meterRegistry;
+   @Autowired
+   private CloudinaryService cloudinaryService;
+
+   @Test
+   @Order(1)
+   void slowStorageIsIsolatedAndFailsFast() throws Exception {
+      release = new CountDownLatch(1);
+      double timeouts = timeouts();
+      int uploads = THREADS + QUEUE + 2;
+      ExecutorService executor = Executors.newFixedThreadPool(uploads);
+      List<MockHttpServletResponse> responses = new ArrayList<>();
+      long start = System.nanoTime();
+      try {
+         List<Future<MockHttpServletResponse>> pending = new ArrayList<>();
+         for (int i = 0; i < uploads; i++) {
+            pending.add(executor.submit(this::subir));
+         }
+         for (Future<MockHttpServletResponse> response : pending) {
+            responses.add(response.get());
+         }
+      } finally {
+         executor.shutdown();
+      }
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      // Ninguna petición espera a Cloudinary más allá del límite de tiempo
+      assertTrue(elapsed < 5 * TIMEOUT_MILLIS, "las subidas terminan sin esperar a Cloudinary: " + elapsed + " ms");
+      List<String> mensajes = new ArrayList<>();
+      for (MockHttpServletResponse response : responses) {
+         assertEquals(503, response.getStatus());
+         assertNotNull(response.getHeader("Retry-After"));
+         mensajes.add(JsonPath.read(response.getContentAsString(), "$.mensaje"));
+      }
+      assertEquals(uploads - THREADS - QUEUE, mensajes.stream().filter(m -> m.startsWith("Demasiadas")).count(),
+            "el bulkhead rechaza las llamadas que no caben: " + mensajes);
+      assertEquals(THREADS + QUEUE, mensajes.stream().filter(m -> m.contains("tardado demasiado")).count(),
+            "las llamadas admitidas agotan el tiempo: " + mensajes);
+
+      // Los tiempos agotados abren el circuito: la siguiente llamada no llega a Cloudinary
+      CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker("cloudinary");
+      assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+      int llamadas = requests.get();
+      MockHttpServletResponse rechazada = subir();
+      assertEquals(503, rechazada.getStatus());
+      assertTrue(JsonPath.<String>read(rechazada.getContentAsString(), "$.mensaje").endsWith("temporalmente"));
+      assertEquals(llamadas, requests.get());
+
+      assertEquals(1.0, meterRegistry.get("resilience4j.circuitbreaker.state")
+            .tag("name", "cloudinary").tag("state", "open").gauge().value());
+      assertEquals(timeouts + THREADS + QUEUE, timeouts());
+      assertEquals(THREADS, meterRegistry.get("resilience4j.bulkhead.thread.pool.size")
+            .tag("name", "cloudinary").gauge().value());
+
+      release.countDown();
+   }
+
+   @Test
+   @Order(2)
+   void uploadsThatFinishAfterTheTimeoutAreDestroyed() throws Exception {
+      awaitIdleBulkhead();
+      circuitBreakers.circuitBreaker("cloudinary").reset();
+      release = new CountDownLatch(1);
+      double antes = lateUploads("destroyed");
+      Path file = Files.write(Files.createTempFile("tardia", ".png"), Fixtures.png(new byte[64]));
+      try {
+         assertThrows(ServiceUnavailableException.class, () -> cloudinaryService.upload(file, "tardia.png"));
+         assertFalse(destroyed.contains("tardia"));
+
+         // La subida abandonada termina al liberar el servidor y se borra de Cloudinary
+         release.countDown();
+         long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+         while (!destroyed.contains("tardia") || lateUploads("destroyed") <= antes) {
+            assertTrue(System.nanoTime() < deadline, "la subida tardía no se ha borrado");
+            Thread.sleep(20);
+         }
+      } finally {
+         release.countDown();
+         Files.deleteIfExists(file);
+      }
+   }
+
+   /**
+    * Espera a que terminen las llamadas que haya dejado en curso la prueba anterior.
+    */
+   private void awaitIdleBulkhead() throws InterruptedException {
+      release.countDown();
+      ThreadPoolBulkhead.Metrics metrics = bulkheads.bulkhead("cloudinary").getMetrics();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (metrics.getActiveThreadCount() > 0 || metrics.getQueueDepth() > 0) {
+         assertTrue(System.nanoTime() < deadline, "el bulkhead sigue ocupado");
+         Thread.sleep(20);
+      }
+   }
+
+   private double timeouts() {
+      return meterRegistry.get("resilience4j.timelimiter.calls")
+            .tag("name", "cloudinary").tag("kind", "timeout").counter().count();
+   }
+
+   private double lateUploads(String outcome) {
+      return meterRegistry.get("cloudinary.uploads.late").tag("outcome", outcome).counter().count();
+   }
+
+   private MockHttpServletResponse subir() throws Exception {
+      byte[] content = Fixtures.png(("\0".repeat(8) + "imagen " + contents.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+      return mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "lenta.jpg", "image/jpeg", content)))
+            .andReturn().getResponse();
+   }
+}
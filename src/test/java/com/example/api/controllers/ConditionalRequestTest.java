@@ -0,0 +1,210 @@
+package com.example.api.controllers;
+
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba los ETag derivados de la versión de las entidades: 304 con
+ * {@code If-None-Match}, incluso sin consultar la base de datos, y control
+ * optimista de concurrencia con {@code If-Match}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalRequestTest {
+
+   private static final String MERGE_PATCH = BaseControllerImpl.MERGE_PATCH_JSON_VALUE;
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private ComentarioRepository comentarioRepository;
+
+   @Test
+   void detailETagChangesWithTheEntityAndItsAssociations() throws Exception {
+      Post post = crearPost("etag");
+      String url = "/api/v1/post/" + post.getId();
+      String etag = etagOf(url);
+      assertTrue(etag.startsWith("\"0-"), etag);
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+      assertEquals(0, statistics.getPrepareStatementCount(), "el DTO se sirve desde la caché");
+
+      mockMvc.perform(patch("/api/v1/usuario/" + post.getUsuario().getId()).contentType(MERGE_PATCH)
+            .content("{\"nombre\": \"otro\"}")).andExpect(status().isOk());
+      String afterAuthorChange = etagOf(url);
+      assertNotEquals(etag, afterAuthorChange, "el ETag incluye la versión del autor");
+
+      comentarioRepository.save(new Comentario("nuevo", post, post.getUsuario()));
+      mockMvc.perform(post("/api/v1/comentario").contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"texto\": \"otro\", \"post\": {\"id\": %d}, \"usuario\": {\"id\": %d}}"
+                        .formatted(post.getId(), post.getUsuario().getId())))
+            .andExpect(status().isCreated());
+      assertNotEquals(afterAuthorChange, etagOf(url), "el ETag incluye los comentarios");
+   }
+
+   @Test
+   void uncachedDetailETagSkipsLoadingWhenNotModified() throws Exception {
+      Post post = crearPost("proyeccion");
+      Comentario comentario = comentarioRepository.save(new Comentario("texto", post, post.getUsuario()));
+      String url = "/api/v1/comentario/" + comentario.getId();
+      String etag = etagOf(url);
+      assertTrue(etag.startsWith("\"0-"), etag);
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+      assertEquals(0, statistics.getEntityLoadCount(), "un 304 no carga el grafo de detalle");
+
+      mockMvc.perform(patch("/api/v1/usuario/" + post.getUsuario().getId()).contentType(MERGE_PATCH)
+            .content("{\"nombre\": \"autor\"}")).andExpect(status().isOk());
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.usuario.nombre").value("autor"));
+      mockMvc.perform(get("/api/v1/comentario/" + Long.MAX_VALUE)).andExpect(status().isNotFound());
+   }
+
+   @Test
+   void pagedETagSkipsLoadingWhenNotModified() throws Exception {
+      crearPost("pagina");
+      String url = "/api/v1/usuario/paged?size=5&sort=id,desc";
+      String etag = etagOf(url);
+      assertTrue(etag.startsWith("\"p-"), etag);
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+      assertEquals(0, statistics.getEntityLoadCount(), "un 304 no carga entidades");
+
+      crearPost("pagina2");
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+   }
+
+   @Test
+   void pagedETagDerivedFromTheLoadedPageMatchesTheProjection() throws Exception {
+      Post post = crearPost("derivado");
+      comentarioRepository.save(new Comentario("uno", post, post.getUsuario()));
+      // Mismo valor de orden en toda la página: el id decide el orden en las dos consultas
+      String url = "/api/v1/post/paged?size=3&sort=categoria,asc";
+      String etag = etagOf(url);
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+      assertEquals(0, statistics.getEntityLoadCount(), "un 304 no carga entidades");
+   }
+
+   @Test
+   void pagedETagChangesWithTheEmbeddedAssociations() throws Exception {
+      Post post = crearPost("paginapost");
+      String url = "/api/v1/post/paged?size=5&sort=id,desc";
+      String etag = etagOf(url);
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+      mockMvc.perform(post("/api/v1/comentario").contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"texto\": \"nuevo\", \"post\": {\"id\": %d}, \"usuario\": {\"id\": %d}}"
+                        .formatted(post.getId(), post.getUsuario().getId())))
+            .andExpect(status().isCreated());
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].postComentarios.length()").value(1));
+      String afterComment = etagOf(url);
+
+      mockMvc.perform(patch("/api/v1/usuario/" + post.getUsuario().getId()).contentType(MERGE_PATCH)
+            .content("{\"nombre\": \"renombrado\"}")).andExpect(status().isOk());
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, afterComment))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].usuario.nombre").value("renombrado"));
+   }
+
+   @Test
+   void ifMatchGuardsUpdatesAndDeletes() throws Exception {
+      Post post = crearPost("ifmatch");
+      String url = "/api/v1/post/" + post.getId();
+      String etag = etagOf(url);
+
+      String patched = mockMvc.perform(patch(url).contentType(MERGE_PATCH).header(HttpHeaders.IF_MATCH, etag)
+                  .content("{\"titulo\": \"primero\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(1))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+      assertNotEquals(etag, patched);
+
+      // Un cliente que aún tiene el ETag anterior no puede sobrescribir el cambio
+      mockMvc.perform(put(url).contentType(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_MATCH, etag)
+                  .content("""
+                        {"titulo": "segundo", "descripcion": "descripcion", "categoria": "categoria",
+                         "duracion": 2, "presupuesto": 1.0, "estado": true,
+                         "usuario": {"id": %d}, "postComentarios": [], "postImagenes": []}
+                        """.formatted(post.getUsuario().getId())))
+            .andExpect(status().isPreconditionFailed());
+      mockMvc.perform(delete(url).header(HttpHeaders.IF_MATCH, etag))
+            .andExpect(status().isPreconditionFailed());
+      assertEquals("primero", postRepository.findById(post.getId()).orElseThrow().getTitulo());
+
+      mockMvc.perform(put(url).contentType(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_MATCH, patched)
+                  .content("""
+                        {"titulo": "segundo", "descripcion": "descripcion", "categoria": "categoria",
+                         "duracion": 2, "presupuesto": 1.0, "estado": true,
+                         "usuario": {"id": %d}, "postComentarios": [], "postImagenes": []}
+                        """.formatted(post.getUsuario().getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(2));
+      mockMvc.perform(delete(url).header(HttpHeaders.IF_MATCH, "*"))
+            .andExpect(status().isNoContent());
+      mockMvc.perform(delete(url).header(HttpHeaders.IF_MATCH, "\"2\""))
+            .andExpect(status().isNotFound());
+   }
+
+   private String etagOf(String url) throws Exception {
+      String etag = mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+      assertNotNull(etag);
+      return etag;
+   }
+
+   private Post crearPost(String nombre) {
+      Usuario usuario = usuarioRepository.save(usuario(nombre));
+      return postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+   }
+}
@@ -0,0 +1,71 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Imagen;
+import com.example.api.repositories.ImagenRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que la paginación por cursor recorre todas las entidades una sola
+ * vez, también cuando la clave de orden tiene valores repetidos.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CursorPaginationTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private ObjectMapper objectMapper;
+
+   @Test
+   void walksEveryEntityOnceWithRepeatedSortKeys() throws Exception {
+      for (int i = 0; i < 25; i++) {
+         imagenRepository.save(Fixtures.imagen("nombre" + (i % 4), "http://img/" + i, "cursor" + i));
+      }
+      long total = imagenRepository.findAll().stream().filter(imagen -> imagen.getName() != null).count();
+
+      Set<Long> seen = new HashSet<>();
+      String cursor = null;
+      int pages = 0;
+      do {
+         String url = "/api/v1/imagen/cursor?size=7&sort=name&direction=DESC&total=" + (pages == 0)
+               + (cursor != null ? "&cursor=" + cursor : "");
+         JsonNode page = objectMapper.readTree(mockMvc.perform(get(url))
+               .andExpect(status().isOk())
+               .andReturn().getResponse().getContentAsString());
+         if (pages == 0) {
+            assertEquals(imagenRepository.count(), page.get("totalElements").asLong());
+         } else {
+            assertFalse(page.has("totalElements"));
+         }
+         page.get("content").forEach(dto -> assertTrue(seen.add(dto.get("id").asLong()), "repetido: " + dto));
+         cursor = page.path("nextCursor").asText(null);
+         assertEquals(cursor != null, page.get("hasNext").asBoolean());
+         pages++;
+      } while (cursor != null);
+
+      assertEquals(total, seen.size());
+   }
+
+   @Test
+   void rejectsInvalidCursorAndSortKey() throws Exception {
+      mockMvc.perform(get("/api/v1/imagen/cursor?cursor=abc")).andExpect(status().isBadRequest());
+      mockMvc.perform(get("/api/v1/imagen/cursor?sort=noExiste")).andExpect(status().isBadRequest());
+   }
+}
@@ -0,0 +1,267 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.ApiApplication;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de los controladores de posts, usuarios, comentarios e imágenes. Arranca la
+ * aplicación en un puerto aleatorio con H2 en modo MySQL y el almacenamiento local de
+ * imágenes, la carga con una mezcla de lecturas y escrituras a ritmo fijo ({@link LoadGenerator})
+ * y falla si algún endpoint supera sus presupuestos de latencia o de errores, o si no se
+ * completa el ritmo pedido.
+ * <p>
+ * Es una prueba de carga: se ejecuta con {@code mvn test -Pcarga}. El ritmo, la duración y los
+ * presupuestos están en {@code carga.properties}; {@code -Dcarga.profiles=virtual} la ejecuta
+ * con hilos virtuales. Las distribuciones completas de latencia de cada endpoint se guardan en
+ * {@code target/carga/<endpoint>.hgrm}.
+ */
+@Tag("carga")
+class EndpointLoadTest {
+
+   private static final int USUARIOS = 200;
+   private static final int COMENTARIOS_POR_POST = 5;
+   private static final int IMAGENES_SUBIDAS = 500;
+
+   private static final Properties config = loadConfig();
+   private static ConfigurableApplicationContext context;
+   private static Path storageDir;
+   private static String base;
+   private static final List<Long> postIds = new ArrayList<>();
+   private static final List<Long> usuarioIds = new ArrayList<>();
+   private static final List<Long> imagenIds = new ArrayList<>();
+   private static final List<byte[]> pngs = new ArrayList<>();
+   private static final AtomicInteger nextPng = new AtomicInteger();
+
+   private final HttpClient client = HttpClient.newBuilder()
+         .executor(command -> Thread.ofVirtual().start(command))
+         .connectTimeout(Duration.ofSeconds(5))
+         .build();
+
+   @BeforeAll
+   static void start() throws IOException {
+      storageDir = Files.createTempDirectory("carga-imagenes");
+      SpringApplicationBuilder builder = new SpringApplicationBuilder(ApiApplication.class)
+            .properties("server.port=0",
+                  "spring.datasource.url=jdbc:h2:mem:cargaDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                        + "INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+                  "spring.jpa.show-sql=false",
+                  "app.storage.type=local",
+                  "app.storage.local.dir=" + storageDir,
+                  "logging.level.root=WARN",
+                  "logging.level.com.example.api=WARN");
+      String profiles = config.getProperty("carga.profiles", "");
+      if (!profiles.isBlank()) {
+         builder.profiles(profiles.split(","));
+      }
+      context = builder.run();
+      base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/v1/";
+      seed();
+      for (int i = 0; i < IMAGENES_SUBIDAS; i++) {
+         pngs.add(png(i));
+      }
+   }
+
+   @AfterAll
+   static void stop() {
+      if (context != null) {
+         context.close();
+      }
+   }
+
+   @Test
+   void endpointsMeetLatencyAndThroughputBudgets() throws Exception {
+      LoadGenerator generator = new LoadGenerator(client, endpoints(), intConfig("carga.max-in-flight"));
+      double rate = doubleConfig("carga.rate");
+      generator.run(rate, Duration.ofSeconds(intConfig("carga.warmup")));
+      LoadGenerator.Result result = generator.run(rate, Duration.ofSeconds(intConfig("carga.duration")));
+
+      report(result, System.out);
+      Path reports = Files.createDirectories(Path.of("target", "carga"));
+      for (var entry : result.endpoints().entrySet()) {
+         try (PrintStream out = new PrintStream(Files.newOutputStream(reports.resolve(entry.getKey() + ".hgrm")))) {
+            entry.getValue().histogram().outputPercentileDistribution(out, 1e6);
+         }
+      }
+
+      List<String> violations = new ArrayList<>();
+      result.endpoints().forEach((name, endpoint) -> {
+         check(violations, name, "p99", endpoint.percentileMillis(99), budget(name, "p99"));
+         check(violations, name, "p999", endpoint.percentileMillis(99.9), budget(name, "p999"));
+         check(violations, name, "error-rate", endpoint.errorRate(), budget(name, "error-rate"));
+      });
+      double minThroughput = rate * budget(null, "throughput-ratio");
+      if (result.throughput() < minThroughput) {
+         violations.add(String.format("throughput: %.1f req/s < %.1f req/s", result.throughput(), minThroughput));
+      }
+      assertTrue(violations.isEmpty(), "Presupuestos superados:\n" + String.join("\n", violations));
+   }
+
+   /**
+    * Mezcla de tráfico: tres cuartas partes de lecturas y una de escrituras.
+    */
+   private List<LoadGenerator.Endpoint> endpoints() {
+      return List.of(
+            new LoadGenerator.Endpoint("post-id", 20, random -> get("post/" + pick(postIds, random))),
+            new LoadGenerator.Endpoint("post-paged", 10,
+                  random -> get("post/paged?size=20&page=" + random.nextInt(USUARIOS / 20))),
+            new LoadGenerator.Endpoint("usuario-id", 10, random -> get("usuario/" + pick(usuarioIds, random))),
+            new LoadGenerator.Endpoint("comentario-cursor", 10, random -> get("comentario/cursor?size=20")),
+            new LoadGenerator.Endpoint("imagen-id", 10, random -> get("imagen/" + pick(imagenIds, random))),
+            new LoadGenerator.Endpoint("comentario-crear", 8, random -> json("POST", "comentario",
+                  "{\"texto\":\"Comentario de carga\",\"post\":{\"id\":" + pick(postIds, random)
+                        + "},\"usuario\":{\"id\":" + pick(usuarioIds, random) + "}}")),
+            // Dos modificaciones simultáneas del mismo post pueden acabar en conflicto (409)
+            new LoadGenerator.Endpoint("post-patch", 5, random -> HttpRequest.newBuilder(
+                        URI.create(base + "post/" + pick(postIds, random)))
+                  .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                        "{\"presupuesto\":" + (1000 + random.nextInt(1000)) + "}"))
+                  .header("Content-Type", BaseControllerImpl.MERGE_PATCH_JSON_VALUE)
+                  .build(), status -> status == 200 || status == 409),
+            new LoadGenerator.Endpoint("imagen-subir", 2, random -> upload()));
+   }
+
+   private static void seed() {
+      UsuarioRepository usuarios = context.getBean(UsuarioRepository.class);
+      PostRepository posts = context.getBean(PostRepository.class);
+      ComentarioRepository comentarios = context.getBean(ComentarioRepository.class);
+      for (int i = 0; i < USUARIOS; i++) {
+         Imagen foto = Fixtures.imagen("perfil" + i + ".jpg", "http://img/perfil" + i, "carga-perfil" + i);
+         foto.setDescripcion("foto de perfil");
+         Usuario usuario = usuarios.save(new Usuario("Usuario " + i, "usuario" + i + "@mail.com", "@u" + i, foto));
+         usuarioIds.add(usuario.getId());
+         imagenIds.add(usuario.getFotoPerfil().getId());
+         // Cada usuario tiene un único post (Post.usuario es una relación uno a uno)
+         Post post = posts.save(new Post("Viaje " + i, "Un viaje por la costa", "turismo", 5, 1500.0, usuario,
+               new HashSet<>(), new HashSet<>()));
+         postIds.add(post.getId());
+         for (int c = 0; c < COMENTARIOS_POR_POST; c++) {
+            comentarios.save(new Comentario("Comentario " + c, post, usuario));
+         }
+      }
+   }
+
+   private static HttpRequest get(String path) {
+      return HttpRequest.newBuilder(URI.create(base + path)).build();
+   }
+
+   private static HttpRequest json(String method, String path, String body) {
+      return HttpRequest.newBuilder(URI.create(base + path))
+            .method(method, HttpRequest.BodyPublishers.ofString(body))
+            .header("Content-Type", "application/json")
+            .build();
+   }
+
+   /**
+    * Subida multipart de una imagen PNG; las imágenes se repiten cada {@value #IMAGENES_SUBIDAS}
+    * subidas, por lo que una ejecución larga ejercita también la deduplicación.
+    */
+   private static HttpRequest upload() {
+      String boundary = "carga" + System.nanoTime();
+      byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"carga.png\"\r\n"
+            + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+      byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+      return HttpRequest.newBuilder(URI.create(base + "imagen/subir"))
+            .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head,
+                  pngs.get(nextPng.getAndIncrement() % pngs.size()), tail)))
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .build();
+   }
+
+   private static byte[] png(int seed) {
+      BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+      for (int x = 0; x < 64; x++) {
+         image.setRGB(x, seed % 64, seed * 31 + x);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+         ImageIO.write(image, "png", out);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+   }
+
+   private static Long pick(List<Long> ids, ThreadLocalRandom random) {
+      return ids.get(random.nextInt(ids.size()));
+   }
+
+   private static void report(LoadGenerator.Result result, PrintStream out) {
+      out.printf("%nCarga: %.0f req/s pedidas, %.1f req/s completadas sin error en %d s%n",
+            result.offeredRate(), result.throughput(), result.elapsed().toSeconds());
+      out.printf("%-18s %8s %8s %8s %8s %8s %7s %9s%n",
+            "endpoint", "total", "p50 ms", "p99 ms", "p999 ms", "max ms", "errores", "descartes");
+      result.endpoints().forEach((name, endpoint) -> out.printf("%-18s %8d %8.1f %8.1f %8.1f %8.1f %7d %9d%n",
+            name, endpoint.requests(), endpoint.percentileMillis(50), endpoint.percentileMillis(99),
+            endpoint.percentileMillis(99.9), endpoint.histogram().getMaxValue() / 1e6,
+            endpoint.errors(), endpoint.dropped()));
+   }
+
+   private static void check(List<String> violations, String endpoint, String name, double value, double budget) {
+      if (value > budget) {
+         violations.add(String.format("%s %s: %.3f > %.3f", endpoint, name, value, budget));
+      }
+   }
+
+   private static double budget(String endpoint, String name) {
+      String value = endpoint != null ? config.getProperty("carga.budget." + endpoint + "." + name) : null;
+      return Double.parseDouble(value != null ? value : config.getProperty("carga.budget." + name));
+   }
+
+   private static int intConfig(String name) {
+      return Integer.parseInt(config.getProperty(name));
+   }
+
+   private static double doubleConfig(String name) {
+      return Double.parseDouble(config.getProperty(name));
+   }
+
+   private static Properties loadConfig() {
+      Properties properties = new Properties();
+      try (InputStream in = EndpointLoadTest.class.getResourceAsStream("/carga.properties")) {
+         properties.load(in);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      System.getProperties().stringPropertyNames().stream()
+            .filter(name -> name.startsWith("carga."))
+            .forEach(name -> properties.setProperty(name, System.getProperty(name)));
+      return properties;
+   }
+}
@@ -0,0 +1,95 @@
+package com.example.api.controllers;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.api.utils.GlobalExceptionHandler;
+import com.example.api.utils.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el camino de error: los recursos inexistentes y las peticiones no válidas llegan
+ * al cliente como 404 y 400 sin convertirse en errores internos, sus excepciones no registran
+ * la traza de la pila, y los mensajes se limitan por tipo de excepción aunque todas las
+ * respuestas se cuenten.
+ */
+@SpringBootTest(properties = {
+      "spring.datasource.url=jdbc:h2:mem:errorsDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+      "app.errors.log.max-per-window=3",
+      "app.errors.log.window=1h"})
+@AutoConfigureMockMvc
+class ErrorResponseTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   private final Logger handlerLogger = (Logger) LoggerFactory.getLogger(GlobalExceptionHandler.class);
+   private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+   @BeforeEach
+   void captureLog() {
+      appender.start();
+      handlerLogger.addAppender(appender);
+   }
+
+   @AfterEach
+   void releaseLog() {
+      handlerLogger.detachAppender(appender);
+   }
+
+   @Test
+   void missingEntitiesAreNotFound() throws Exception {
+      mockMvc.perform(get("/api/v1/post/" + Long.MAX_VALUE))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.codigoError").value(404));
+      mockMvc.perform(get("/api/v1/usuario/" + Long.MAX_VALUE)).andExpect(status().isNotFound());
+   }
+
+   @Test
+   void invalidRequestsAreBadRequest() throws Exception {
+      mockMvc.perform(get("/api/v1/post/cursor?cursor=abc")).andExpect(status().isBadRequest());
+      mockMvc.perform(get("/api/v1/post/paged?sort=noExiste")).andExpect(status().isBadRequest());
+   }
+
+   @Test
+   void expectedExceptionsHaveNoStackTrace() {
+      assertEquals(0, new ResourceNotFoundException("no existe").getStackTrace().length);
+   }
+
+   @Test
+   void limitsLoggedMessagesButCountsEveryResponse() throws Exception {
+      double before = count("ResourceNotFoundException", "404");
+
+      for (int i = 0; i < 20; i++) {
+         mockMvc.perform(get("/api/v1/imagen/" + (Long.MAX_VALUE - i))).andExpect(status().isNotFound());
+      }
+
+      assertEquals(before + 20, count("ResourceNotFoundException", "404"));
+      long logged = appender.list.stream()
+            .filter(event -> event.getFormattedMessage().startsWith("ResourceNotFoundException"))
+            .peek(event -> assertNull(event.getThrowableProxy()))
+            .count();
+      assertTrue(logged <= 3, "mensajes registrados: " + logged);
+   }
+
+   private double count(String exception, String status) {
+      Counter counter = meterRegistry.find("api.errors").tags("exception", exception, "status", status).counter();
+      return counter == null ? 0 : counter.count();
+   }
+}
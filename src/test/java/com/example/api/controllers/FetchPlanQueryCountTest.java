@@ -0,0 +1,121 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.ImagenRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que los endpoints de lectura cargan sus datos en un número acotado
+ * de sentencias SQL, independiente del tamaño de la página.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FetchPlanQueryCountTest {
+
+   private static final int POSTS = 30;
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private TransactionTemplate transactionTemplate;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private ComentarioRepository comentarioRepository;
+
+   private Long postId;
+
+   @BeforeAll
+   void cargarDatos() {
+      postId = transactionTemplate.execute(status -> {
+         Long primero = null;
+         for (int i = 0; i < POSTS; i++) {
+            Usuario autor = usuarioRepository.save(usuario("autor" + i));
+            Usuario lector = usuarioRepository.save(usuario("lector" + i));
+            Set<Imagen> imagenes = new HashSet<>();
+            for (int j = 0; j < 2; j++) {
+               imagenes.add(imagenRepository.save(Fixtures.imagen("img" + j, "http://img/" + i + j, "id" + i + j)));
+            }
+            Post post = postRepository.save(new Post("titulo " + i, "descripcion", "categoria", 3, 10.0,
+                  autor, new HashSet<>(), imagenes));
+            for (int j = 0; j < 3; j++) {
+               comentarioRepository.save(new Comentario("comentario " + j, post, j % 2 == 0 ? autor : lector));
+            }
+            primero = primero == null ? post.getId() : primero;
+         }
+         return primero;
+      });
+   }
+
+   @Test
+   void pagedPostsLoadInBoundedQueries() throws Exception {
+      // Orden descendente para que las páginas contengan los posts de esta prueba
+      long small = statementsFor("/api/v1/post/paged?size=5&sort=id,desc");
+      long large = statementsFor("/api/v1/post/paged?size=" + POSTS + "&sort=id,desc");
+
+      assertEquals(small, large, "el número de consultas no debe depender del tamaño de la página");
+      // Incluye las consultas del ETag, que reutiliza los ids y el total de la página:
+      // versiones de sus entidades y de cada colección
+      assertTrue(large <= 7, "consultas por página: " + large);
+   }
+
+   @Test
+   void allPostsLoadInBoundedQueries() throws Exception {
+      long statements = statementsFor("/api/v1/post");
+      assertTrue(statements <= 4, "consultas del listado: " + statements);
+   }
+
+   @Test
+   void postDetailLoadsInBoundedQueries() throws Exception {
+      long statements = statementsFor("/api/v1/post/" + postId);
+      assertTrue(statements <= 2, "consultas del detalle: " + statements);
+   }
+
+   @Test
+   void otherEndpointsLoadInBoundedQueries() throws Exception {
+      // Cada página incluye hasta dos consultas del ETag
+      assertTrue(statementsFor("/api/v1/comentario/paged?size=50") <= 5);
+      assertTrue(statementsFor("/api/v1/usuario/paged?size=50") <= 4);
+      assertTrue(statementsFor("/api/v1/imagen/paged?size=50") <= 4);
+   }
+
+   private long statementsFor(String url) throws Exception {
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get(url)).andExpect(status().isOk());
+      return statistics.getPrepareStatementCount();
+   }
+}
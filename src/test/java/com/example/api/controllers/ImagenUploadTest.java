@@ -0,0 +1,380 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Imagen;
+import com.example.api.repositories.ImagenRepository;
+import com.jayway.jsonpath.JsonPath;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que la subida de imágenes se envía en streaming desde un archivo
+ * temporal único, sin copias del contenido en el heap, que el contenido repetido
+ * comparte el archivo subido, las subidas por lotes y las asíncronas con consulta de estado, contra un servidor local que hace de API de subida de
+ * Cloudinary.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImagenUploadTest {
+
+   private static final int SIZE = 8 * 1024 * 1024;
+   private static final int UPLOADS = 8;
+   private static final int BATCH_PARALLELISM = 3;
+
+   private static final HttpServer server;
+   private static final Path uploadDir;
+   private static final Queue<Long> receivedBodies = new ConcurrentLinkedQueue<>();
+   private static final AtomicInteger publicIds = new AtomicInteger();
+   private static final AtomicBoolean failUploads = new AtomicBoolean();
+   private static final AtomicInteger contents = new AtomicInteger();
+   private static final AtomicInteger inFlight = new AtomicInteger();
+   private static final AtomicInteger peakInFlight = new AtomicInteger();
+   private static volatile long latencyMillis;
+
+   static {
+      try {
+         uploadDir = Files.createTempDirectory("uploads-test");
+         server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      server.createContext("/", exchange -> {
+         peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+         try {
+            respond(exchange);
+         } finally {
+            inFlight.decrementAndGet();
+         }
+      });
+      server.setExecutor(Executors.newFixedThreadPool(UPLOADS));
+      server.start();
+   }
+
+   private static void respond(HttpExchange exchange) throws IOException {
+      long length = 0;
+      byte[] buffer = new byte[64 * 1024];
+      try (InputStream body = exchange.getRequestBody()) {
+         for (int read; (read = body.read(buffer)) != -1; ) {
+            length += read;
+         }
+      }
+      receivedBodies.add(length);
+      if (latencyMillis > 0) {
+         try {
+            Thread.sleep(latencyMillis);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+      if (failUploads.get()) {
+         exchange.sendResponseHeaders(500, -1);
+         exchange.close();
+         return;
+      }
+      int id = publicIds.incrementAndGet();
+      byte[] response = ("{\"url\": \"http://img/" + id + "\", \"public_id\": \"subida-" + id + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+         out.write(response);
+      }
+   }
+
+   @DynamicPropertySource
+   static void cloudinary(DynamicPropertyRegistry registry) {
+      registry.add("app.cloudinary.upload-prefix", () -> "http://localhost:" + server.getAddress().getPort());
+      registry.add("app.upload.tmp-dir", uploadDir::toString);
+      registry.add("app.upload.batch.parallelism", () -> BATCH_PARALLELISM);
+      // Este contexto no se comparte con el resto de pruebas: usa su propia base de datos
+      registry.add("spring.datasource.url", () -> "jdbc:h2:mem:uploadsDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac");
+      // y sus propias regiones de caché de segundo nivel, que se comparten entre contextos
+      registry.add("spring.jpa.properties.hibernate.cache.region_prefix", () -> "uploads");
+      registry.add("spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy", () -> "create");
+   }
+
+   @AfterAll
+   static void stopServer() {
+      server.stop(0);
+   }
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @Test
+   void concurrentUploadsStreamFromUniqueTempFilesWithoutHeapCopies() throws Exception {
+      upload(imagen()); // Calentamiento: inicialización perezosa de clientes y serializadores
+      receivedBodies.clear();
+
+      List<MockMultipartFile> files = new ArrayList<>();
+      for (int i = 1; i <= UPLOADS; i++) {
+         files.add(imagen());
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(UPLOADS);
+      try {
+         List<Future<Long>> allocations = new ArrayList<>();
+         for (MockMultipartFile file : files) {
+            allocations.add(executor.submit(() -> upload(file)));
+         }
+         for (Future<Long> allocated : allocations) {
+            long bytes = allocated.get();
+            assertTrue(bytes < SIZE / 4, "bytes reservados en el heap por una subida de " + SIZE + ": " + bytes);
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      assertEquals(UPLOADS, receivedBodies.size());
+      assertTrue(receivedBodies.stream().allMatch(length -> length > SIZE), "cada subida envía el archivo completo");
+      try (Stream<Path> pending = Files.list(uploadDir)) {
+         assertEquals(0, pending.count(), "los archivos temporales se borran");
+      }
+   }
+
+   @Test
+   void identicalContentSharesTheStoredFileWithoutUploadingAgain() throws Exception {
+      byte[] content = imagen().getBytes();
+      String primera = mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new DiskBackedMultipartFile(content)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+      int subidas = receivedBodies.size();
+
+      String segunda = mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new DiskBackedMultipartFile(content)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+      assertEquals(subidas, receivedBodies.size(), "el contenido repetido no se sube");
+      Number id = JsonPath.read(primera, "$.id");
+      assertNotEquals(id, JsonPath.read(segunda, "$.id"), "cada subida tiene su propia fila");
+      assertEquals((String) JsonPath.read(primera, "$.imageId"), JsonPath.read(segunda, "$.imageId"));
+
+      // Una imagen borrada no se reactiva: la nueva subida crea otra fila con el archivo compartido
+      mockMvc.perform(delete("/api/v1/imagen/" + id)).andExpect(status().isNoContent());
+      String location = mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new DiskBackedMultipartFile(content)).param("async", "true"))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+      String job = awaitFinished(location);
+      assertEquals("DONE", JsonPath.read(job, "$.status"));
+      assertNotEquals(id.longValue(), ((Number) JsonPath.read(job, "$.imagenId")).longValue());
+      assertEquals(subidas, receivedBodies.size());
+      assertTrue(imagenRepository.findById(id.longValue()).isEmpty(), "la imagen borrada sigue inactiva");
+   }
+
+   @Test
+   void batchUploadRunsConcurrentlyAndInsertsEveryImage() throws Exception {
+      MockMultipartFile previa = imagen();
+      mockMvc.perform(multipart("/api/v1/imagen/subir").file(previa)).andExpect(status().isOk());
+      MockMultipartFile repetida = imagen();
+      List<MockMultipartFile> nuevas = List.of(repetida, imagen(), imagen(), imagen(), imagen());
+
+      receivedBodies.clear();
+      peakInFlight.set(0);
+      latencyMillis = 300;
+      String body;
+      try {
+         var request = multipart("/api/v1/imagen/subir/lote");
+         nuevas.forEach(file -> request.file(lote(file)));
+         request.file(lote(repetida)).file(lote(previa));
+         body = mockMvc.perform(request)
+               .andExpect(status().isCreated())
+               .andExpect(jsonPath("$.length()").value(7))
+               .andExpect(jsonPath("$[*].status").value(contains(
+                     "CREATED", "CREATED", "CREATED", "CREATED", "CREATED", "CREATED", "CREATED")))
+               .andReturn().getResponse().getContentAsString();
+      } finally {
+         latencyMillis = 0;
+      }
+
+      assertEquals(nuevas.size(), receivedBodies.size(), "cada contenido nuevo se sube una sola vez");
+      assertTrue(peakInFlight.get() > 1, "las subidas del lote se hacen a la vez");
+      assertTrue(peakInFlight.get() <= BATCH_PARALLELISM, "como mucho " + BATCH_PARALLELISM + " a la vez: "
+            + peakInFlight.get());
+      List<Number> ids = JsonPath.read(body, "$[*].dto.id");
+      List<String> imageIds = JsonPath.read(body, "$[*].dto.imageId");
+      assertEquals(7, ids.stream().distinct().count(), "cada archivo del lote tiene su propia fila");
+      assertEquals(imageIds.get(0), imageIds.get(5), "el archivo repetido en el lote comparte el archivo subido");
+      for (Number id : ids) {
+         assertTrue(imagenRepository.findById(id.longValue()).isPresent());
+      }
+      try (Stream<Path> pending = Files.list(uploadDir)) {
+         assertEquals(0, pending.count(), "los archivos temporales se borran");
+      }
+   }
+
+   @Test
+   void asyncUploadReturnsAcceptedAndCreatesTheImageInBackground() throws Exception {
+      String location = mockMvc.perform(multipart("/api/v1/imagen/subir").file(imagen()).param("async", "true"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andExpect(jsonPath("$.status").value("PENDING"))
+            .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+      String job = awaitFinished(location);
+      assertEquals("DONE", JsonPath.read(job, "$.status"));
+      Long imagenId = ((Number) JsonPath.read(job, "$.imagenId")).longValue();
+      Imagen imagen = imagenRepository.findById(imagenId).orElseThrow();
+      assertEquals(JsonPath.read(job, "$.imageUrl"), imagen.getImageUrl());
+      try (Stream<Path> pending = Files.list(uploadDir)) {
+         assertEquals(0, pending.count(), "los archivos temporales se borran");
+      }
+   }
+
+   @Test
+   void asyncUploadWithImagenIdReplacesTheExistingImage() throws Exception {
+      Imagen existente = imagenRepository.save(Fixtures.imagen("vieja.png", "http://img/vieja", "vieja"));
+      String location = mockMvc.perform(multipart("/api/v1/imagen/subir").file(imagen())
+                  .param("async", "true").param("imagenId", existente.getId().toString()))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.imagenId").value(existente.getId()))
+            .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+      assertEquals("DONE", JsonPath.read(awaitFinished(location), "$.status"));
+      Imagen actualizada = imagenRepository.findById(existente.getId()).orElseThrow();
+      assertEquals("foto.jpg", actualizada.getName());
+      assertNotEquals("vieja", actualizada.getImageId());
+
+      mockMvc.perform(multipart("/api/v1/imagen/subir").file(imagen())
+                  .param("async", "true").param("imagenId", "999999"))
+            .andExpect(status().isNotFound());
+   }
+
+   @Test
+   void failedAsyncUploadIsReportedInTheJobStatus() throws Exception {
+      Timer failures = meterRegistry.timer("imagen.upload.jobs.duration", "outcome", "failure");
+      long before = failures.count();
+      failUploads.set(true);
+      try {
+         String location = mockMvc.perform(multipart("/api/v1/imagen/subir").file(imagen()).param("async", "true"))
+               .andExpect(status().isAccepted())
+               .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+         String job = awaitFinished(location);
+         assertEquals("FAILED", JsonPath.read(job, "$.status"));
+         assertNotNull(JsonPath.read(job, "$.error"));
+      } finally {
+         failUploads.set(false);
+      }
+      assertEquals(before + 1, failures.count());
+
+      mockMvc.perform(get("/api/v1/imagen/jobs/desconocido"))
+            .andExpect(status().isNotFound());
+   }
+
+   /**
+    * Consulta el estado de un trabajo hasta que termina y devuelve su último estado.
+    */
+   private String awaitFinished(String location) throws Exception {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (true) {
+         String job = mockMvc.perform(get(location))
+               .andExpect(status().isOk())
+               .andReturn().getResponse().getContentAsString();
+         String status = JsonPath.read(job, "$.status");
+         if (status.equals("DONE") || status.equals("FAILED")) {
+            return job;
+         }
+         assertTrue(System.nanoTime() < deadline, "el trabajo no terminó: " + job);
+         Thread.sleep(20);
+      }
+   }
+
+   /**
+    * Sube un archivo y devuelve los bytes reservados en el heap por el hilo que lo sube.
+    */
+   private long upload(MockMultipartFile file) throws Exception {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long before = threads.getCurrentThreadAllocatedBytes();
+      mockMvc.perform(multipart("/api/v1/imagen/subir").file(file))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imageId").exists());
+      return threads.getCurrentThreadAllocatedBytes() - before;
+   }
+
+   /**
+    * Copia un archivo como parte {@code files} de una subida por lotes.
+    */
+   private static MockMultipartFile lote(MockMultipartFile file) {
+      try {
+         return new MockMultipartFile("files", file.getOriginalFilename(), file.getContentType(), file.getBytes());
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Crea un archivo con un contenido distinto del de todos los anteriores.
+    */
+   private static MockMultipartFile imagen() {
+      byte[] content = Fixtures.png(new byte[SIZE]);
+      ByteBuffer.wrap(content).putInt(8, contents.incrementAndGet());
+      return new DiskBackedMultipartFile(content);
+   }
+
+   /**
+    * Archivo que, como los que el contenedor vuelca a disco, devuelve una copia nueva
+    * del contenido cada vez que se piden sus bytes.
+    */
+   private static final class DiskBackedMultipartFile extends MockMultipartFile {
+
+      DiskBackedMultipartFile(byte[] content) {
+         super("file", "foto.jpg", "image/jpeg", content);
+      }
+
+      @Override
+      public byte[] getBytes() throws IOException {
+         return super.getBytes().clone();
+      }
+   }
+}
@@ -0,0 +1,184 @@
+package com.example.api.controllers;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Generador de carga HTTP de modelo abierto: lanza peticiones a un ritmo fijo, sin esperar a
+ * que terminen las anteriores, repartidas entre varios endpoints según su peso. Cada petición
+ * se envía en su propio hilo virtual.
+ * <p>
+ * La latencia se mide desde el instante en que la petición debía salir, no desde que sale, de
+ * modo que si el generador se retrasa porque el servidor está saturado el retraso cuenta como
+ * latencia (corrección de la omisión coordinada). Las latencias de cada endpoint se registran
+ * en un histograma HdrHistogram con tres dígitos significativos.
+ */
+final class LoadGenerator {
+
+   /**
+    * Endpoint que recibe carga.
+    *
+    * @param name     el nombre del endpoint en los informes y en los presupuestos
+    * @param weight   el peso relativo del endpoint en la mezcla de tráfico
+    * @param request  crea cada petición
+    * @param accepted los códigos de estado que no se cuentan como error
+    */
+   record Endpoint(String name, int weight, Function<ThreadLocalRandom, HttpRequest> request,
+                   IntPredicate accepted) {
+
+      /**
+       * Crea un endpoint que solo acepta respuestas 2xx.
+       */
+      Endpoint(String name, int weight, Function<ThreadLocalRandom, HttpRequest> request) {
+         this(name, weight, request, status -> status >= 200 && status < 300);
+      }
+   }
+
+   /**
+    * Resultado de un endpoint.
+    *
+    * @param histogram las latencias de las peticiones completadas, en nanosegundos
+    * @param errors    las peticiones con un estado no aceptado o que fallaron
+    * @param dropped   las peticiones que no se enviaron por haber demasiadas en curso
+    */
+   record EndpointResult(Histogram histogram, long errors, long dropped) {
+
+      long requests() {
+         return histogram.getTotalCount() + dropped;
+      }
+
+      double errorRate() {
+         return requests() == 0 ? 0 : (double) (errors + dropped) / requests();
+      }
+
+      double percentileMillis(double percentile) {
+         return histogram.getValueAtPercentile(percentile) / 1e6;
+      }
+   }
+
+   /**
+    * Resultado de una ejecución.
+    *
+    * @param endpoints   el resultado de cada endpoint, en el orden en que se definieron
+    * @param offeredRate el ritmo de peticiones por segundo pedido
+    * @param elapsed     la duración real de la ejecución, hasta que termina la última petición
+    */
+   record Result(Map<String, EndpointResult> endpoints, double offeredRate, Duration elapsed) {
+
+      /**
+       * Peticiones completadas sin error por segundo.
+       */
+      double throughput() {
+         long ok = endpoints.values().stream()
+               .mapToLong(e -> e.histogram().getTotalCount() - e.errors()).sum();
+         return ok / (elapsed.toNanos() / 1e9);
+      }
+   }
+
+   private final HttpClient client;
+   private final List<Endpoint> endpoints;
+   private final int[] cumulativeWeights;
+   private final int maxInFlight;
+
+   /**
+    * Constructor del generador.
+    *
+    * @param client      el cliente HTTP
+    * @param endpoints   los endpoints de la mezcla de tráfico
+    * @param maxInFlight el número máximo de peticiones en curso; por encima se descartan y
+    *                    cuentan como error
+    */
+   LoadGenerator(HttpClient client, List<Endpoint> endpoints, int maxInFlight) {
+      this.client = client;
+      this.endpoints = List.copyOf(endpoints);
+      this.maxInFlight = maxInFlight;
+      this.cumulativeWeights = new int[endpoints.size()];
+      int total = 0;
+      for (int i = 0; i < endpoints.size(); i++) {
+         total += endpoints.get(i).weight();
+         cumulativeWeights[i] = total;
+      }
+   }
+
+   /**
+    * Lanza peticiones al ritmo indicado durante el tiempo indicado y espera a que terminen.
+    *
+    * @param rate     las peticiones por segundo
+    * @param duration la duración de la carga
+    * @return las latencias y los errores de cada endpoint
+    * @throws InterruptedException si se interrumpe la espera
+    */
+   Result run(double rate, Duration duration) throws InterruptedException {
+      Map<String, Recorder> recorders = new LinkedHashMap<>();
+      Map<String, LongAdder> errors = new LinkedHashMap<>();
+      Map<String, LongAdder> dropped = new LinkedHashMap<>();
+      for (Endpoint endpoint : endpoints) {
+         recorders.put(endpoint.name(), new Recorder(3));
+         errors.put(endpoint.name(), new LongAdder());
+         dropped.put(endpoint.name(), new LongAdder());
+      }
+      Semaphore inFlight = new Semaphore(maxInFlight);
+      long interval = (long) (1e9 / rate);
+      long total = (long) (rate * duration.toNanos() / 1e9);
+      long start = System.nanoTime();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+               LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick(random);
+            if (!inFlight.tryAcquire()) {
+               dropped.get(endpoint.name()).increment();
+               continue;
+            }
+            HttpRequest request = endpoint.request().apply(random);
+            executor.execute(() -> {
+               try {
+                  HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                  if (!endpoint.accepted().test(response.statusCode())) {
+                     errors.get(endpoint.name()).increment();
+                  }
+               } catch (Exception e) {
+                  errors.get(endpoint.name()).increment();
+               } finally {
+                  recorders.get(endpoint.name()).recordValue(System.nanoTime() - intended);
+                  inFlight.release();
+               }
+            });
+         }
+      }
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+      Map<String, EndpointResult> results = new LinkedHashMap<>();
+      recorders.forEach((name, recorder) -> results.put(name, new EndpointResult(
+            recorder.getIntervalHistogram(), errors.get(name).sum(), dropped.get(name).sum())));
+      return new Result(results, rate, elapsed);
+   }
+
+   private Endpoint pick(ThreadLocalRandom random) {
+      int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+      for (int i = 0; i < cumulativeWeights.length; i++) {
+         if (value < cumulativeWeights[i]) {
+            return endpoints.get(i);
+         }
+      }
+      throw new IllegalStateException();
+   }
+}
@@ -0,0 +1,372 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.repositories.ImagenRepository;
+import com.example.api.services.ImagenService;
+import com.example.api.services.SoftDeletePurgeJob;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el almacenamiento local de imágenes, sus variantes reducidas, que los
+ * archivos compartidos o reemplazados se borran cuando ya no los usa ninguna imagen y
+ * su descarga con rangos, caché y sendfile.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class LocalStorageTest {
+
+   private static final Path storageDir;
+
+   static {
+      try {
+         storageDir = Files.createTempDirectory("imagenes-test");
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @DynamicPropertySource
+   static void storage(DynamicPropertyRegistry registry) {
+      registry.add("app.storage.type", () -> "local");
+      registry.add("app.storage.local.dir", storageDir::toString);
+      // Este contexto no se comparte con el resto de pruebas: usa su propia base de datos
+      registry.add("spring.datasource.url", () -> "jdbc:h2:mem:localStorageDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac");
+      // y sus propias regiones de caché de segundo nivel, que se comparten entre contextos
+      registry.add("spring.jpa.properties.hibernate.cache.region_prefix", () -> "localStorage");
+      registry.add("spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy", () -> "create");
+   }
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private SoftDeletePurgeJob purgeJob;
+   @Autowired
+   private ImagenService imagenService;
+   @Autowired
+   private PlatformTransactionManager transactionManager;
+
+   @Test
+   void uploadedImagesAreServedWithRangesAndLongLivedCaching() throws Exception {
+      byte[] content = new byte[100_000];
+      for (int i = 0; i < content.length; i++) {
+         content[i] = (byte) (i * 31);
+      }
+      String url = subir(content);
+      assertTrue(url.startsWith("/api/v1/imagen/archivo/") && url.endsWith(".png"), url);
+      assertTrue(Files.isRegularFile(storageDir.resolve(url.substring(url.lastIndexOf('/') + 1))));
+
+      MockHttpServletResponse full = mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+            .andReturn().getResponse();
+      assertArrayEquals(content, full.getContentAsByteArray());
+      String etag = full.getHeader(HttpHeaders.ETAG);
+
+      mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+      MockHttpServletResponse partial = mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=1000-1999"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1000-1999/100000"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 1000))
+            .andReturn().getResponse();
+      assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), partial.getContentAsByteArray());
+
+      MockHttpServletResponse suffix = mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=-10"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 99990-99999/100000"))
+            .andReturn().getResponse();
+      assertArrayEquals(Arrays.copyOfRange(content, 99_990, 100_000), suffix.getContentAsByteArray());
+
+      mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=100000-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */100000"));
+
+      // Un If-Range que no coincide con el ETag actual devuelve el archivo completo
+      mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"otro\""))
+            .andExpect(status().isOk())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, content.length));
+   }
+
+   @Test
+   void containerWithSendfileReceivesTheFileInsteadOfTheBody() throws Exception {
+      String url = subir(new byte[4096]);
+      MvcResult result = mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=100-")
+                  .requestAttr(FileDownload.SENDFILE_SUPPORT, true))
+            .andExpect(status().isPartialContent())
+            .andExpect(request().attribute(FileDownload.SENDFILE_START, 100L))
+            .andExpect(request().attribute(FileDownload.SENDFILE_END, 4096L))
+            .andReturn();
+      assertEquals(0, result.getResponse().getContentAsByteArray().length);
+      Path file = Path.of((String) result.getRequest().getAttribute(FileDownload.SENDFILE_FILENAME));
+      assertTrue(file.startsWith(storageDir.toAbsolutePath()), file.toString());
+   }
+
+   @Test
+   void imageUploadsStoreResizedVariantsNextToTheOriginal() throws Exception {
+      BufferedImage foto = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+      for (int x = 0; x < foto.getWidth(); x++) {
+         foto.setRGB(x, x / 2, 0xff8800);
+      }
+      ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+      ImageIO.write(foto, "jpeg", jpeg);
+      String body = mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "paisaje.jpg", "image/jpeg", jpeg.toByteArray())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.variantes.length()").value(3))
+            .andExpect(jsonPath("$.variantes[*].nombre").value(contains("miniatura", "pequena", "mediana")))
+            .andExpect(jsonPath("$.variantes[*].ancho").value(contains(160, 480, 1024)))
+            .andExpect(jsonPath("$.variantes[*].alto").value(contains(80, 240, 512)))
+            .andReturn().getResponse().getContentAsString();
+
+      List<String> urls = JsonPath.read(body, "$.variantes[*].url");
+      List<Integer> anchos = JsonPath.read(body, "$.variantes[*].ancho");
+      for (int i = 0; i < urls.size(); i++) {
+         byte[] variante = mockMvc.perform(get(urls.get(i)))
+               .andExpect(status().isOk())
+               .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+               .andReturn().getResponse().getContentAsByteArray();
+         assertEquals(anchos.get(i), ImageIO.read(new ByteArrayInputStream(variante)).getWidth());
+      }
+
+      // El detalle de la imagen expone las mismas variantes
+      Number id = JsonPath.read(body, "$.id");
+      mockMvc.perform(get("/api/v1/imagen/" + id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.variantes[0].url").value(urls.get(0)));
+
+      // Una imagen más estrecha que una variante solo tiene las variantes menores
+      ByteArrayOutputStream png = new ByteArrayOutputStream();
+      ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB), "png", png);
+      mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "icono.png", "image/png", png.toByteArray())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.variantes[*].nombre").value(contains("miniatura")))
+            .andExpect(jsonPath("$.variantes[0].url").value(endsWith(".png")));
+   }
+
+   @Test
+   void identicalUploadsShareTheStoredFileUntilNoImageUsesIt() throws Exception {
+      byte[] content = new byte[2048];
+      Arrays.fill(content, (byte) 7);
+      String primera = subirImagen(content);
+      String segunda = subirImagen(content);
+      Number primeraId = JsonPath.read(primera, "$.id");
+      Number segundaId = JsonPath.read(segunda, "$.id");
+      String imageId = JsonPath.read(primera, "$.imageId");
+      assertNotEquals(primeraId, segundaId);
+      assertEquals(imageId, JsonPath.read(segunda, "$.imageId"));
+      Path file = storageDir.resolve(imageId);
+
+      mockMvc.perform(delete("/api/v1/imagen/borrar/" + primeraId)).andExpect(status().isNoContent());
+      mockMvc.perform(get("/api/v1/imagen/" + primeraId)).andExpect(status().isNotFound());
+      mockMvc.perform(delete("/api/v1/imagen/borrar/" + primeraId)).andExpect(status().isNotFound());
+      assertTrue(Files.isRegularFile(file), "la otra imagen sigue usando el archivo");
+
+      mockMvc.perform(delete("/api/v1/imagen/" + segundaId)).andExpect(status().isNoContent());
+      assertTrue(Files.isRegularFile(file), "el archivo se conserva hasta purgar las imágenes inactivas");
+      String tercera = subirImagen(content);
+      assertNotEquals(imageId, JsonPath.read(tercera, "$.imageId"), "una imagen inactiva no se reutiliza");
+
+      purgeJob.purge();
+      assertFalse(Files.exists(file), "al purgar la última imagen que lo usa, el archivo se borra");
+      assertTrue(Files.isRegularFile(storageDir.resolve((String) JsonPath.read(tercera, "$.imageId"))));
+   }
+
+   @Test
+   void anUploadWaitsForAConcurrentDeleteOfTheImageItWouldShare() throws Exception {
+      byte[] content = new byte[2048];
+      Arrays.fill(content, (byte) 9);
+      String primera = subirImagen(content);
+      Long primeraId = ((Number) JsonPath.read(primera, "$.id")).longValue();
+      String imageId = JsonPath.read(primera, "$.imageId");
+
+      CountDownLatch borrada = new CountDownLatch(1);
+      CountDownLatch confirmar = new CountDownLatch(1);
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+         Future<?> borrado = executor.submit(() -> new TransactionTemplate(transactionManager)
+               .executeWithoutResult(status -> {
+                  imagenService.borrarImagen(primeraId);
+                  borrada.countDown();
+                  try {
+                     confirmar.await();
+                  } catch (InterruptedException e) {
+                     throw new IllegalStateException(e);
+                  }
+               }));
+         Future<String> subida;
+         try {
+            assertTrue(borrada.await(10, TimeUnit.SECONDS));
+            // La subida encuentra la imagen bloqueada por el borrado sin confirmar y lo espera
+            subida = executor.submit(() -> subirImagen(content));
+            Thread.sleep(200);
+            assertFalse(subida.isDone(), "la subida espera a que se confirme el borrado");
+         } finally {
+            confirmar.countDown();
+         }
+         borrado.get(10, TimeUnit.SECONDS);
+         assertNotEquals(imageId, JsonPath.read(subida.get(10, TimeUnit.SECONDS), "$.imageId"),
+               "una imagen borrada mientras tanto no se comparte");
+      }
+   }
+
+   @Test
+   void replacingAnImageDeletesTheFilesItNoLongerUses() throws Exception {
+      String compartida = subirImagen(png(1));
+      String otra = subirImagen(png(1));
+      String propia = subirImagen(png(2));
+      String archivoCompartido = JsonPath.read(compartida, "$.imageId");
+      String archivoPropio = JsonPath.read(propia, "$.imageId");
+      String variantePropia = JsonPath.read(propia, "$.variantes[0].url");
+
+      reemplazar(JsonPath.read(propia, "$.id"), png(3));
+      assertFalse(Files.exists(storageDir.resolve(archivoPropio)), "el archivo anterior se borra");
+      mockMvc.perform(get(variantePropia)).andExpect(status().isNotFound());
+      String nuevo = imagenRepository.findById(((Number) JsonPath.read(propia, "$.id")).longValue())
+            .orElseThrow().getImageId();
+      assertTrue(Files.isRegularFile(storageDir.resolve(nuevo)));
+
+      // Mientras otra imagen use el archivo, se conserva
+      reemplazar(JsonPath.read(compartida, "$.id"), png(3));
+      assertTrue(Files.isRegularFile(storageDir.resolve(archivoCompartido)));
+      reemplazar(JsonPath.read(otra, "$.id"), png(4));
+      assertFalse(Files.exists(storageDir.resolve(archivoCompartido)));
+      assertTrue(Files.isRegularFile(storageDir.resolve(nuevo)), "el contenido repetido comparte el archivo nuevo");
+   }
+
+   @Test
+   void onlyRecognizedImagesAreStoredAndOtherFilesAreNeverRendered() throws Exception {
+      byte[] html = "<html><script>alert(document.cookie)</script></html>".getBytes(StandardCharsets.UTF_8);
+      mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "foto.png", "image/png", html)))
+            .andExpect(status().isBadRequest());
+      byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><script>alert(1)</script></svg>"
+            .getBytes(StandardCharsets.UTF_8);
+      mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "foto.svg", "image/svg+xml", svg)))
+            .andExpect(status().isBadRequest());
+
+      // La extensión se elige por el contenido, no por el nombre recibido
+      String url = JsonPath.read(mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "pagina.html", "text/html", png(5))))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(), "$.imageUrl");
+      assertTrue(url.endsWith(".png"), url);
+      mockMvc.perform(get(url))
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+            .andExpect(header().string("Content-Security-Policy", "sandbox"));
+
+      // Un archivo que no es una imagen, como los guardados antes de validar el contenido,
+      // se sirve como descarga
+      String id = "00000000-0000-0000-0000-000000000001.html";
+      Files.write(storageDir.resolve(id), html);
+      mockMvc.perform(get("/api/v1/imagen/archivo/" + id))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/octet-stream"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + "\""))
+            .andExpect(header().string("Content-Security-Policy", "sandbox"));
+   }
+
+   @Test
+   void unknownOrTraversingIdsAreNotFound() throws Exception {
+      mockMvc.perform(get("/api/v1/imagen/archivo/00000000-0000-0000-0000-000000000000.png"))
+            .andExpect(status().isNotFound());
+      mockMvc.perform(get("/api/v1/imagen/archivo/..%2F..%2Fetc%2Fpasswd"))
+            .andExpect(status().isNotFound());
+   }
+
+   private String subir(byte[] content) throws Exception {
+      return JsonPath.read(subirImagen(content), "$.imageUrl");
+   }
+
+   /**
+    * Reemplaza el archivo de una imagen con una subida asíncrona y espera a que termine.
+    */
+   private void reemplazar(Number imagenId, byte[] content) throws Exception {
+      String location = mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "foto.png", "image/png", Fixtures.png(content)))
+                  .param("async", "true").param("imagenId", imagenId.toString()))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      String status;
+      do {
+         assertTrue(System.nanoTime() < deadline, "el reemplazo no terminó");
+         Thread.sleep(20);
+         status = JsonPath.read(mockMvc.perform(get(location)).andReturn().getResponse().getContentAsString(),
+               "$.status");
+      } while (!status.equals("DONE") && !status.equals("FAILED"));
+      assertEquals("DONE", status);
+   }
+
+   /**
+    * Crea un PNG distinto para cada semilla, con tamaño suficiente para tener una variante.
+    */
+   private static byte[] png(int seed) throws IOException {
+      BufferedImage imagen = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+      imagen.setRGB(seed, seed, 0xffffff);
+      ByteArrayOutputStream png = new ByteArrayOutputStream();
+      ImageIO.write(imagen, "png", png);
+      return png.toByteArray();
+   }
+
+   /**
+    * Sube un archivo como imagen PNG; sus primeros bytes se sustituyen por la firma PNG.
+    */
+   private String subirImagen(byte[] content) throws Exception {
+      return mockMvc.perform(multipart("/api/v1/imagen/subir")
+                  .file(new MockMultipartFile("file", "foto.png", "image/png", Fixtures.png(content))))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+   }
+}
@@ -0,0 +1,135 @@
+package com.example.api.controllers;
+
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la modificación parcial con JSON Merge Patch: una sola carga de la
+ * entidad, una sola sentencia UPDATE con las columnas modificadas y validación
+ * de los atributos con las restricciones del DTO.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class PatchUpdateTest {
+
+   private static final String MERGE_PATCH = BaseControllerImpl.MERGE_PATCH_JSON_VALUE;
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+
+   @Test
+   void patchLoadsOnceAndUpdatesOnlyChangedColumns() throws Exception {
+      Post post = crearPost("patch");
+      SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+      assertTrue(sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+            .getEntityDescriptor(Post.class).getEntityMetamodel().isDynamicUpdate());
+
+      Statistics statistics = sessionFactory.getStatistics();
+      statistics.clear();
+      mockMvc.perform(patch("/api/v1/post/" + post.getId())
+                  .contentType(MERGE_PATCH)
+                  .content("{\"titulo\": \"nuevo titulo\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.titulo").value("nuevo titulo"))
+            .andExpect(jsonPath("$.descripcion").value("descripcion"));
+
+      assertEquals(1, statistics.getEntityUpdateCount());
+      assertEquals(0, statistics.getEntityFetchCount(), "la entidad se carga una sola vez con su plan de detalle");
+
+      Post actualizado = postRepository.findById(post.getId()).orElseThrow();
+      assertEquals("nuevo titulo", actualizado.getTitulo());
+      assertEquals("categoria", actualizado.getCategoria());
+   }
+
+   @Test
+   void nestedObjectsOnlyRepointTheAssociation() throws Exception {
+      Post post = crearPost("repoint");
+      Usuario otro = usuarioRepository.save(usuario("repointotro"));
+
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+                  .content("{\"usuario\": {\"nombre\": \"nuevo nombre\"}}"))
+            .andExpect(status().isBadRequest());
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+                  .content("{\"usuario\": {\"id\": %d, \"nombre\": \"nuevo nombre\"}}".formatted(otro.getId())))
+            .andExpect(status().isBadRequest());
+      assertEquals("repointotro", usuarioRepository.findById(otro.getId()).orElseThrow().getNombre());
+
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+                  .content("{\"usuario\": {\"id\": %d}}".formatted(otro.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.usuario.id").value(otro.getId()));
+
+      assertEquals(otro.getId(), postRepository.findById(post.getId()).orElseThrow().getUsuario().getId());
+      assertEquals("repoint", usuarioRepository.findById(post.getUsuario().getId()).orElseThrow().getNombre());
+   }
+
+   @Test
+   void patchRejectsInvalidDocuments() throws Exception {
+      Post post = crearPost("invalido");
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+            .content("{\"titulo\": null}")).andExpect(status().isBadRequest());
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+            .content("{\"noExiste\": 1}")).andExpect(status().isBadRequest());
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+            .content("{\"duracion\": \"mucho\"}")).andExpect(status().isBadRequest());
+      mockMvc.perform(patch("/api/v1/post/" + post.getId()).contentType(MERGE_PATCH)
+            .content("{\"postComentarios\": []}")).andExpect(status().isBadRequest());
+      mockMvc.perform(patch("/api/v1/post/0").contentType(MERGE_PATCH)
+            .content("{\"titulo\": \"x\"}")).andExpect(status().isNotFound());
+
+      assertEquals("titulo", postRepository.findById(post.getId()).orElseThrow().getTitulo());
+   }
+
+   @Test
+   void putLoadsTheEntityOnce() throws Exception {
+      Post post = crearPost("put");
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(put("/api/v1/post/" + post.getId())
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content("""
+                        {"titulo": "otro", "descripcion": "descripcion", "categoria": "categoria",
+                         "duracion": 2, "presupuesto": 1.0, "estado": true,
+                         "usuario": {"id": %d}, "postComentarios": [], "postImagenes": []}
+                        """.formatted(post.getUsuario().getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.titulo").value("otro"));
+
+      assertEquals(1, statistics.getEntityUpdateCount());
+      assertEquals("otro", postRepository.findById(post.getId()).orElseThrow().getTitulo());
+   }
+
+   private Post crearPost(String nombre) {
+      return postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuarioRepository.save(usuario(nombre)), new HashSet<>(), new HashSet<>()));
+   }
+
+}
@@ -0,0 +1,164 @@
+package com.example.api.controllers;
+
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import com.example.api.services.PostSearchIndex;
+import com.example.api.services.SoftDeletePurgeJob;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la búsqueda de posts por texto: el índice se construye a partir de la base de
+ * datos al arrancar, sigue las altas, modificaciones y bajas hechas a través del servicio o
+ * directamente con el repositorio y las purgas, ordena por relevancia y pagina los resultados.
+ */
+@SpringBootTest(properties = {
+      "spring.datasource.url=jdbc:h2:mem:searchDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+      "app.search.max-stale=50ms"})
+@AutoConfigureMockMvc
+class PostSearchTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private PostSearchIndex searchIndex;
+   @Autowired
+   private SoftDeletePurgeJob purgeJob;
+
+   @Test
+   void followsWritesThroughTheService() throws Exception {
+      long id = crear("Ruta por los Picos de Europa", "Tres días de montaña", "senderismo");
+      assertEquals(List.of(id), awaitResults("picos", 1));
+
+      mockMvc.perform(patch("/api/v1/post/" + id).contentType(MediaType.APPLICATION_JSON)
+                  .content("{\"titulo\": \"Ruta por los Pirineos\"}"))
+            .andExpect(status().isOk());
+      assertEquals(List.of(id), awaitResults("pirineos", 1));
+      assertEquals(List.of(), awaitResults("picos", 0));
+
+      mockMvc.perform(delete("/api/v1/post/" + id)).andExpect(status().isNoContent());
+      assertEquals(List.of(), awaitResults("pirineos", 0));
+   }
+
+   @Test
+   void ranksTitleMatchesFirstAndPaginates() throws Exception {
+      long enDescripcion = crear("Escapada de fin de semana", "Visita a los acantilados del norte", "costa");
+      long enTitulo = crear("Acantilados de la costa vasca", "Paseo junto al mar", "costa");
+
+      assertEquals(List.of(enTitulo, enDescripcion), awaitResults("acantilados", 2));
+      mockMvc.perform(get("/api/v1/post/search?q=acantilados&size=1&page=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.totalElements").value(2))
+            .andExpect(jsonPath("$.content.length()").value(1))
+            .andExpect(jsonPath("$.content[0].id").value(enDescripcion));
+      assertEquals(List.of(enTitulo), awaitResults("acantilados vasca", 1), "todos los términos deben aparecer");
+   }
+
+   @Test
+   void followsWritesOutsideTheServiceAndPurges() throws Exception {
+      Post post = postRepository.save(new Post("Viaje a Menorca", "Calas y faros", "islas", 4, 700.0,
+            usuarioRepository.save(usuario("menorca")), new HashSet<>(), new HashSet<>()));
+      assertEquals(List.of(post.getId()), awaitIndexed("menorca", 1), "el repositorio también actualiza el índice");
+
+      post.setTitulo("Viaje a Formentera");
+      postRepository.save(post);
+      assertEquals(List.of(post.getId()), awaitIndexed("formentera", 1));
+      assertEquals(List.of(), awaitIndexed("menorca", 0));
+
+      // La baja lógica masiva hecha fuera del servicio no genera eventos: la purga la corrige
+      postRepository.deactivateById(post.getId(), null);
+      assertEquals(List.of(post.getId()), awaitIndexed("formentera", 1));
+      purgeJob.purge();
+      assertEquals(List.of(), awaitIndexed("formentera", 0));
+   }
+
+   @Test
+   void rebuildsTheIndexFromTheDatabaseOnStartup() throws Exception {
+      Post post = postRepository.save(new Post("Viaje a Lanzarote", "Volcanes y playas", "islas", 4, 900.0,
+            usuarioRepository.save(usuario("lanzarote")), new HashSet<>(), new HashSet<>()));
+      assertEquals(List.of(post.getId()), awaitResults("lanzarote", 1));
+
+      // Sin directorio configurado, el índice reabierto es nuevo y se llena desde la base de datos
+      searchIndex.close();
+      searchIndex.open();
+
+      assertEquals(List.of(post.getId()), awaitResults("lanzarote", 1));
+   }
+
+   @Test
+   void rejectsEmptyQueriesAndDeepPages() throws Exception {
+      mockMvc.perform(get("/api/v1/post/search").param("q", " ")).andExpect(status().isBadRequest());
+      mockMvc.perform(get("/api/v1/post/search?q=viaje&page=100&size=20")).andExpect(status().isBadRequest());
+   }
+
+   private long crear(String titulo, String descripcion, String categoria) throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario(titulo.replaceAll("\\W", "").toLowerCase()));
+      String body = mockMvc.perform(post("/api/v1/post").contentType(MediaType.APPLICATION_JSON)
+                  .content("""
+                        {"titulo": "%s", "descripcion": "%s", "categoria": "%s",
+                         "duracion": 3, "presupuesto": 500.0,
+                         "usuario": {"id": %d}, "postComentarios": [], "postImagenes": []}
+                        """.formatted(titulo, descripcion, categoria, usuario.getId())))
+            .andExpect(status().isCreated())
+            .andReturn().getResponse().getContentAsString();
+      return ((Number) JsonPath.read(body, "$.id")).longValue();
+   }
+
+   /**
+    * Repite la búsqueda hasta que devuelve el número de resultados esperado, ya que los
+    * cambios tardan hasta {@code app.search.max-stale} en ser visibles.
+    */
+   private List<Long> awaitResults(String q, int expected) throws Exception {
+      List<Number> ids = List.of();
+      for (int i = 0; i < 50; i++) {
+         String body = mockMvc.perform(get("/api/v1/post/search").param("q", q))
+               .andExpect(status().isOk())
+               .andReturn().getResponse().getContentAsString();
+         ids = JsonPath.read(body, "$.content[*].id");
+         if (ids.size() == expected) {
+            break;
+         }
+         Thread.sleep(20);
+      }
+      return ids.stream().map(Number::longValue).toList();
+   }
+
+   /**
+    * Como {@link #awaitResults}, pero consulta directamente el índice, sin descartar los
+    * posts que ya no están activos en la base de datos.
+    */
+   private List<Long> awaitIndexed(String q, int expected) throws Exception {
+      List<Long> ids = List.of();
+      for (int i = 0; i < 50; i++) {
+         ids = searchIndex.search(q, 0, 10).ids();
+         if (ids.size() == expected) {
+            break;
+         }
+         Thread.sleep(20);
+      }
+      return ids;
+   }
+}
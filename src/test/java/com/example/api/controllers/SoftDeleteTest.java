@@ -0,0 +1,136 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.ImagenRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import com.example.api.services.SoftDeletePurgeJob;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el borrado lógico: una sola sentencia UPDATE al eliminar, que se extiende a
+ * las entidades dependientes, lecturas que excluyen las filas inactivas y la purga
+ * posterior de esas filas.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SoftDeleteTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private JdbcTemplate jdbcTemplate;
+   @Autowired
+   private SoftDeletePurgeJob purgeJob;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private ComentarioRepository comentarioRepository;
+
+   @Test
+   void deleteFlipsEstadoWithOneUpdateAndReadsSkipInactiveRows() throws Exception {
+      Imagen imagen = imagenRepository.save(Fixtures.imagen("borrar.png", "http://img/borrar", "borrar"));
+      long activas = imagenRepository.count();
+
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(delete("/api/v1/imagen/" + imagen.getId())).andExpect(status().isNoContent());
+      assertEquals(1, statistics.getPrepareStatementCount());
+
+      assertFalse(jdbcTemplate.queryForObject("select estado from imagenes where id = ?", Boolean.class, imagen.getId()));
+      assertTrue(imagenRepository.findById(imagen.getId()).isEmpty());
+      assertFalse(imagenRepository.existsById(imagen.getId()));
+      assertEquals(activas - 1, imagenRepository.count());
+      assertTrue(imagenRepository.findAll().stream().noneMatch(i -> i.getId().equals(imagen.getId())));
+      mockMvc.perform(delete("/api/v1/imagen/" + imagen.getId())).andExpect(status().isNotFound());
+   }
+
+   @Test
+   void inactiveCommentsAreFilteredFromPostDetailAndPurged() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("soft"));
+      Post post = postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+      Comentario visible = comentarioRepository.save(new Comentario("visible", post, usuario));
+      Comentario borrado = comentarioRepository.save(new Comentario("borrado", post, usuario));
+
+      mockMvc.perform(delete("/api/v1/comentario/" + borrado.getId())).andExpect(status().isNoContent());
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.postComentarios.length()").value(1))
+            .andExpect(jsonPath("$.postComentarios[0].id").value(visible.getId()));
+
+      assertTrue(purgeJob.purge() >= 1);
+      assertEquals(0, jdbcTemplate.queryForObject("select count(*) from comentarios where id = ?",
+            Integer.class, borrado.getId()));
+      assertEquals(0, jdbcTemplate.queryForObject("select count(*) from comentarios where estado = false",
+            Integer.class));
+      assertTrue(comentarioRepository.findById(visible.getId()).isPresent());
+   }
+
+   @Test
+   void deletingAPostDeactivatesItsCommentsAndEvictsTheirCachedDtos() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("cascada"));
+      Post post = postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+      Comentario comentario = comentarioRepository.save(new Comentario("hijo", post, usuario));
+      mockMvc.perform(get("/api/v1/comentario/" + comentario.getId())).andExpect(status().isOk());
+
+      mockMvc.perform(delete("/api/v1/post/" + post.getId())).andExpect(status().isNoContent());
+
+      assertFalse(jdbcTemplate.queryForObject("select estado from comentarios where id = ?",
+            Boolean.class, comentario.getId()));
+      assertEquals(1, jdbcTemplate.queryForObject("select version from comentarios where id = ?",
+            Long.class, comentario.getId()) - comentario.getVersion());
+      mockMvc.perform(get("/api/v1/comentario/" + comentario.getId())).andExpect(status().isNotFound());
+      mockMvc.perform(get("/api/v1/post/" + post.getId())).andExpect(status().isNotFound());
+   }
+
+   @Test
+   void purgeSkipsReferencedRowsAndDeletesTheRestOfTheBatch() throws Exception {
+      Imagen referenciada = imagenRepository.save(Fixtures.imagen("ref.png", "http://img/ref", "ref"));
+      Usuario usuario = usuarioRepository.save(usuario("purga"));
+      postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>(List.of(referenciada))));
+      Imagen libre = imagenRepository.save(Fixtures.imagen("libre.png", "http://img/libre", "libre"));
+
+      mockMvc.perform(delete("/api/v1/imagen/" + referenciada.getId())).andExpect(status().isNoContent());
+      mockMvc.perform(delete("/api/v1/imagen/" + libre.getId())).andExpect(status().isNoContent());
+
+      for (int i = 0; i < 2; i++) {
+         purgeJob.purge();
+         assertEquals(1, jdbcTemplate.queryForObject("select count(*) from imagenes where id = ?",
+               Integer.class, referenciada.getId()), "la fila referenciada se conserva");
+         assertEquals(0, jdbcTemplate.queryForObject("select count(*) from imagenes where id = ?",
+               Integer.class, libre.getId()), "el resto del lote se purga");
+      }
+   }
+}
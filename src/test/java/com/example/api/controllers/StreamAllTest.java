@@ -0,0 +1,64 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Imagen;
+import com.example.api.repositories.ImagenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Comprueba la variante NDJSON del listado completo y que el listado JSON
+ * habitual sigue siendo la respuesta por defecto.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class StreamAllTest {
+
+   private static final int IMAGENES = 1200;
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ImagenRepository imagenRepository;
+
+   @Test
+   void streamsOneDtoPerLine() throws Exception {
+      List<Imagen> imagenes = new ArrayList<>();
+      for (int i = 0; i < IMAGENES; i++) {
+         imagenes.add(Fixtures.imagen("img" + i, "http://img/" + i, "stream" + i));
+      }
+      imagenRepository.saveAll(imagenes);
+      long total = imagenRepository.count();
+
+      MvcResult result = mockMvc.perform(get("/api/v1/imagen").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+      String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+
+      String[] lines = body.strip().split("\n");
+      assertEquals(total, lines.length);
+      assertTrue(lines[0].startsWith("{\"id\":"));
+
+      mockMvc.perform(get("/api/v1/imagen"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.length()").value(total));
+   }
+}
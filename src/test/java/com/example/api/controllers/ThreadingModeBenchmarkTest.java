@@ -0,0 +1,151 @@
+package com.example.api.controllers;
+
+import com.example.api.Fixtures;
+import com.example.api.ApiApplication;
+import com.example.api.entities.Imagen;
+import com.example.api.repositories.ImagenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el rendimiento de la aplicación con hilos de plataforma (configuración por defecto) y
+ * con el perfil {@code virtual}: arranca cada configuración en un puerto aleatorio, la carga con
+ * el mismo número de clientes concurrentes contra los endpoints de lectura e informa del número
+ * de peticiones por segundo, los percentiles de latencia y los bloqueos de hilos virtuales.
+ * <p>
+ * Es una prueba de carga: no se ejecuta con {@code mvn test}, sino con {@code mvn test -Pcarga}.
+ * Los clientes y la duración se ajustan con {@code -Dcarga.clients} y {@code -Dcarga.duration}.
+ */
+@Tag("carga")
+class ThreadingModeBenchmarkTest {
+
+   private static final int CLIENTS = Integer.getInteger("carga.clients", 256);
+   private static final Duration DURATION = Duration.ofSeconds(Long.getLong("carga.duration", 15));
+   private static final Duration WARMUP = Duration.ofSeconds(5);
+   private static final int IMAGES = 500;
+
+   private final HttpClient client = HttpClient.newBuilder()
+         .executor(command -> Thread.ofVirtual().start(command))
+         .connectTimeout(Duration.ofSeconds(5))
+         .build();
+
+   @Test
+   void comparesPlatformAndVirtualThreads() throws Exception {
+      Result platform = run("platform");
+      Result virtual = run("virtual");
+
+      System.out.printf("%n%-9s %10s %9s %9s %9s %9s %7s %7s%n",
+            "modo", "peticiones", "req/s", "p50 ms", "p99 ms", "max ms", "errores", "pinning");
+      for (Result result : List.of(platform, virtual)) {
+         System.out.printf("%-9s %10d %9.0f %9.1f %9.1f %9.1f %7d %7.0f%n", result.mode,
+               result.histogram.getTotalCount(), result.throughput(),
+               result.percentile(50), result.percentile(99), result.histogram.getMaxValue() / 1_000_000.0,
+               result.errors, result.pinned);
+      }
+
+      assertEquals(0, platform.errors);
+      assertEquals(0, virtual.errors);
+      // Con hilos virtuales el rendimiento no debe hundirse: si lo hace, algún bloqueo
+      // synchronized está reteniendo los hilos portadores (ver jvm.threads.virtual.pinned)
+      assertTrue(virtual.throughput() > platform.throughput() / 2,
+            "los hilos virtuales rinden menos de la mitad que los de plataforma");
+   }
+
+   private Result run(String mode) throws Exception {
+      SpringApplicationBuilder builder = new SpringApplicationBuilder(ApiApplication.class)
+            .properties("server.port=0",
+                  "spring.datasource.url=jdbc:h2:mem:carga-" + mode
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac",
+                  "spring.jpa.show-sql=false",
+                  "logging.level.root=WARN",
+                  "logging.level.com.example.api=WARN");
+      if (mode.equals("virtual")) {
+         builder.profiles("virtual");
+      }
+      try (ConfigurableApplicationContext context = builder.run()) {
+         ImagenRepository imagenes = context.getBean(ImagenRepository.class);
+         List<Long> ids = new ArrayList<>();
+         for (int i = 0; i < IMAGES; i++) {
+            ids.add(imagenes.save(Fixtures.imagen("carga" + i, "http://img/" + i, "carga-" + mode + i)).getId());
+         }
+         String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+               + "/api/v1/imagen";
+
+         drive(base, ids, WARMUP, new Recorder(3), new AtomicLong());
+         Recorder recorder = new Recorder(3);
+         AtomicLong errors = new AtomicLong();
+         long start = System.nanoTime();
+         drive(base, ids, DURATION, recorder, errors);
+         long elapsed = System.nanoTime() - start;
+
+         double pinned = context.getBean(MeterRegistry.class).find("jvm.threads.virtual.pinned")
+               .counters().stream().mapToDouble(Counter::count).sum();
+         return new Result(mode, recorder.getIntervalHistogram(), errors.get(), elapsed, pinned);
+      }
+   }
+
+   /**
+    * Lanza {@link #CLIENTS} clientes en bucle cerrado durante el tiempo indicado. Cada cliente
+    * alterna la lectura de una imagen y de una página, y registra la latencia de cada petición.
+    */
+   private void drive(String base, List<Long> ids, Duration duration, Recorder recorder, AtomicLong errors)
+         throws InterruptedException {
+      long end = System.nanoTime() + duration.toNanos();
+      List<Thread> clients = new ArrayList<>();
+      for (int i = 0; i < CLIENTS; i++) {
+         clients.add(Thread.ofVirtual().start(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+               String url = random.nextInt(4) == 0
+                     ? base + "/paged?size=20&page=" + random.nextInt(IMAGES / 20)
+                     : base + "/" + ids.get(random.nextInt(ids.size()));
+               long started = System.nanoTime();
+               try {
+                  HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                  if (response.statusCode() != 200) {
+                     errors.incrementAndGet();
+                  }
+               } catch (Exception e) {
+                  errors.incrementAndGet();
+               }
+               recorder.recordValue(System.nanoTime() - started);
+            }
+         }));
+      }
+      for (Thread thread : clients) {
+         thread.join();
+      }
+   }
+
+   private record Result(String mode, Histogram histogram, long errors, long elapsedNanos, double pinned) {
+
+      double throughput() {
+         return histogram.getTotalCount() / (elapsedNanos / 1e9);
+      }
+
+      double percentile(double percentile) {
+         return histogram.getValueAtPercentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+      }
+   }
+}
@@ -0,0 +1,222 @@
+package com.example.api.mappers;
+
+import com.example.api.Fixtures;
+import com.example.api.dto.ComentarioDTO;
+import com.example.api.dto.ImagenDTO;
+import com.example.api.dto.PostDTO;
+import com.example.api.dto.UsuarioDTO;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Imagen;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba que GenericMapper produce el mismo resultado que ModelMapper,
+ * el mapeador utilizado anteriormente, para todas las entidades de la aplicación,
+ * y que las políticas de asociaciones acotan el grafo copiado.
+ */
+class GenericMapperTest {
+
+   private final ModelMapper modelMapper = new ModelMapper();
+
+   @Test
+   void postToDTOMatchesModelMapper() {
+      Post post = samplePost();
+      PostDTO dto = new GenericMapper<>(Post.class, PostDTO.class).toDTO(post);
+
+      assertSameGraph(modelMapper.map(post, PostDTO.class), dto);
+      assertEquals("Viaje", dto.getTitulo());
+      assertEquals("Ana", dto.getUsuario().getNombre());
+      assertEquals(2, dto.getPostComentarios().size());
+      assertSame(dto, dto.getPostComentarios().iterator().next().getPost(), "las referencias cíclicas se conservan");
+   }
+
+   @Test
+   void postToEntityMatchesModelMapper() {
+      PostDTO dto = new GenericMapper<>(Post.class, PostDTO.class).toDTO(samplePost());
+      Post entity = new GenericMapper<>(Post.class, PostDTO.class).toEntity(dto);
+
+      assertSameGraph(modelMapper.map(dto, Post.class), entity);
+   }
+
+   @Test
+   void usuarioComentarioImagenMatchModelMapper() {
+      Post post = samplePost();
+      Usuario usuario = post.getUsuario();
+      Comentario comentario = post.getPostComentarios().iterator().next();
+      Imagen imagen = usuario.getFotoPerfil();
+
+      assertSameGraph(modelMapper.map(usuario, UsuarioDTO.class),
+            new GenericMapper<>(Usuario.class, UsuarioDTO.class).toDTO(usuario));
+      assertSameGraph(modelMapper.map(comentario, ComentarioDTO.class),
+            new GenericMapper<>(Comentario.class, ComentarioDTO.class).toDTO(comentario));
+      assertSameGraph(modelMapper.map(imagen, ImagenDTO.class),
+            new GenericMapper<>(Imagen.class, ImagenDTO.class).toDTO(imagen));
+   }
+
+   @Test
+   void nullValuesAndListsAreHandled() {
+      GenericMapper<Usuario, UsuarioDTO> mapper = new GenericMapper<>(Usuario.class, UsuarioDTO.class);
+      Usuario usuario = new Usuario();
+      usuario.setId(7L);
+
+      UsuarioDTO dto = mapper.toDTO(usuario);
+      assertNull(mapper.toDTO(null));
+      assertNull(dto.getFotoPerfil());
+      assertEquals(Boolean.TRUE, dto.getEstado());
+
+      dto.setEstado(null);
+      assertTrue(mapper.toEntity(dto).isEstado(), "un estado nulo conserva el valor por defecto");
+      dto.setEstado(false);
+      assertFalse(mapper.toEntity(dto).isEstado());
+      assertEquals(List.of(7L), mapper.toDTOList(List.of(usuario)).stream().map(UsuarioDTO::getId).toList());
+   }
+
+   @Test
+   void policyBoundsNestedComments() {
+      MappingPolicy policy = MappingPolicy.builder()
+            .maxDepth(2)
+            .reference("postComentarios.post")
+            .summary("postComentarios.usuario", "nombre")
+            .build();
+      PostDTO dto = new GenericMapper<>(Post.class, PostDTO.class, policy).toDTO(samplePost());
+
+      assertNotNull(dto.getUsuario().getFotoPerfil());
+      assertEquals("ana@mail.com", dto.getUsuario().getEmail());
+      for (ComentarioDTO comentario : dto.getPostComentarios()) {
+         assertNotSame(dto, comentario.getPost());
+         assertEquals(10L, comentario.getPost().getId());
+         assertNull(comentario.getPost().getTitulo());
+         assertNull(comentario.getPost().getPostComentarios());
+         assertEquals("Ana", comentario.getUsuario().getNombre());
+         assertNull(comentario.getUsuario().getEmail());
+         assertNull(comentario.getUsuario().getFotoPerfil());
+      }
+   }
+
+   @Test
+   void policyReducesDeepAndCyclicAssociationsToReferences() {
+      MappingPolicy policy = MappingPolicy.builder().maxDepth(1).omit("postImagenes").build();
+      PostDTO dto = new GenericMapper<>(Post.class, PostDTO.class, policy).toDTO(samplePost());
+
+      assertEquals("Ana", dto.getUsuario().getNombre());
+      assertEquals(1L, dto.getUsuario().getFotoPerfil().getId());
+      assertNull(dto.getUsuario().getFotoPerfil().getEstado());
+      assertNull(dto.getPostImagenes());
+      ComentarioDTO comentario = dto.getPostComentarios().iterator().next();
+      assertEquals(10L, comentario.getPost().getId());
+      assertNull(comentario.getUsuario().getNombre());
+
+      ComentarioDTO sinLimite = new GenericMapper<>(Comentario.class, ComentarioDTO.class,
+            MappingPolicy.builder().build()).toDTO(samplePost().getPostComentarios().iterator().next());
+      assertEquals("Viaje", sinLimite.getPost().getTitulo());
+      for (ComentarioDTO anidado : sinLimite.getPost().getPostComentarios()) {
+         assertNotNull(anidado.getId());
+         assertNull(anidado.getTexto(), "el ciclo se corta con una referencia");
+      }
+   }
+
+   @Test
+   void copyDTOSharesNoMutableInstanceWithTheOriginal() {
+      GenericMapper<Post, PostDTO> mapper = new GenericMapper<>(Post.class, PostDTO.class);
+      PostDTO original = mapper.toDTO(samplePost());
+      PostDTO copia = mapper.copyDTO(original);
+
+      assertSameGraph(original, copia);
+      assertNotSame(original.getUsuario(), copia.getUsuario());
+      assertNotSame(original.getUsuario().getFotoPerfil(), copia.getUsuario().getFotoPerfil());
+      assertNotSame(original.getPostComentarios(), copia.getPostComentarios());
+      ComentarioDTO comentario = copia.getPostComentarios().iterator().next();
+      assertSame(copia, comentario.getPost(), "las referencias cíclicas apuntan a la copia");
+
+      copia.getUsuario().setNombre("otro");
+      copia.getPostComentarios().clear();
+      assertEquals("Ana", original.getUsuario().getNombre());
+      assertEquals(2, original.getPostComentarios().size());
+   }
+
+   static Post samplePost() {
+      Imagen foto = Fixtures.imagen("perfil.png", "http://img/perfil.png", "perfil");
+      foto.setDescripcion("foto de perfil");
+      foto.setId(1L);
+      foto.setEstado(true);
+      Usuario usuario = new Usuario("Ana", "ana@mail.com", "@ana", foto);
+      usuario.setId(2L);
+      usuario.setEstado(true);
+      Imagen imagen = Fixtures.imagen("playa.png", "http://img/playa.png", "playa");
+      imagen.setDescripcion("playa");
+      imagen.setId(3L);
+
+      Post post = new Post("Viaje", "Un viaje", "turismo", 5, 1500.0, usuario, new HashSet<>(), Set.of(imagen));
+      post.setId(10L);
+      post.setEstado(true);
+      for (long i = 0; i < 2; i++) {
+         Comentario comentario = new Comentario("comentario " + i, post, usuario);
+         comentario.setId(100L + i);
+         post.getPostComentarios().add(comentario);
+      }
+      return post;
+   }
+
+   /**
+    * Compara recursivamente las propiedades legibles de dos grafos de objetos,
+    * siguiendo los ciclos una sola vez.
+    */
+   static void assertSameGraph(Object expected, Object actual) {
+      assertSameGraph(expected, actual, new IdentityHashMap<>(), "raiz");
+   }
+
+   private static void assertSameGraph(Object expected, Object actual, Map<Object, Object> visited, String path) {
+      if (expected == null || actual == null) {
+         assertEquals(expected, actual, path);
+         return;
+      }
+      assertEquals(expected.getClass(), actual.getClass(), path);
+      if (expected.getClass().getName().startsWith("java.lang") || expected instanceof Number) {
+         assertEquals(expected, actual, path);
+         return;
+      }
+      if (visited.put(expected, actual) != null) {
+         return;
+      }
+      if (expected instanceof Collection<?> expectedItems) {
+         Collection<?> actualItems = (Collection<?>) actual;
+         assertEquals(expectedItems.size(), actualItems.size(), path);
+         Comparator<Object> byId = Comparator.comparing(GenericMapperTest::idOf);
+         List<Object> sortedExpected = new ArrayList<>(expectedItems);
+         List<Object> sortedActual = new ArrayList<>(actualItems);
+         sortedExpected.sort(byId);
+         sortedActual.sort(byId);
+         for (int i = 0; i < sortedExpected.size(); i++) {
+            assertSameGraph(sortedExpected.get(i), sortedActual.get(i), visited, path + "[" + i + "]");
+         }
+         return;
+      }
+      for (Method getter : expected.getClass().getMethods()) {
+         String name = getter.getName();
+         if (getter.getParameterCount() == 0 && !name.equals("getClass")
+               && (name.startsWith("get") || name.startsWith("is"))) {
+            try {
+               assertSameGraph(getter.invoke(expected), getter.invoke(actual), visited, path + "." + name);
+            } catch (ReflectiveOperationException e) {
+               fail(e);
+            }
+         }
+      }
+   }
+
+   private static String idOf(Object value) {
+      try {
+         return String.valueOf(value.getClass().getMethod("getId").invoke(value));
+      } catch (ReflectiveOperationException e) {
+         return String.valueOf(value);
+      }
+   }
+}
@@ -0,0 +1,142 @@
+package com.example.api.services;
+
+import com.example.api.controllers.BaseControllerImpl;
+import com.example.api.dto.UsuarioDTO;
+import com.example.api.entities.Comentario;
+import com.example.api.entities.Post;
+import com.example.api.entities.Usuario;
+import com.example.api.repositories.ComentarioRepository;
+import com.example.api.repositories.PostRepository;
+import com.example.api.repositories.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static com.example.api.Fixtures.usuario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la caché de DTOs de detalle: las lecturas repetidas no consultan la
+ * base de datos, cada llamada recibe su propia copia y las escrituras invalidan tanto
+ * la entidad como los DTOs que la incluyen.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class DtoCacheTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+   @Autowired
+   private MeterRegistry meterRegistry;
+   @Autowired
+   private UsuarioRepository usuarioRepository;
+   @Autowired
+   private PostRepository postRepository;
+   @Autowired
+   private ComentarioRepository comentarioRepository;
+   @Autowired
+   private UsuarioService usuarioService;
+   @Autowired
+   private ComentarioServiceImpl comentarioService;
+
+   @Test
+   void repeatedReadsAreServedFromTheCache() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("cacheado"));
+      double hits = cacheGets("hit");
+
+      mockMvc.perform(get("/api/v1/usuario/" + usuario.getId())).andExpect(status().isOk());
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      statistics.clear();
+      mockMvc.perform(get("/api/v1/usuario/" + usuario.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.nombre").value("cacheado"));
+
+      assertEquals(0, statistics.getPrepareStatementCount());
+      assertEquals(0, statistics.getConnectCount(), "un acierto no abre la transacción de lectura");
+      // Cada lectura consulta la caché para el ETag y para el cuerpo; la primera solo falla en el ETag
+      assertEquals(hits + 3, cacheGets("hit"));
+   }
+
+   @Test
+   void writesInvalidateTheEntityAndTheDtosThatEmbedIt() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("autor"));
+      Post post = postRepository.save(new Post("titulo", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+      Comentario comentario = comentarioRepository.save(new Comentario("texto", post, usuario));
+
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.usuario.nombre").value("autor"));
+      mockMvc.perform(patch("/api/v1/usuario/" + usuario.getId())
+                  .contentType(BaseControllerImpl.MERGE_PATCH_JSON_VALUE)
+                  .content("{\"nombre\": \"renombrado\"}"))
+            .andExpect(status().isOk());
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.usuario.nombre").value("renombrado"))
+            .andExpect(jsonPath("$.postComentarios.length()").value(1));
+
+      mockMvc.perform(delete("/api/v1/comentario/" + comentario.getId())).andExpect(status().isNoContent());
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.postComentarios.length()").value(0));
+
+      mockMvc.perform(patch("/api/v1/post/" + post.getId())
+                  .contentType(BaseControllerImpl.MERGE_PATCH_JSON_VALUE)
+                  .content("{\"titulo\": \"nuevo\"}"))
+            .andExpect(status().isOk());
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.titulo").value("nuevo"));
+      assertTrue(cacheGets("miss") > 0);
+   }
+
+   @Test
+   void bulkInsertsInvalidateTheDtosThatEmbedTheNewEntities() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("lote"));
+      Post post = postRepository.save(new Post("lote", "descripcion", "categoria", 1, 1.0,
+            usuario, new HashSet<>(), new HashSet<>()));
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.postComentarios.length()").value(0));
+
+      comentarioService.persistAll(List.of(new Comentario("uno", post, usuario), new Comentario("dos", post, usuario)));
+
+      mockMvc.perform(get("/api/v1/post/" + post.getId()))
+            .andExpect(jsonPath("$.postComentarios.length()").value(2));
+   }
+
+   @Test
+   void callersReceiveCopiesOfTheCachedDto() throws Exception {
+      Usuario usuario = usuarioRepository.save(usuario("copiado"));
+      UsuarioDTO primero = usuarioService.findById(usuario.getId());
+      primero.setNombre("modificado");
+      primero.getFotoPerfil().setName("modificada.png");
+
+      UsuarioDTO segundo = usuarioService.findById(usuario.getId());
+      assertNotSame(primero, segundo);
+      assertEquals("copiado", segundo.getNombre());
+      assertEquals("copiado.png", segundo.getFotoPerfil().getName());
+      mockMvc.perform(get("/api/v1/usuario/" + usuario.getId()))
+            .andExpect(jsonPath("$.nombre").value("copiado"));
+   }
+
+   private double cacheGets(String result) {
+      return meterRegistry.get("cache.gets").tag("cache", DtoCache.CACHE_NAME).tag("result", result)
+            .functionCounter().count();
+   }
+
+}
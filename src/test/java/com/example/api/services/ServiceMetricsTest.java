@@ -0,0 +1,85 @@
+package com.example.api.services;
+
+import com.example.api.Fixtures;
+import com.example.api.entities.Imagen;
+import com.example.api.repositories.ImagenRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba las métricas de las operaciones de los servicios: duración por entidad y
+ * operación, tiempo en el repositorio y en la conversión, número de resultados, tiempo y
+ * tamaño de la serialización, y su exportación en formato Prometheus con histogramas, que
+ * las pruebas desactivan por defecto.
+ */
+@SpringBootTest(properties =
+      "spring.datasource.url=jdbc:h2:mem:metricsDB;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS rbac")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class ServiceMetricsTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+   @Autowired
+   private ImagenRepository imagenRepository;
+   @Autowired
+   private MeterRegistry meterRegistry;
+
+   @Test
+   void recordsOperationPhasesResultsAndSerialization() throws Exception {
+      Imagen imagen = imagenRepository.save(Fixtures.imagen("metricas", "http://img/m", "metricas-0"));
+      imagenRepository.save(Fixtures.imagen("metricas", "http://img/m1", "metricas-1"));
+
+      mockMvc.perform(get("/api/v1/imagen/paged?size=2")).andExpect(status().isOk());
+      mockMvc.perform(get("/api/v1/imagen/" + imagen.getId())).andExpect(status().isOk());
+
+      Timer page = meterRegistry.get("api.service")
+            .tags("entity", "Imagen", "operation", "findPage", "exception", "none").timer();
+      assertTrue(page.count() >= 1);
+      assertTrue(meterRegistry.get("api.service.phase")
+            .tags("entity", "Imagen", "operation", "findPage", "phase", "repository").timer().count() >= 1);
+      assertTrue(meterRegistry.get("api.service.phase")
+            .tags("entity", "Imagen", "operation", "findPage", "phase", "mapping").timer().count() >= 1);
+      DistributionSummary results = meterRegistry.get("api.service.results")
+            .tags("entity", "Imagen", "operation", "findPage").summary();
+      assertEquals(2, results.max());
+      assertTrue(meterRegistry.get("api.service")
+            .tags("entity", "Imagen", "operation", "findById").timer().count() >= 1);
+
+      assertTrue(meterRegistry.get("api.serialization").tag("entity", "Imagen").timer().count() >= 2);
+      assertTrue(meterRegistry.get("api.serialization.bytes").tag("entity", "Imagen").summary().totalAmount() > 0);
+   }
+
+   @Test
+   void tagsFailedOperationsWithTheirException() throws Exception {
+      mockMvc.perform(get("/api/v1/imagen/" + Long.MAX_VALUE));
+
+      // Las imágenes no se guardan en la caché de DTOs: el 404 sale de la consulta del ETag
+      assertTrue(meterRegistry.find("api.service").tags("entity", "Imagen", "operation", "findTag").timers()
+            .stream().anyMatch(timer -> !"none".equals(timer.getId().getTag("exception"))));
+   }
+
+   @Test
+   void exportsPercentileHistogramsInPrometheusFormat() throws Exception {
+      mockMvc.perform(get("/api/v1/imagen/paged?size=1")).andExpect(status().isOk());
+
+      String scrape = mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+      assertTrue(scrape.contains("api_service_seconds_bucket{entity=\"Imagen\""), scrape);
+      assertTrue(scrape.contains("api_service_phase_seconds_bucket{entity=\"Imagen\""));
+      assertTrue(scrape.contains("api_serialization_seconds_bucket{entity=\"Imagen\""));
+      assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+   }
+}